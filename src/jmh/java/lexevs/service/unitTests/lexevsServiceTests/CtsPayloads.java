@@ -0,0 +1,156 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Directory payloads for the benchmarks: the response recorded in
+ * FIXTURE_DIR for the suite's request of that directory, or a generated
+ * page of the same shape when none was recorded.
+ */
+public enum CtsPayloads {
+
+	EntityDirectory("codeSystem_search", "about", "name.name"),
+	AssociationDirectory("associations_targetof", "subject.uri", "target.entity.name"),
+	ResolvedValueSetDirectory("valuesets_resolved", "resolvedValueSetURI", "resolvedHeader.resolutionOf.valueSet.content"),
+	MapEntryDirectory("map_version_map_entities", "mapFrom.uri", "mapFrom.name");
+
+	private static final String THESAURUS = "http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#";
+
+	private final String endpoint;
+	private final String key;
+	private final String field;
+
+	CtsPayloads(String endpoint, String key, String field) {
+		this.endpoint = endpoint;
+		this.key = key;
+		this.field = field;
+	}
+
+	/**
+	 * @return the entry field that identifies an entry, as the tests' find { it.key == ... } uses it
+	 */
+	public String getKey() {
+		return key;
+	}
+
+	/**
+	 * @return the entry field the benchmarks read from the entry found
+	 */
+	public String getField() {
+		return field;
+	}
+
+	/**
+	 * @return the body recorded for the suite's request of this directory, or null if there is none
+	 */
+	public byte[] recorded(LexevsConfig config) throws IOException {
+		FixtureStore fixtures = new FixtureStore(Paths.get(config.get("FIXTURE_DIR", "src/test/resources/fixtures")));
+		FixtureStore.Entry entry = fixtures.find(CtsEndpointCatalog.named(CtsEndpointCatalog.build(config), endpoint).getPath());
+		if (entry == null) {
+			return null;
+		}
+		try (InputStream in = entry.isCompressed() ? new GZIPInputStream(Files.newInputStream(entry.getFile())) : Files.newInputStream(entry.getFile())) {
+			ByteArrayOutputStream body = new ByteArrayOutputStream();
+			byte[] buffer = new byte[16 * 1024];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				body.write(buffer, 0, read);
+			}
+			return body.toByteArray();
+		}
+	}
+
+	/**
+	 * @return a PARTIAL page of this directory with the given number of entries
+	 */
+	public byte[] generate(int entries) throws IOException {
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		try (JsonGenerator json = new JsonFactory().createGenerator(body)) {
+			json.writeStartObject();
+			json.writeObjectFieldStart(name());
+			json.writeStringField("complete", "PARTIAL");
+			json.writeNumberField("numEntries", entries);
+			json.writeStringField("next", "https://lexevscts2-qa.nci.nih.gov/lexevscts2/next?page=1");
+			json.writeArrayFieldStart("entry");
+			for (int i = 0; i < entries; i++) {
+				json.writeStartObject();
+				entry(json, "C" + i);
+				json.writeEndObject();
+			}
+			json.writeEndArray();
+			json.writeEndObject();
+			json.writeEndObject();
+		}
+		return body.toByteArray();
+	}
+
+	private void entry(JsonGenerator json, String code) throws IOException {
+		switch (this) {
+			case EntityDirectory:
+				json.writeStringField("about", THESAURUS + code);
+				json.writeObjectFieldStart("name");
+				json.writeStringField("namespace", "ncit");
+				json.writeStringField("name", code);
+				json.writeEndObject();
+				json.writeArrayFieldStart("knownEntityDescription");
+				json.writeStartObject();
+				json.writeStringField("href", "https://lexevscts2-qa.nci.nih.gov/lexevscts2/codesystem/NCI_Thesaurus/version/23.04d/entity/ncit:" + code);
+				json.writeStringField("designation", "Designation of " + code);
+				json.writeEndObject();
+				json.writeEndArray();
+				break;
+			case AssociationDirectory:
+				uriAndName(json, "subject", code);
+				json.writeObjectFieldStart("predicate");
+				json.writeStringField("uri", THESAURUS + "A8");
+				json.writeStringField("name", "Concept_In_Subset");
+				json.writeEndObject();
+				json.writeObjectFieldStart("target");
+				uriAndName(json, "entity", "C1052");
+				json.writeEndObject();
+				json.writeObjectFieldStart("assertedBy");
+				json.writeObjectFieldStart("codeSystem");
+				json.writeStringField("uri", THESAURUS);
+				json.writeStringField("content", "NCI_Thesaurus");
+				json.writeEndObject();
+				json.writeEndObject();
+				break;
+			case ResolvedValueSetDirectory:
+				json.writeStringField("resolvedValueSetURI", "urn:oid:" + code);
+				json.writeStringField("href", "https://lexevscts2-qa.nci.nih.gov/lexevscts2/valueset/" + code + "/definition/1/resolution/1");
+				json.writeObjectFieldStart("resolvedHeader");
+				json.writeObjectFieldStart("resolutionOf");
+				json.writeObjectFieldStart("valueSetDefinition");
+				json.writeStringField("uri", "urn:oid:" + code);
+				json.writeStringField("content", "1");
+				json.writeEndObject();
+				json.writeObjectFieldStart("valueSet");
+				json.writeStringField("content", "Value set " + code);
+				json.writeEndObject();
+				json.writeEndObject();
+				json.writeEndObject();
+				break;
+			case MapEntryDirectory:
+				uriAndName(json, "mapFrom", code);
+				json.writeStringField("href", "https://lexevscts2-qa.nci.nih.gov/lexevscts2/map/NCIt_to_ChEBI_Mapping/version/NCIt_to_ChEBI_Mapping-1.0/entry/" + code);
+				json.writeStringField("resourceName", code);
+				break;
+		}
+	}
+
+	private static void uriAndName(JsonGenerator json, String field, String code) throws IOException {
+		json.writeObjectFieldStart(field);
+		json.writeStringField("uri", THESAURUS + code);
+		json.writeStringField("namespace", "ncit");
+		json.writeStringField("name", code);
+		json.writeEndObject();
+	}
+}
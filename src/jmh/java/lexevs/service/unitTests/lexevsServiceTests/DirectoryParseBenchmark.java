@@ -0,0 +1,105 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.restassured.path.json.JsonPath;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client-side cost of parsing a directory page and finding one entry in it,
+ * without the network:
+ * <ul>
+ *   <li>gpath     - RestAssured's JsonPath and a GPath find, as the suite's body() assertions</li>
+ *   <li>tree      - one Jackson tree and a hashed lookup, as {@link DirectoryIndex}</li>
+ *   <li>typed     - Jackson binding to {@link TypedDirectories} and a scan</li>
+ *   <li>streaming - {@link DirectoryStreamReader}, one entry in memory at a time</li>
+ * </ul>
+ * Run with <code>mvn -P jmh verify</code>; the gc profiler reports the
+ * allocation per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DirectoryParseBenchmark {
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	@Param({ "EntityDirectory", "AssociationDirectory", "ResolvedValueSetDirectory", "MapEntryDirectory" })
+	public CtsPayloads directory;
+
+	/**
+	 * Entries of a generated page; 0 to use the response in FIXTURE_DIR, which
+	 * only stands for the service once it has been recorded
+	 */
+	@Param({ "1000" })
+	public int entries;
+
+	private byte[] body;
+	private String text;
+	private String value;
+	private String expected;
+
+	@Setup(Level.Trial)
+	public void load() throws IOException {
+		body = entries > 0 ? directory.generate(entries) : directory.recorded(LexevsConfig.load());
+		if (body == null) {
+			throw new IllegalStateException("No recorded " + directory + " in FIXTURE_DIR, record one with SERVICE_MODE=record");
+		}
+		text = new String(body, StandardCharsets.UTF_8);
+
+		// look up the entry in the middle of the page
+		JsonNode page = MAPPER.readTree(body).path(directory.name()).path("entry");
+		JsonNode entry = page.path(page.size() / 2);
+		value = DirectoryIndex.node(entry, directory.getKey()).asText();
+		expected = DirectoryIndex.node(entry, directory.getField()).asText();
+		if (!expected.equals(typed())) {
+			throw new IllegalStateException("Typed binding of " + directory + " finds " + typed() + " instead of " + expected);
+		}
+	}
+
+	@Benchmark
+	public Object gpath() {
+		return JsonPath.from(text).get(directory.name() + ".entry.find { it." + directory.getKey() + " == '" + value + "' }." + directory.getField());
+	}
+
+	@Benchmark
+	public Object tree() throws IOException {
+		DirectoryIndex index = new DirectoryIndex(directory.name(), MAPPER.readTree(body).path(directory.name()));
+		return DirectoryIndex.value(index.entry(directory.getKey(), value), directory.getField());
+	}
+
+	@Benchmark
+	public Object typed() throws IOException {
+		return TypedDirectories.find(directory, body, value);
+	}
+
+	@Benchmark
+	public Object streaming() throws IOException {
+		Object[] found = new Object[1];
+		new DirectoryStreamReader(directory.name()).read(new ByteArrayInputStream(body), (index, entry) -> {
+			if (found[0] == null && value.equals(DirectoryIndex.node(entry, directory.getKey()).asText())) {
+				found[0] = DirectoryIndex.value(entry, directory.getField());
+			}
+		});
+		return found[0];
+	}
+}
@@ -0,0 +1,138 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Typed bindings of the four directories, holding only the fields the
+ * benchmarks query; everything else in the payload is skipped.
+ */
+public class TypedDirectories {
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+	private static final Map<CtsPayloads, ObjectReader> READERS = new EnumMap<>(CtsPayloads.class);
+	static {
+		READERS.put(CtsPayloads.EntityDirectory, directoryReader(CtsPayloads.EntityDirectory, EntityEntry.class));
+		READERS.put(CtsPayloads.AssociationDirectory, directoryReader(CtsPayloads.AssociationDirectory, AssociationEntry.class));
+		READERS.put(CtsPayloads.ResolvedValueSetDirectory, directoryReader(CtsPayloads.ResolvedValueSetDirectory, ResolvedValueSetEntry.class));
+		READERS.put(CtsPayloads.MapEntryDirectory, directoryReader(CtsPayloads.MapEntryDirectory, MapEntry.class));
+	}
+
+	@JsonIgnoreProperties(ignoreUnknown = true)
+	public static class Directory<E> {
+		public String complete;
+		public int numEntries;
+		public List<E> entry;
+	}
+
+	@JsonIgnoreProperties(ignoreUnknown = true)
+	public static class UriAndName {
+		public String uri;
+		public String namespace;
+		public String name;
+	}
+
+	@JsonIgnoreProperties(ignoreUnknown = true)
+	public static class Content {
+		public String uri;
+		public String content;
+	}
+
+	@JsonIgnoreProperties(ignoreUnknown = true)
+	public static class EntityEntry {
+		public String about;
+		public UriAndName name;
+	}
+
+	@JsonIgnoreProperties(ignoreUnknown = true)
+	public static class AssociationEntry {
+		public UriAndName subject;
+		public UriAndName predicate;
+		public Target target;
+	}
+
+	@JsonIgnoreProperties(ignoreUnknown = true)
+	public static class Target {
+		public UriAndName entity;
+	}
+
+	@JsonIgnoreProperties(ignoreUnknown = true)
+	public static class ResolvedValueSetEntry {
+		public String resolvedValueSetURI;
+		public ResolvedHeader resolvedHeader;
+	}
+
+	@JsonIgnoreProperties(ignoreUnknown = true)
+	public static class ResolvedHeader {
+		public ResolutionOf resolutionOf;
+	}
+
+	@JsonIgnoreProperties(ignoreUnknown = true)
+	public static class ResolutionOf {
+		public Content valueSetDefinition;
+		public Content valueSet;
+	}
+
+	@JsonIgnoreProperties(ignoreUnknown = true)
+	public static class MapEntry {
+		public UriAndName mapFrom;
+	}
+
+	/**
+	 * Binds the payload of a directory and returns the field of the first
+	 * entry whose key has the given value, as {@link CtsPayloads} defines them.
+	 */
+	public static String find(CtsPayloads directory, byte[] body, String value) throws IOException {
+		switch (directory) {
+			case EntityDirectory: {
+				Directory<EntityEntry> page = READERS.get(directory).readValue(body);
+				for (EntityEntry entry : page.entry) {
+					if (value.equals(entry.about)) {
+						return entry.name.name;
+					}
+				}
+				return null;
+			}
+			case AssociationDirectory: {
+				Directory<AssociationEntry> page = READERS.get(directory).readValue(body);
+				for (AssociationEntry entry : page.entry) {
+					if (entry.subject != null && value.equals(entry.subject.uri)) {
+						return entry.target.entity.name;
+					}
+				}
+				return null;
+			}
+			case ResolvedValueSetDirectory: {
+				Directory<ResolvedValueSetEntry> page = READERS.get(directory).readValue(body);
+				for (ResolvedValueSetEntry entry : page.entry) {
+					if (value.equals(entry.resolvedValueSetURI)) {
+						return entry.resolvedHeader.resolutionOf.valueSet.content;
+					}
+				}
+				return null;
+			}
+			default: {
+				Directory<MapEntry> page = READERS.get(directory).readValue(body);
+				for (MapEntry entry : page.entry) {
+					if (entry.mapFrom != null && value.equals(entry.mapFrom.uri)) {
+						return entry.mapFrom.name;
+					}
+				}
+				return null;
+			}
+		}
+	}
+
+	private static ObjectReader directoryReader(CtsPayloads directory, Class<?> entryType) {
+		return MAPPER.readerFor(MAPPER.getTypeFactory().constructParametricType(Directory.class, entryType))
+				.with(DeserializationFeature.UNWRAP_ROOT_VALUE)
+				.withRootName(directory.name());
+	}
+}
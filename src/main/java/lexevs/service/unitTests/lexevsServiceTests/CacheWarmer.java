@@ -0,0 +1,225 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Warms the caches of a freshly deployed service before real users arrive.
+ * Hot requests, the suite's catalog and any extra ones configured, are sent
+ * in order of priority by a pool of workers.  Each request is repeated until
+ * its latency settles: the last few latencies are within a tolerance of each
+ * other.  The report tells how cold each request started, where it settled,
+ * and how long the whole warm-up took.
+ */
+public class CacheWarmer {
+
+	public static final String PREFIX = "WARMUP_URL.";
+
+	private final CtsHttpClient client;
+	private final int concurrency;
+	private final int window;
+	private final double tolerance;
+	private final int maxRequests;
+
+	/**
+	 * Warm-up of one request
+	 */
+	public static class Warmup {
+		private final CtsEndpoint endpoint;
+		private final List<Double> millis = new ArrayList<>();
+		private int errors;
+		private boolean settled;
+		private long doneNanos;
+
+		Warmup(CtsEndpoint endpoint) {
+			this.endpoint = endpoint;
+		}
+
+		public CtsEndpoint getEndpoint() {
+			return endpoint;
+		}
+
+		/**
+		 * @return latency of the first successful request, 0 if none succeeded
+		 */
+		public double getFirstMillis() {
+			return millis.isEmpty() ? 0 : millis.get(0);
+		}
+
+		/**
+		 * @return median latency of the last requests, the warm level once settled
+		 */
+		public double getWarmMillis(int window) {
+			List<Double> last = millis.subList(Math.max(millis.size() - window, 0), millis.size());
+			double[] values = new double[last.size()];
+			for (int i = 0; i < values.length; i++) {
+				values[i] = last.get(i);
+			}
+			return Stats.median(values);
+		}
+
+		public int getRequests() {
+			return millis.size() + errors;
+		}
+
+		public int getErrors() {
+			return errors;
+		}
+
+		public boolean isSettled() {
+			return settled;
+		}
+
+		/**
+		 * @return time from the start of the warm-up until this request settled or was given up
+		 */
+		public long getDoneNanos() {
+			return doneNanos;
+		}
+	}
+
+	/**
+	 * @param window    consecutive latencies that must agree for a request to be warm
+	 * @param tolerance largest ratio between the slowest and fastest of them, e.g. 1.25
+	 */
+	public CacheWarmer(CtsHttpClient client, int concurrency, int window, double tolerance, int maxRequests) {
+		this.client = client;
+		this.concurrency = Math.max(concurrency, 1);
+		this.window = Math.max(window, 2);
+		this.tolerance = tolerance;
+		this.maxRequests = Math.max(maxRequests, this.window);
+	}
+
+	/**
+	 * Warms the endpoints on the worker pool, starting them in the order given.
+	 *
+	 * @return the warm-ups, in the same order
+	 */
+	public List<Warmup> warm(List<CtsEndpoint> endpoints) throws InterruptedException {
+		ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+		long start = System.nanoTime();
+		List<Future<Warmup>> futures = new ArrayList<>();
+		try {
+			for (CtsEndpoint endpoint : endpoints) {
+				futures.add(workers.submit(() -> warm(endpoint, start)));
+			}
+			List<Warmup> warmups = new ArrayList<>();
+			for (Future<Warmup> future : futures) {
+				warmups.add(future.get());
+			}
+			return warmups;
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			workers.shutdownNow();
+		}
+	}
+
+	private Warmup warm(CtsEndpoint endpoint, long start) {
+		Warmup warmup = new Warmup(endpoint);
+		while (!warmup.settled && warmup.getRequests() < maxRequests) {
+			try {
+				CtsResponse response = client.get(endpoint.getPath());
+				if (response.isSuccess()) {
+					warmup.millis.add(response.getLatencyNanos() / 1e6);
+					warmup.settled = settled(warmup.millis);
+				} else {
+					warmup.errors++;
+				}
+			} catch (IOException e) {
+				warmup.errors++;
+			}
+		}
+		warmup.doneNanos = System.nanoTime() - start;
+		return warmup;
+	}
+
+	/**
+	 * @return whether the last latencies are within the tolerance of each other
+	 */
+	boolean settled(List<Double> millis) {
+		if (millis.size() < window) {
+			return false;
+		}
+		double min = Double.MAX_VALUE;
+		double max = 0;
+		for (double value : millis.subList(millis.size() - window, millis.size())) {
+			min = Math.min(min, value);
+			max = Math.max(max, value);
+		}
+		return max <= min * tolerance;
+	}
+
+	/**
+	 * @return the endpoints of the families, in the order of the families,
+	 *         keeping the order of the endpoints within a family
+	 */
+	public static List<CtsEndpoint> prioritize(List<CtsEndpoint> endpoints, List<String> families) {
+		List<CtsEndpoint> prioritized = new ArrayList<>();
+		for (CtsEndpoint endpoint : endpoints) {
+			if (families.contains(endpoint.getFamily())) {
+				prioritized.add(endpoint);
+			}
+		}
+		prioritized.sort(Comparator.comparingInt(endpoint -> families.indexOf(endpoint.getFamily())));
+		return prioritized;
+	}
+
+	public void print(List<Warmup> warmups, long wallNanos, PrintStream out) {
+		out.println(String.format("%-40s %-18s %9s %9s %7s %8s %9s %s", "endpoint", "family", "first ms", "warm ms",
+				"cold/x", "requests", "warm at s", ""));
+		int settled = 0;
+		for (Warmup warmup : warmups) {
+			settled += warmup.settled ? 1 : 0;
+			String name = warmup.endpoint.getName();
+			double warm = warmup.getWarmMillis(window);
+			out.println(String.format("%-40s %-18s %9.1f %9.1f %6.1fx %8d %9.1f %s",
+					name.length() <= 40 ? name : name.substring(0, 37) + "...", warmup.endpoint.getFamily(),
+					warmup.getFirstMillis(), warm, warm > 0 ? warmup.getFirstMillis() / warm : 0, warmup.getRequests(),
+					warmup.doneNanos / 1e9, warmup.settled ? "" : warmup.millis.isEmpty() ? "failing" : "not settled"));
+		}
+		out.println();
+		out.println(String.format("Warm-up took %.1f s: %d of %d requests settled within %.0f%% over %d requests",
+				wallNanos / 1e9, settled, warmups.size(), (tolerance - 1) * 100, window));
+	}
+
+	/**
+	 * Warm-up mode of {@link LexevsRestTestRunner}: warms the catalog
+	 * endpoints of WARMUP_FAMILIES, in that order, after the extra
+	 * WARMUP_URL.&lt;name&gt; requests of each family, on WARMUP_CONCURRENCY
+	 * workers.  A request is warm when WARMUP_WINDOW latencies in a row are
+	 * within WARMUP_TOLERANCE of each other, and is given up after
+	 * WARMUP_MAX_REQUESTS.
+	 */
+	public static void run(LexevsConfig config, PrintStream out) throws InterruptedException {
+		List<CtsEndpoint> endpoints = new ArrayList<>();
+		for (String key : config.keysWithPrefix(PREFIX)) {
+			endpoints.add(new CtsEndpoint(key.substring(PREFIX.length()), config.get(key)));
+		}
+		endpoints.sort(Comparator.comparing(CtsEndpoint::getName));
+		endpoints.addAll(CtsEndpointCatalog.build(config));
+		List<String> families = config.getList("WARMUP_FAMILIES");
+		if (families.isEmpty()) {
+			families = Arrays.asList(CtsEndpoint.CODESYSTEMVERSIONS, CtsEndpoint.ENTITIES, CtsEndpoint.ASSOCIATIONS,
+					CtsEndpoint.VALUESETS, CtsEndpoint.MAPS);
+		}
+		endpoints = prioritize(endpoints, families);
+		int concurrency = config.getInt("WARMUP_CONCURRENCY", 8);
+		CacheWarmer warmer = new CacheWarmer(CtsHttpClient.fromConfig(config), concurrency, config.getInt("WARMUP_WINDOW", 3),
+				config.getDouble("WARMUP_TOLERANCE", 1.25), config.getInt("WARMUP_MAX_REQUESTS", 20));
+
+		out.println("Warm-up: " + endpoints.size() + " requests of " + families + ", " + concurrency + " workers, against "
+				+ config.getBaseUrl());
+		long start = System.nanoTime();
+		List<Warmup> warmups = warmer.warm(endpoints);
+		warmer.print(warmups, System.nanoTime() - start, out);
+	}
+}
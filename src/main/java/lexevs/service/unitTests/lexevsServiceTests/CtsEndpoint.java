@@ -0,0 +1,110 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One request of the CTS2 REST API: a name, its path and query below the
+ * service base path, and the endpoint family it is reported under.
+ */
+public class CtsEndpoint {
+
+	public static final String SERVICE = "service";
+	public static final String CODESYSTEMVERSIONS = "codesystemversions";
+	public static final String ENTITIES = "entities";
+	public static final String ASSOCIATIONS = "associations";
+	public static final String VALUESETS = "valuesets";
+	public static final String MAPS = "maps";
+	public static final String OTHER = "other";
+
+	// Path segments followed by an identifier, and the placeholder the identifier is shown as
+	private static final Map<String, String> PLACEHOLDERS = new HashMap<>();
+	static {
+		PLACEHOLDERS.put("codesystem", "{cs}");
+		PLACEHOLDERS.put("version", "{v}");
+		PLACEHOLDERS.put("entity", "{id}");
+		PLACEHOLDERS.put("valueset", "{vs}");
+		PLACEHOLDERS.put("definition", "{def}");
+		PLACEHOLDERS.put("resolution", "{n}");
+		PLACEHOLDERS.put("map", "{map}");
+		PLACEHOLDERS.put("entry", "{code}");
+	}
+
+	private final String name;
+	private final String path;
+
+	public CtsEndpoint(String name, String path) {
+		this.name = name;
+		this.path = path.startsWith("/") ? path : "/" + path;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the path and query below the base path, always starting with '/'
+	 */
+	public String getPath() {
+		return path;
+	}
+
+	public String getTemplate() {
+		return template(path);
+	}
+
+	public String getFamily() {
+		return family(path);
+	}
+
+	@Override
+	public String toString() {
+		return name + " " + path;
+	}
+
+	/**
+	 * Reduces a request to its endpoint template by dropping the query and
+	 * replacing identifiers with placeholders, e.g.
+	 * <code>/codesystem/{cs}/version/{v}/entity/{id}/children</code>.
+	 */
+	public static String template(String pathAndQuery) {
+		int q = pathAndQuery.indexOf('?');
+		String path = q < 0 ? pathAndQuery : pathAndQuery.substring(0, q);
+		StringBuilder template = new StringBuilder();
+		String placeholder = null;
+		for (String segment : path.split("/")) {
+			if (segment.isEmpty()) {
+				continue;
+			}
+			template.append('/').append(placeholder != null ? placeholder : segment);
+			placeholder = placeholder != null ? null : PLACEHOLDERS.get(segment);
+		}
+		return template.length() == 0 ? "/" : template.toString();
+	}
+
+	/**
+	 * @return the family the request is reported under, one of the constants of this class
+	 */
+	public static String family(String pathAndQuery) {
+		String template = template(pathAndQuery);
+		if (template.endsWith("/children") || template.endsWith("/subjectof") || template.endsWith("/targetof")) {
+			return ASSOCIATIONS;
+		}
+		if (template.endsWith("/entities") || template.contains("/entity/")) {
+			return ENTITIES;
+		}
+		if (template.startsWith("/codesystem")) {
+			return CODESYSTEMVERSIONS;
+		}
+		if (template.startsWith("/valueset") || template.startsWith("/resolvedvaluesets")) {
+			return VALUESETS;
+		}
+		if (template.startsWith("/map")) {
+			return MAPS;
+		}
+		if (template.startsWith("/service")) {
+			return SERVICE;
+		}
+		return OTHER;
+	}
+}
@@ -0,0 +1,94 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The requests LexevsRestTestRunnerTest makes, one endpoint per test named
+ * after it, for the tools that replay them outside of JUnit.
+ */
+public class CtsEndpointCatalog {
+
+	/**
+	 * @return every endpoint of the suite, in test order
+	 */
+	public static List<CtsEndpoint> build(LexevsConfig config) {
+		String thesaurus = config.getThesaurusVersionNumber();
+		List<CtsEndpoint> endpoints = new ArrayList<>();
+		endpoints.add(new CtsEndpoint("service", "/service?format=json"));
+		endpoints.add(new CtsEndpoint("codeSystemVersion", "/codesystemversions?format=json&maxtoreturn=1000"));
+		endpoints.add(new CtsEndpoint("codeSystemVersion_search_return_none", "/codesystemversions?matchvalue=foot&filtercomponent=resourceSynopsis&format=json"));
+		endpoints.add(new CtsEndpoint("codeSystemVersion_search", "/codesystemversions?matchvalue=thesaurus&filtercomponent=resourceSynopsis&format=json"));
+		endpoints.add(new CtsEndpoint("codeSystemVersion_search_exact_match", "/codesystemversions?matchvalue=NCI_Thesaurus-" + thesaurus + "&filtercomponent=resourceName&matchalgorithm=exactMatch&format=json"));
+		endpoints.add(new CtsEndpoint("codeSystemVersion_search_filtercomponent_resourceSynopsis_matchAlgorithm_contains", "/codesystemversions?matchvalue=NCI Thesaurus&filtercomponent=resourceSynopsis&matchAlgorithm=contains&format=json"));
+		endpoints.add(new CtsEndpoint("codeSystemVersion_search_filtercomponent_resourceSynopsis_matchAlgorithm_exactMatch", "/codesystemversions?matchvalue=NCI Thesaurus&filtercomponent=resourceSynopsis&matchAlgorithm=exactMatch&format=json"));
+		endpoints.add(new CtsEndpoint("codeSystemVersion_search_filtercomponent_resourceSynopsis_matchAlgorithm_luceneQuery", "/codesystemversions?matchvalue=NCI Thesaurus&filtercomponent=resourceSynopsis&matchAlgorithm=luceneQuery&format=json"));
+		endpoints.add(new CtsEndpoint("codeSystemVersion_search_filtercomponent_resourceSynopsis_matchAlgorithm_starsWith", "/codesystemversions?matchvalue=NCI Thesaurus&filtercomponent=resourceSynopsis&matchAlgorithm=startsWith&format=json"));
+		endpoints.add(new CtsEndpoint("codeSystemVersion_search_filtercomponent_resourceName_matchAlgorithm_contains", "/codesystemversions?matchvalue=Thesaurus&filtercomponent=resourceName&matchAlgorithm=contains&format=json"));
+		endpoints.add(new CtsEndpoint("codeSystemVersion_search_filtercomponent_resourceName_matchAlgorithm_exactMatch", "/codesystemversions?matchvalue=Thesaurus&filtercomponent=resourceName&matchAlgorithm=exactMatch&format=json"));
+		endpoints.add(new CtsEndpoint("codeSystemVersion_search_filtercomponent_resourceName_matchAlgorithm_luceneQuery", "/codesystemversions?matchvalue=Thesaurus&filtercomponent=resourceName&matchAlgorithm=luceneQuery&format=json"));
+		endpoints.add(new CtsEndpoint("codeSystemVersion_search_filtercomponent_resourceName_matchAlgorithm_starsWith", "/codesystemversions?matchvalue=Thesaurus&filtercomponent=resourceName&matchAlgorithm=startsWith&format=json"));
+		endpoints.add(new CtsEndpoint("codeSystemVersion_search_filtercomponent_about_matchAlgorithm_contains", "/codesystemversions?matchvalue=EVS&filtercomponent=about&matchalgorithm=contains&format=json"));
+		endpoints.add(new CtsEndpoint("codeSystemVersion_search_filtercomponent_about_matchAlgorithm_startsWith", "/codesystemversions?matchvalue=EVS&filtercomponent=about&matchalgorithm=startsWith&format=json"));
+		endpoints.add(new CtsEndpoint("codeSystemVersion_search_filtercomponent_about_matchAlgorithm_exactMatch", "/codesystemversions?matchvalue=EVS&filtercomponent=about&matchalgorithm=exactMatch&format=json"));
+		endpoints.add(new CtsEndpoint("codeSystem_read", "/codesystem/NCI_Thesaurus/version/" + thesaurus + "?format=json"));
+		endpoints.add(new CtsEndpoint("codeSystem_search", "codesystem/NCI_Thesaurus/version/" + thesaurus + "/entities?maxtoreturn=10000&format=json"));
+		endpoints.add(new CtsEndpoint("entity_search_resource_synopsis_contains", "codesystem/MedDRA/version/22_1/entities?matchvalue=Cleft&filtercomponent=resourceSynopsis&matchalgorithm=contains&format=json"));
+		endpoints.add(new CtsEndpoint("entity_search_resource_synopsis_exact_match", "codesystem/MedDRA/version/22_1/entities?matchvalue=Cleft lip and nose&filtercomponent=resourceSynopsis&matchalgorithm=exactMatch&format=json"));
+		endpoints.add(new CtsEndpoint("entities_read", "codesystem/NCI_Thesaurus/version/" + thesaurus + "/entity/ncit:C938?format=json"));
+		endpoints.add(new CtsEndpoint("entities_search_filtercomponent_resourceSynopsis_matchAlgorithm_contains_invalid_value", "/entities?matchvalue=abcdef&filtercomponent=resourceSynopsis&matchalgorithm=contains&format=json"));
+		endpoints.add(new CtsEndpoint("entities_search_resource_synopsis_lucene", "/entities?matchvalue=heart&filtercomponent=resourceSynopsis&matchalgorithm=luceneQuery&format=json&maxtoreturn=1000"));
+		endpoints.add(new CtsEndpoint("entities_search_resource_synopsis_exact_match", "/entities?matchvalue=Heart disorder&filtercomponent=resourceSynopsis&matchalgorithm=exactMatch&maxtoreturn=50&format=json"));
+		endpoints.add(new CtsEndpoint("entities_search_resource_synopsis_contains", "/entities?matchvalue=Heart disorder&filtercomponent=resourceSynopsis&matchalgorithm=contains&maxtoreturn=50&format=json"));
+		endpoints.add(new CtsEndpoint("entities_search_filtercomponent_resourceName_matchAlgorithm_luceneQuery", "/entities?matchvalue=Heart disorder&filtercomponent=resourceName&matchalgorithm=luceneQuery&maxtoreturn=50&format=json"));
+		endpoints.add(new CtsEndpoint("entities_search_resource_name_contains", "/entities?matchvalue=Heart disorder&filtercomponent=resourceName&matchalgorithm=contains&maxtoreturn=50&format=json"));
+		endpoints.add(new CtsEndpoint("entities_search_resource_name_exact_match", "/entities?matchvalue=Heart disorder&filtercomponent=resourceName&matchalgorithm=exactMatch&maxtoreturn=50&format=json"));
+		endpoints.add(new CtsEndpoint("associations_children", "/codesystem/NCI_Thesaurus/version/" + thesaurus + "/entity/ncit:C1648/children?format=json"));
+		endpoints.add(new CtsEndpoint("associations_subjectof", "/codesystem/NCI_Thesaurus/version/" + thesaurus + "/entity/ncit:C875/subjectof?format=json"));
+		endpoints.add(new CtsEndpoint("associations_targetof", "/codesystem/NCI_Thesaurus/version/" + thesaurus + "/entity/ncit:C128784/targetof?format=json&maxtoreturn=1000"));
+		endpoints.add(new CtsEndpoint("valuesets_all", "/valuesets?format=json"));
+		endpoints.add(new CtsEndpoint("valuesets_read", "/valueset/FDA Terminology?format=json"));
+		endpoints.add(new CtsEndpoint("valuesets_search_resourceName_exactMatch", "/valuesets?matchvalue=GAIA Terminology&filtercomponent=resourceName&matchalgorithm=exactMatch&format=json"));
+		endpoints.add(new CtsEndpoint("valuesets_search_filtercomponent_resourceName_matchAlgorithm_contains", "/valuesets?matchvalue=GAIA&filtercomponent=resourceName&matchalgorithm=contains&format=json"));
+		endpoints.add(new CtsEndpoint("valuesets_search_filtercomponent_resourceSynopsis_matchAlgorithm_exactMatch", "/valuesets?matchvalue=diabetes&filtercomponent=resourceSynopsis&matchalgorithm=exactMatch&format=json"));
+		endpoints.add(new CtsEndpoint("valuesets_search_resourceSynopsis_contains", "/valuesets?matchvalue=diabetes&filtercomponent=resourceSynopsis&maxtoreturn=50&matchalgorithm=contains&format=json"));
+		endpoints.add(new CtsEndpoint("valuesets_search_resourceSynopsis_exactMatch", "/valuesets?matchvalue=Microsoft&filtercomponent=resourceSynopsis&matchalgorithm=exactMatch&format=json"));
+		endpoints.add(new CtsEndpoint("valuesets_resolve", "/valueset/FDA Terminology/definition/e32e022f?format=json"));
+		endpoints.add(new CtsEndpoint("valuesets_resolved", "/resolvedvaluesets?maxtoreturn=50&format=json"));
+		endpoints.add(new CtsEndpoint("valuesets_resolution", "/valueset/CDISC Questionnaire NPI Test Name Terminology/definition/e31ccb56/resolution/1?format=json"));
+		endpoints.add(new CtsEndpoint("mapversions_all", "/mapversions?format=json"));
+		endpoints.add(new CtsEndpoint("mapversions_search_resource_name", "/mapversions?matchvalue=GO&filtercomponent=resourceName&format=json"));
+		endpoints.add(new CtsEndpoint("mapversions_search_resource_synopsis", "/mapversions?matchvalue=NCIT&filtercomponent=resourceSynopsis&format=json"));
+		endpoints.add(new CtsEndpoint("map_specific", "/map/GO_to_NCIt_Mapping?format=json"));
+		endpoints.add(new CtsEndpoint("map_versions_of_map", "/map/NCIt_to_ChEBI_Mapping/versions?format=json"));
+		endpoints.add(new CtsEndpoint("map_version_map", "/map/NCIt_to_ChEBI_Mapping/version/NCIt_to_ChEBI_Mapping-1.0?format=json"));
+		endpoints.add(new CtsEndpoint("map_version_map_entities", "/map/NCIt_to_ChEBI_Mapping/version/NCIt_to_ChEBI_Mapping-1.0/entries?maxtoreturn=50&format=json"));
+		endpoints.add(new CtsEndpoint("map_version_map_entity", "/map/NCIt_to_ChEBI_Mapping/version/NCIt_to_ChEBI_Mapping-1.0/entry/C1028?format=json"));
+		return endpoints;
+	}
+
+	/**
+	 * @return the endpoints of one family, see {@link CtsEndpoint#getFamily()}
+	 */
+	public static List<CtsEndpoint> family(List<CtsEndpoint> endpoints, String family) {
+		List<CtsEndpoint> members = new ArrayList<>();
+		for (CtsEndpoint endpoint : endpoints) {
+			if (endpoint.getFamily().equals(family)) {
+				members.add(endpoint);
+			}
+		}
+		return members;
+	}
+
+	/**
+	 * @return the endpoint with the given name, or null
+	 */
+	public static CtsEndpoint named(List<CtsEndpoint> endpoints, String name) {
+		for (CtsEndpoint endpoint : endpoints) {
+			if (endpoint.getName().equals(name)) {
+				return endpoint;
+			}
+		}
+		return null;
+	}
+}
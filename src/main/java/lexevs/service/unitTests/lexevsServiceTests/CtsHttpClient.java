@@ -0,0 +1,187 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+
+/**
+ * Minimal, low-overhead HTTP client for the load and benchmark tools.  It
+ * times every GET from the moment it is issued to the response headers
+ * (TTFB) and to the last byte of the body.
+ *
+ * Plain HttpURLConnection keeps connections alive between requests as long
+ * as each body is read to the end, which every method here does.
+ */
+public class CtsHttpClient {
+
+	private final String serviceUrl;
+	private final int connectTimeoutMillis;
+	private final int readTimeoutMillis;
+
+	/**
+	 * Consumes a response body.  It need not read the body to the end.
+	 */
+	public interface BodyHandler {
+		void handle(InputStream body) throws IOException;
+	}
+
+	/**
+	 * @param baseUrl  the service host, e.g. https://lexevscts2-qa.nci.nih.gov
+	 * @param basePath the service base path, e.g. /lexevscts2
+	 */
+	public CtsHttpClient(String baseUrl, String basePath, int connectTimeoutMillis, int readTimeoutMillis) {
+		this.serviceUrl = stripSlash(baseUrl) + basePath;
+		this.connectTimeoutMillis = connectTimeoutMillis;
+		this.readTimeoutMillis = readTimeoutMillis;
+	}
+
+	/**
+	 * Client for BASE_URL, with HTTP_CONNECT_TIMEOUT_MS and HTTP_READ_TIMEOUT_MS
+	 */
+	public static CtsHttpClient fromConfig(LexevsConfig config) {
+		return forBaseUrl(config, config.getBaseUrl());
+	}
+
+	/**
+	 * Client for another deployment, with the timeouts of the configuration
+	 */
+	public static CtsHttpClient forBaseUrl(LexevsConfig config, String baseUrl) {
+		return new CtsHttpClient(baseUrl, LexevsRestTestRunner.BASE_PATH,
+				config.getInt("HTTP_CONNECT_TIMEOUT_MS", 10000), config.getInt("HTTP_READ_TIMEOUT_MS", 120000));
+	}
+
+	public String getServiceUrl() {
+		return serviceUrl;
+	}
+
+	/**
+	 * GETs a request and discards the body.
+	 *
+	 * @param pathAndQuery path below the base path with its unencoded query, or an absolute URL
+	 */
+	public CtsResponse get(String pathAndQuery) throws IOException {
+		return get(pathAndQuery, null);
+	}
+
+	/**
+	 * GETs a request and hands its body to the handler.  Whatever the handler
+	 * leaves unread is drained so the connection can be reused.
+	 */
+	public CtsResponse get(String pathAndQuery, BodyHandler handler) throws IOException {
+		URL url = url(pathAndQuery);
+		long start = System.nanoTime();
+		HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+		connection.setConnectTimeout(connectTimeoutMillis);
+		connection.setReadTimeout(readTimeoutMillis);
+		int status = connection.getResponseCode();
+		long ttfb = System.nanoTime() - start;
+
+		InputStream stream = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+		long bytes = 0;
+		if (stream != null) {
+			try (CountingInputStream body = new CountingInputStream(stream)) {
+				if (handler != null && status < 400) {
+					handler.handle(body);
+				}
+				body.drain();
+				bytes = body.count;
+			}
+		}
+		return new CtsResponse(url.toString(), status, bytes, start, ttfb, System.nanoTime() - start);
+	}
+
+	/**
+	 * Resolves a request against the service URL, encoding it as needed.
+	 */
+	public URL url(String pathAndQuery) throws IOException {
+		if (pathAndQuery.startsWith("http://") || pathAndQuery.startsWith("https://")) {
+			return new URL(pathAndQuery);
+		}
+		int q = pathAndQuery.indexOf('?');
+		String path = q < 0 ? pathAndQuery : pathAndQuery.substring(0, q);
+		String query = q < 0 ? null : pathAndQuery.substring(q + 1);
+		try {
+			String encoded = new URI(null, null, path.startsWith("/") ? path : "/" + path, query, null).toASCIIString();
+			return new URL(serviceUrl + encoded);
+		} catch (URISyntaxException e) {
+			throw new IOException("Invalid request " + pathAndQuery, e);
+		}
+	}
+
+	/**
+	 * @param header the fields of a directory page other than its entries
+	 * @return the next page on this client's service, or null on the last page
+	 */
+	public String nextPage(JsonNode header) {
+		JsonNode next = header.path("next");
+		if (!next.isTextual() || next.asText().isEmpty()) {
+			return null;
+		}
+		String url = next.asText();
+		// the service may advertise another host name or scheme than the one requested, e.g. behind a proxy
+		int basePath = url.indexOf(LexevsRestTestRunner.BASE_PATH + "/");
+		if (!url.startsWith(serviceUrl) && basePath >= 0) {
+			url = serviceUrl + url.substring(basePath + LexevsRestTestRunner.BASE_PATH.length());
+		}
+		if (!url.contains("format=")) {
+			url += (url.contains("?") ? "&" : "?") + "format=json";
+		}
+		return url;
+	}
+
+	private static String stripSlash(String url) {
+		return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+	}
+
+	private static class CountingInputStream extends FilterInputStream {
+		private long count;
+
+		CountingInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b != -1) {
+				count++;
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			int read = super.read(buffer, offset, length);
+			if (read > 0) {
+				count += read;
+			}
+			return read;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(n);
+			count += skipped;
+			return skipped;
+		}
+
+		@Override
+		public void close() {
+			// closed by the owner once drained, not by the body handler
+		}
+
+		void drain() throws IOException {
+			byte[] buffer = new byte[16 * 1024];
+			while (read(buffer, 0, buffer.length) != -1) {
+				// discard
+			}
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+/**
+ * Outcome and timing of one request made by {@link CtsHttpClient}.
+ */
+public class CtsResponse {
+
+	private final String url;
+	private final int status;
+	private final long bytes;
+	private final long startNanos;
+	private final long ttfbNanos;
+	private final long latencyNanos;
+
+	public CtsResponse(String url, int status, long bytes, long startNanos, long ttfbNanos, long latencyNanos) {
+		this.url = url;
+		this.status = status;
+		this.bytes = bytes;
+		this.startNanos = startNanos;
+		this.ttfbNanos = ttfbNanos;
+		this.latencyNanos = latencyNanos;
+	}
+
+	public String getUrl() {
+		return url;
+	}
+
+	public int getStatus() {
+		return status;
+	}
+
+	public boolean isSuccess() {
+		return status >= 200 && status < 300;
+	}
+
+	/**
+	 * @return size of the body as received
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * @return System.nanoTime() when the request was issued
+	 */
+	public long getStartNanos() {
+		return startNanos;
+	}
+
+	/**
+	 * @return time from issuing the request to the response headers
+	 */
+	public long getTtfbNanos() {
+		return ttfbNanos;
+	}
+
+	/**
+	 * @return time from issuing the request to the last byte of the body
+	 */
+	public long getLatencyNanos() {
+		return latencyNanos;
+	}
+}
@@ -0,0 +1,263 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Embedded, in-process stand-in for a LexEVS CTS2 service.  Requests below
+ * the base path are answered from a {@link FixtureStore}; anything without a
+ * fixture gets a 404 so a missing recording is visible in the test output.
+ *
+ * With an upstream set the server becomes a recording proxy instead: every
+ * request is forwarded to the live service and its response streamed back to
+ * the client while it is written to the store.  A request the upstream does
+ * not answer in time gets a 504 and is not recorded.
+ */
+public class CtsStubServer {
+
+	private final FixtureStore fixtures;
+	private final String basePath;
+	private String upstream;
+	private int connectTimeoutMillis = 10000;
+	private int readTimeoutMillis = 120000;
+	private boolean verbose;
+	private HttpServer server;
+	private ExecutorService executor;
+
+	public CtsStubServer(FixtureStore fixtures, String basePath) {
+		this.fixtures = fixtures;
+		this.basePath = basePath;
+	}
+
+	/**
+	 * Starts listening on the loopback interface.
+	 *
+	 * @param port port to bind, or 0 for any free port
+	 */
+	public synchronized void start(int port) throws IOException {
+		server = loopbackServer(port);
+		executor = Executors.newCachedThreadPool(r -> {
+			Thread thread = new Thread(r, "cts2-stub");
+			thread.setDaemon(true);
+			return thread;
+		});
+		server.setExecutor(executor);
+		server.createContext(basePath, this::handle);
+		server.start();
+	}
+
+	/**
+	 * Creates an HTTP server on the loopback interface.  Without TCP_NODELAY
+	 * small responses stall on delayed ACKs, ~40 ms per request.  The JDK reads
+	 * sun.net.httpserver.nodelay once, when the first server is created, so it
+	 * is set for the whole JVM unless given on the command line.
+	 */
+	static HttpServer loopbackServer(int port) throws IOException {
+		if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+			System.setProperty("sun.net.httpserver.nodelay", "true");
+		}
+		return HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+	}
+
+	/**
+	 * Switches the server to recording mode.
+	 *
+	 * @param upstream base URL of the live service, e.g. https://lexevscts2-qa.nci.nih.gov
+	 */
+	public void setUpstream(String upstream) {
+		this.upstream = upstream;
+	}
+
+	/**
+	 * Timeouts of the requests to the upstream, 10 s to connect and 120 s to
+	 * read by default.
+	 */
+	public void setUpstreamTimeouts(int connectTimeoutMillis, int readTimeoutMillis) {
+		this.connectTimeoutMillis = connectTimeoutMillis;
+		this.readTimeoutMillis = readTimeoutMillis;
+	}
+
+	/**
+	 * Prints each recorded response to System.out.
+	 */
+	public void setVerbose(boolean verbose) {
+		this.verbose = verbose;
+	}
+
+	public synchronized void stop() {
+		if (server != null) {
+			server.stop(0);
+			executor.shutdownNow();
+			server = null;
+		}
+	}
+
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * @return the URI to use as the base URL of the service, without the base path
+	 */
+	public String getBaseUri() {
+		return "http://localhost:" + getPort();
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		try {
+			URI uri = exchange.getRequestURI();
+			String path = uri.getRawPath().substring(basePath.length());
+			String pathAndQuery = uri.getRawQuery() == null ? path : path + "?" + uri.getRawQuery();
+
+			if (upstream != null) {
+				record(exchange, pathAndQuery);
+				return;
+			}
+
+			FixtureStore.Entry entry = fixtures.find(pathAndQuery);
+			if (entry == null || !Files.exists(entry.getFile())) {
+				byte[] message = ("No fixture recorded for " + FixtureStore.key(pathAndQuery)).getBytes(StandardCharsets.UTF_8);
+				exchange.getResponseHeaders().set("Content-Type", "text/plain;charset=UTF-8");
+				exchange.sendResponseHeaders(404, message.length);
+				exchange.getResponseBody().write(message);
+				return;
+			}
+			replay(exchange, entry);
+		} finally {
+			exchange.close();
+		}
+	}
+
+	/**
+	 * Streams a fixture to the client.  Compressed fixtures go out as they are
+	 * stored when the client accepts gzip and are inflated on the fly otherwise.
+	 */
+	private void replay(HttpExchange exchange, FixtureStore.Entry entry) throws IOException {
+		Path file = entry.getFile();
+		exchange.getResponseHeaders().set("Content-Type", contentType(file));
+
+		String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+		if (entry.isCompressed() && (acceptEncoding == null || !acceptEncoding.contains("gzip"))) {
+			exchange.sendResponseHeaders(entry.getStatus(), 0);
+			try (InputStream in = new GZIPInputStream(Files.newInputStream(file));
+				 OutputStream out = exchange.getResponseBody()) {
+				copy(in, out);
+			}
+			return;
+		}
+
+		if (entry.isCompressed()) {
+			exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+		}
+		exchange.sendResponseHeaders(entry.getStatus(), Files.size(file));
+		try (OutputStream out = exchange.getResponseBody()) {
+			Files.copy(file, out);
+		}
+	}
+
+	private void record(HttpExchange exchange, String pathAndQuery) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL(upstream + basePath + pathAndQuery).openConnection();
+		connection.setConnectTimeout(connectTimeoutMillis);
+		connection.setReadTimeout(readTimeoutMillis);
+		int status;
+		try {
+			status = connection.getResponseCode();
+		} catch (SocketTimeoutException e) {
+			byte[] message = ("Upstream timed out for " + FixtureStore.key(pathAndQuery)).getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().set("Content-Type", "text/plain;charset=UTF-8");
+			exchange.sendResponseHeaders(504, message.length);
+			exchange.getResponseBody().write(message);
+			return;
+		}
+		String contentType = connection.getContentType();
+		if (contentType != null) {
+			exchange.getResponseHeaders().set("Content-Type", contentType);
+		}
+		exchange.sendResponseHeaders(status, 0);
+
+		InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+		try (InputStream in = body == null ? new ByteArrayInputStream(new byte[0]) : body;
+			 OutputStream out = exchange.getResponseBody()) {
+			fixtures.record(pathAndQuery, status, extension(contentType), in, out);
+		}
+		if (verbose) {
+			System.out.println("Recorded " + status + " " + FixtureStore.key(pathAndQuery));
+		}
+	}
+
+	private static void copy(InputStream in, OutputStream out) throws IOException {
+		byte[] buffer = new byte[64 * 1024];
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			out.write(buffer, 0, read);
+		}
+	}
+
+	static String extension(String contentType) {
+		if (contentType == null) {
+			return ".txt";
+		}
+		if (contentType.contains("json")) {
+			return ".json";
+		}
+		if (contentType.contains("xml")) {
+			return ".xml";
+		}
+		return ".txt";
+	}
+
+	static String contentType(Path file) {
+		String name = file.getFileName().toString();
+		if (name.endsWith(".gz")) {
+			name = name.substring(0, name.length() - ".gz".length());
+		}
+		if (name.endsWith(".json")) {
+			return "application/json;charset=UTF-8";
+		}
+		if (name.endsWith(".xml")) {
+			return "application/xml;charset=UTF-8";
+		}
+		return "text/plain;charset=UTF-8";
+	}
+
+	/**
+	 * Runs the stub standalone: <code>CtsStubServer &lt;fixture dir&gt; [port [upstream]]</code>
+	 * <p>
+	 * With an upstream URL it records instead of replaying.
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1) {
+			System.out.println("Usage: CtsStubServer <fixture dir> [port [upstream]]");
+			return;
+		}
+		FixtureStore fixtures = new FixtureStore(Paths.get(args[0]));
+		CtsStubServer stub = new CtsStubServer(fixtures, LexevsRestTestRunner.BASE_PATH);
+		if (args.length > 2) {
+			LexevsConfig config = LexevsConfig.load();
+			stub.setUpstream(args[2]);
+			stub.setUpstreamTimeouts(config.getInt("HTTP_CONNECT_TIMEOUT_MS", 10000), config.getInt("HTTP_READ_TIMEOUT_MS", 120000));
+			stub.setVerbose(true);
+		}
+		stub.start(args.length > 1 ? Integer.parseInt(args[1]) : 0);
+		System.out.println((args.length > 2 ? "Recording " + args[2] + " at " : "Serving " + fixtures.size() + " fixtures at ")
+				+ stub.getBaseUri() + LexevsRestTestRunner.BASE_PATH);
+	}
+}
@@ -0,0 +1,369 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Sends every request to two deployments at once, the current one and a
+ * candidate, diffs the response bodies for functional drift and compares
+ * the latencies of each endpoint.
+ *
+ * Sending both requests of a pair together means both deployments see the
+ * same network and time of day.  Each body has its own service URL
+ * replaced before the diff, so links that differ only by host are equal.
+ * An endpoint is slower or faster when a {@link MannWhitney} test on its
+ * latencies says so.
+ */
+public class DifferentialRunner {
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+	private static final String SERVICE_URL = "{service}";
+
+	private final CtsHttpClient baseline;
+	private final CtsHttpClient candidate;
+	private final int iterations;
+	private final double alpha;
+	private final Set<String> ignoredFields;
+	private final int maxDifferences;
+
+	/**
+	 * Comparison of one endpoint
+	 */
+	public static class Result {
+		private final String endpoint;
+		private final Histogram baselineLatency = LatencyStats.newHistogram();
+		private final Histogram candidateLatency = LatencyStats.newHistogram();
+		private final List<Double> baselineMillis = new ArrayList<>();
+		private final List<Double> candidateMillis = new ArrayList<>();
+		private final List<String> differences = new ArrayList<>();
+		private long baselineErrors;
+		private long candidateErrors;
+		private double slowerP = 1;
+		private double fasterP = 1;
+		private final double alpha;
+
+		Result(String endpoint, double alpha) {
+			this.endpoint = endpoint;
+			this.alpha = alpha;
+		}
+
+		public String getEndpoint() {
+			return endpoint;
+		}
+
+		/**
+		 * @return latencies against the current deployment, in microseconds
+		 */
+		public Histogram getBaselineLatency() {
+			return baselineLatency;
+		}
+
+		/**
+		 * @return latencies against the candidate, in microseconds
+		 */
+		public Histogram getCandidateLatency() {
+			return candidateLatency;
+		}
+
+		/**
+		 * @return where the bodies differ, as JSON paths; empty when they are the same
+		 */
+		public List<String> getDifferences() {
+			return differences;
+		}
+
+		public long getBaselineErrors() {
+			return baselineErrors;
+		}
+
+		public long getCandidateErrors() {
+			return candidateErrors;
+		}
+
+		/**
+		 * @return relative change of the median latency, e.g. 0.25 for 25% slower
+		 */
+		public double getChange() {
+			double before = Stats.median(toArray(baselineMillis));
+			return before > 0 ? Stats.median(toArray(candidateMillis)) / before - 1 : 0;
+		}
+
+		/**
+		 * @return the smaller of the one-sided p-values of getting slower and getting faster
+		 */
+		public double getPValue() {
+			return Math.min(slowerP, fasterP);
+		}
+
+		/**
+		 * @return "slower", "faster" or "same"
+		 */
+		public String getVerdict() {
+			return slowerP < alpha ? "slower" : fasterP < alpha ? "faster" : "same";
+		}
+	}
+
+	/**
+	 * @param ignoredFields names of JSON fields left out of the diff, e.g. accessDate
+	 */
+	public DifferentialRunner(CtsHttpClient baseline, CtsHttpClient candidate, int iterations, double alpha,
+			Set<String> ignoredFields, int maxDifferences) {
+		this.baseline = baseline;
+		this.candidate = candidate;
+		this.iterations = Math.max(iterations, 1);
+		this.alpha = alpha;
+		this.ignoredFields = ignoredFields;
+		this.maxDifferences = maxDifferences;
+	}
+
+	/**
+	 * Sends an untimed pair whose bodies are diffed, then the timed pairs.
+	 */
+	public Result compare(CtsEndpoint endpoint) throws InterruptedException {
+		Result result = new Result(endpoint.getName(), alpha);
+		ExecutorService pair = Executors.newFixedThreadPool(2);
+		try {
+			Future<Exchange> before = pair.submit(() -> send(baseline, endpoint.getPath()));
+			Future<Exchange> after = pair.submit(() -> send(candidate, endpoint.getPath()));
+			diff(before.get(), after.get(), result.differences);
+			for (int i = 0; i < iterations; i++) {
+				before = pair.submit(() -> send(baseline, endpoint.getPath()));
+				after = pair.submit(() -> send(candidate, endpoint.getPath()));
+				Exchange b = before.get();
+				Exchange a = after.get();
+				if (b.isSuccess()) {
+					record(result.baselineLatency, result.baselineMillis, b.response);
+				} else {
+					result.baselineErrors++;
+				}
+				if (a.isSuccess()) {
+					record(result.candidateLatency, result.candidateMillis, a.response);
+				} else {
+					result.candidateErrors++;
+				}
+			}
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			pair.shutdownNow();
+		}
+		double[] before = toArray(result.baselineMillis);
+		double[] after = toArray(result.candidateMillis);
+		result.slowerP = MannWhitney.greater(before, after).getPValue();
+		result.fasterP = MannWhitney.greater(after, before).getPValue();
+		return result;
+	}
+
+	/**
+	 * A response with its body, or the failure to get one
+	 */
+	private static class Exchange {
+		final String serviceUrl;
+		final CtsResponse response;
+		final byte[] body;
+		final IOException failure;
+
+		Exchange(String serviceUrl, CtsResponse response, byte[] body, IOException failure) {
+			this.serviceUrl = serviceUrl;
+			this.response = response;
+			this.body = body;
+			this.failure = failure;
+		}
+
+		boolean isSuccess() {
+			return response != null && response.isSuccess();
+		}
+
+		String describe() {
+			return failure != null ? failure.toString() : "HTTP " + response.getStatus();
+		}
+	}
+
+	private static Exchange send(CtsHttpClient client, String path) {
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		try {
+			CtsResponse response = client.get(path, in -> copy(in, body));
+			return new Exchange(client.getServiceUrl(), response, body.toByteArray(), null);
+		} catch (IOException e) {
+			return new Exchange(client.getServiceUrl(), null, null, e);
+		}
+	}
+
+	private void diff(Exchange before, Exchange after, List<String> differences) {
+		if (!before.isSuccess() || !after.isSuccess()) {
+			if (before.isSuccess() != after.isSuccess()
+					|| (before.response != null && after.response != null && before.response.getStatus() != after.response.getStatus())) {
+				differences.add("status: " + before.describe() + " != " + after.describe());
+			}
+			return;
+		}
+		String a = normalize(before);
+		String b = normalize(after);
+		try {
+			diff(MAPPER.readTree(a), MAPPER.readTree(b), "", differences);
+		} catch (IOException e) {
+			if (!a.equals(b)) {
+				differences.add("body: not JSON, and different");
+			}
+		}
+	}
+
+	private static String normalize(Exchange exchange) {
+		return new String(exchange.body, StandardCharsets.UTF_8).replace(exchange.serviceUrl, SERVICE_URL);
+	}
+
+	/**
+	 * Adds the paths at which the trees differ, up to maxDifferences.
+	 */
+	void diff(JsonNode before, JsonNode after, String path, List<String> differences) {
+		if (differences.size() >= maxDifferences) {
+			return;
+		}
+		if (before.isObject() && after.isObject()) {
+			Set<String> names = new TreeSet<>();
+			before.fieldNames().forEachRemaining(names::add);
+			after.fieldNames().forEachRemaining(names::add);
+			for (String name : names) {
+				if (ignoredFields.contains(name)) {
+					continue;
+				}
+				String child = path.isEmpty() ? name : path + "." + name;
+				if (!before.has(name)) {
+					add(differences, child + ": only in candidate");
+				} else if (!after.has(name)) {
+					add(differences, child + ": only in baseline");
+				} else {
+					diff(before.get(name), after.get(name), child, differences);
+				}
+			}
+		} else if (before.isArray() && after.isArray()) {
+			if (before.size() != after.size()) {
+				add(differences, path + ": " + before.size() + " elements != " + after.size());
+			}
+			Iterator<JsonNode> a = before.elements();
+			Iterator<JsonNode> b = after.elements();
+			for (int i = 0; a.hasNext() && b.hasNext(); i++) {
+				diff(a.next(), b.next(), path + "[" + i + "]", differences);
+			}
+		} else if (!before.equals(after)) {
+			add(differences, path + ": " + abbreviate(before.toString()) + " != " + abbreviate(after.toString()));
+		}
+	}
+
+	private void add(List<String> differences, String difference) {
+		if (differences.size() < maxDifferences) {
+			differences.add(difference);
+		}
+	}
+
+	private static String abbreviate(String value) {
+		return value.length() <= 60 ? value : value.substring(0, 57) + "...";
+	}
+
+	private static void record(Histogram histogram, List<Double> millis, CtsResponse response) {
+		histogram.recordValue(Math.min(response.getLatencyNanos() / 1000, LatencyStats.HIGHEST_TRACKABLE_MICROS));
+		millis.add(response.getLatencyNanos() / 1e6);
+	}
+
+	private static double[] toArray(List<Double> values) {
+		double[] array = new double[values.size()];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = values.get(i);
+		}
+		return array;
+	}
+
+	private static void copy(InputStream in, ByteArrayOutputStream out) throws IOException {
+		byte[] buffer = new byte[16 * 1024];
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			out.write(buffer, 0, read);
+		}
+	}
+
+	public static void print(List<Result> results, PrintStream out) {
+		out.println(String.format("%-36s %9s %9s %8s %8s %7s %7s %7s %6s",
+				"endpoint", "base p50", "cand p50", "change", "p", "verdict", "errors", "cerrors", "diffs"));
+		for (Result result : results) {
+			out.println(String.format("%-36s %9.1f %9.1f %+7.1f%% %8.4f %7s %7d %7d %6d",
+					result.endpoint, LatencyStats.millis(result.baselineLatency, 50),
+					LatencyStats.millis(result.candidateLatency, 50), result.getChange() * 100, result.getPValue(),
+					result.getVerdict(), result.baselineErrors, result.candidateErrors, result.differences.size()));
+		}
+		for (Result result : results) {
+			if (!result.differences.isEmpty()) {
+				out.println();
+				out.println(result.endpoint + " differs:");
+				for (String difference : result.differences) {
+					out.println("  " + difference);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Diff mode of {@link LexevsRestTestRunner}: compares BASE_URL with
+	 * DIFF_CANDIDATE_URL on DIFF_ENDPOINTS (default the whole catalog) over
+	 * DIFF_ITERATIONS pairs of requests each.
+	 */
+	public static void run(LexevsConfig config, PrintStream out) throws InterruptedException {
+		List<CtsEndpoint> catalog = CtsEndpointCatalog.build(config);
+		List<CtsEndpoint> endpoints = new ArrayList<>();
+		for (String name : config.getList("DIFF_ENDPOINTS")) {
+			CtsEndpoint endpoint = CtsEndpointCatalog.named(catalog, name);
+			if (endpoint == null) {
+				throw new IllegalArgumentException("No endpoint " + name + " in the catalog");
+			}
+			endpoints.add(endpoint);
+		}
+		if (endpoints.isEmpty()) {
+			endpoints = catalog;
+		}
+		String candidateUrl = config.get("DIFF_CANDIDATE_URL", "https://localhost:8443");
+		int iterations = config.getInt("DIFF_ITERATIONS", 10);
+		double alpha = config.getDouble("DIFF_ALPHA", 0.01);
+		Set<String> ignored = new HashSet<>(config.getList("DIFF_IGNORE_FIELDS"));
+		DifferentialRunner runner = new DifferentialRunner(CtsHttpClient.fromConfig(config),
+				CtsHttpClient.forBaseUrl(config, candidateUrl), iterations, alpha, ignored,
+				config.getInt("DIFF_MAX_DIFFERENCES", 5));
+
+		out.println("Diff: " + endpoints.size() + " endpoints, " + iterations + " request pairs each, "
+				+ config.getBaseUrl() + " against " + candidateUrl);
+		List<Result> results = new ArrayList<>();
+		for (CtsEndpoint endpoint : endpoints) {
+			results.add(runner.compare(endpoint));
+		}
+		print(results, out);
+
+		int slower = 0;
+		int faster = 0;
+		int drifted = 0;
+		for (Result result : results) {
+			slower += "slower".equals(result.getVerdict()) ? 1 : 0;
+			faster += "faster".equals(result.getVerdict()) ? 1 : 0;
+			drifted += result.differences.isEmpty() ? 0 : 1;
+		}
+		out.println();
+		out.println(String.format("%d slower, %d faster, %d unchanged; %d with different responses (p < %s, ignoring %s)",
+				slower, faster, results.size() - slower - faster, drifted, alpha,
+				ignored.isEmpty() ? "no fields" : Arrays.toString(new TreeSet<>(ignored).toArray())));
+	}
+}
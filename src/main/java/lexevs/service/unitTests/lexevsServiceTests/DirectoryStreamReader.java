@@ -0,0 +1,99 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads a CTS2 directory response (EntityDirectory, AssociationDirectory,
+ * ...) token by token.  The fields of the directory itself are kept, but
+ * each entry is materialized on its own, handed to a handler and dropped,
+ * so memory does not grow with the size of the page.
+ */
+public class DirectoryStreamReader {
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	private final String directory;
+	private final ObjectNode header = MAPPER.createObjectNode();
+	private long entryCount;
+
+	/**
+	 * Receives the entries of a directory in order.
+	 */
+	public interface EntryHandler {
+		void entry(long index, JsonNode entry) throws IOException;
+	}
+
+	/**
+	 * @param directory the directory element of the body, e.g. "EntityDirectory",
+	 *                  or null for whichever object the body holds
+	 */
+	public DirectoryStreamReader(String directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Reads the body to the end, passing every entry to the handler.
+	 */
+	public DirectoryStreamReader read(InputStream body, EntryHandler handler) throws IOException {
+		boolean found = false;
+		try (JsonParser parser = MAPPER.getFactory().createParser(body)) {
+			expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				JsonToken value = parser.nextToken();
+				if (!found && (directory == null ? value == JsonToken.START_OBJECT : directory.equals(parser.getCurrentName()))) {
+					expect(parser, value, JsonToken.START_OBJECT);
+					readDirectory(parser, handler);
+					found = true;
+				} else {
+					parser.skipChildren();
+				}
+			}
+		}
+		if (!found) {
+			throw new IOException("No " + (directory == null ? "directory" : directory) + " in the response");
+		}
+		return this;
+	}
+
+	private void readDirectory(JsonParser parser, EntryHandler handler) throws IOException {
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String name = parser.getCurrentName();
+			JsonToken value = parser.nextToken();
+			if ("entry".equals(name) && value == JsonToken.START_ARRAY) {
+				while (parser.nextToken() != JsonToken.END_ARRAY) {
+					JsonNode entry = parser.readValueAsTree();
+					handler.entry(entryCount++, entry);
+				}
+			} else {
+				header.set(name, parser.readValueAsTree());
+			}
+		}
+	}
+
+	private static void expect(JsonParser parser, JsonToken actual, JsonToken expected) throws IOException {
+		if (actual != expected) {
+			throw new IOException("Expected " + expected + " but found " + actual + " at " + parser.getCurrentLocation());
+		}
+	}
+
+	/**
+	 * @return the fields of the directory other than its entries, e.g. complete and numEntries
+	 */
+	public ObjectNode getHeader() {
+		return header;
+	}
+
+	/**
+	 * @return the number of entries read
+	 */
+	public long getEntryCount() {
+		return entryCount;
+	}
+}
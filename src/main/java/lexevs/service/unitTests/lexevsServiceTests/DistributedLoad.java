@@ -0,0 +1,255 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import org.HdrHistogram.EncodableHistogram;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogReader;
+import org.HdrHistogram.HistogramLogWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The closed-loop load of {@link LoadGenerator} spread over several JVMs.
+ *
+ * Each worker runs its share of LOAD_CONCURRENCY and LOAD_RATE and writes
+ * its latencies as an HdrHistogram interval log, one histogram per endpoint
+ * family and interval, tagged with the family, next to a summary of its
+ * errors.  The coordinator starts the workers as local JVMs, or merges logs
+ * copied from workers run elsewhere, and reports the cluster-wide latency.
+ */
+public class DistributedLoad {
+
+	public static final String LOG_SUFFIX = ".hlog";
+	public static final String SUMMARY_SUFFIX = ".properties";
+
+	/**
+	 * Worker mode of {@link LexevsRestTestRunner}: runs worker <code>index</code>
+	 * of <code>count</code> and writes its log into DIST_OUTPUT_DIR.
+	 */
+	public static void runWorker(LexevsConfig config, int index, int count, PrintStream out) throws IOException, InterruptedException {
+		List<CtsEndpoint> endpoints = new ArrayList<>(CtsEndpointCatalog.build(config));
+		// every worker starts at another endpoint, so they do not move through the catalog in step
+		Collections.rotate(endpoints, -index * endpoints.size() / count);
+		int concurrency = share(config.getInt("LOAD_CONCURRENCY", 4), index, count);
+		double rate = config.getDouble("LOAD_RATE", 0) / count;
+		long seconds = config.getLong("LOAD_DURATION_SECONDS", 60);
+		long interval = config.getLong("DIST_LOG_INTERVAL_SECONDS", 5);
+		Path directory = Paths.get(config.get("DIST_OUTPUT_DIR", "target/dist"));
+		Files.createDirectories(directory);
+
+		out.println("Worker " + index + "/" + count + ": " + concurrency + " workers, " + (rate > 0 ? rate + " req/s" : "unthrottled")
+				+ ", " + seconds + " s against " + config.getBaseUrl());
+		LatencyStats stats = new LatencyStats();
+		LoadGenerator load = new LoadGenerator(CtsHttpClient.fromConfig(config), endpoints, concurrency, rate, TimeUnit.SECONDS.toNanos(seconds));
+		long start = System.nanoTime();
+		try (PrintStream log = new PrintStream(Files.newOutputStream(directory.resolve(worker(index) + LOG_SUFFIX)), false, "UTF-8")) {
+			HistogramLogWriter writer = new HistogramLogWriter(log);
+			writer.outputComment("worker " + index + " of " + count + " against " + config.getBaseUrl());
+			writer.outputLogFormatVersion();
+			writer.outputStartTime(System.currentTimeMillis());
+			writer.outputLegend();
+			ScheduledExecutorService logger = Executors.newSingleThreadScheduledExecutor();
+			logger.scheduleAtFixedRate(() -> writeIntervals(writer, stats), interval, interval, TimeUnit.SECONDS);
+			load.run(stats);
+			logger.shutdown();
+			logger.awaitTermination(1, TimeUnit.MINUTES);
+			writeIntervals(writer, stats);
+		}
+
+		Properties summary = new Properties();
+		summary.setProperty("elapsedNanos", Long.toString(System.nanoTime() - start));
+		for (String family : stats.keys()) {
+			summary.setProperty("errors." + family, Long.toString(stats.errors(family)));
+			summary.setProperty("bytes." + family, Long.toString(stats.bytes(family)));
+		}
+		try (OutputStream output = Files.newOutputStream(directory.resolve(worker(index) + SUMMARY_SUFFIX))) {
+			summary.store(output, "worker " + index + " of " + count);
+		}
+		stats.print(out, System.nanoTime() - start);
+	}
+
+	private static synchronized void writeIntervals(HistogramLogWriter writer, LatencyStats stats) {
+		for (String family : stats.keys()) {
+			Histogram interval = stats.interval(family);
+			if (interval.getTotalCount() > 0) {
+				interval.setTag(family);
+				writer.outputIntervalHistogram(interval);
+			}
+		}
+	}
+
+	/**
+	 * @return the part of the total that falls to worker <code>index</code> of <code>count</code>, at least 1
+	 */
+	static int share(int total, int index, int count) {
+		return Math.max(total / count + (index < total % count ? 1 : 0), 1);
+	}
+
+	static String worker(int index) {
+		return String.format("worker-%03d", index);
+	}
+
+	/**
+	 * Merged latencies and errors of every worker log in a directory
+	 */
+	public static class Merged {
+		private final Map<String, Histogram> latency = new TreeMap<>();
+		private final Map<String, Long> errors = new TreeMap<>();
+		private int workers;
+		private long elapsedNanos;
+
+		public Map<String, Histogram> getLatency() {
+			return latency;
+		}
+
+		public long getErrors(String family) {
+			return errors.getOrDefault(family, 0L);
+		}
+
+		public int getWorkers() {
+			return workers;
+		}
+
+		public void print(PrintStream out) {
+			out.println(LatencyStats.header("family"));
+			Histogram all = LatencyStats.newHistogram();
+			long allErrors = 0;
+			for (Map.Entry<String, Histogram> family : latency.entrySet()) {
+				out.println(LatencyStats.row(family.getKey(), family.getValue(), getErrors(family.getKey()), elapsedNanos));
+				all.add(family.getValue());
+				allErrors += getErrors(family.getKey());
+			}
+			out.println(LatencyStats.row("all", all, allErrors, elapsedNanos));
+		}
+	}
+
+	/**
+	 * Adds up the interval histograms of every log in the directory per tag.
+	 */
+	public static Merged merge(Path directory) throws IOException {
+		Merged merged = new Merged();
+		try (DirectoryStream<Path> logs = Files.newDirectoryStream(directory, "*" + LOG_SUFFIX)) {
+			for (Path log : logs) {
+				merged.workers++;
+				HistogramLogReader reader = new HistogramLogReader(log.toFile());
+				try {
+					EncodableHistogram interval;
+					while ((interval = reader.nextIntervalHistogram()) != null) {
+						merged.latency.computeIfAbsent(interval.getTag(), tag -> LatencyStats.newHistogram()).add((Histogram) interval);
+					}
+				} finally {
+					reader.close();
+				}
+
+				Path summaryFile = Paths.get(log.toString().replace(LOG_SUFFIX, SUMMARY_SUFFIX));
+				if (Files.exists(summaryFile)) {
+					Properties summary = new Properties();
+					try (InputStream input = Files.newInputStream(summaryFile)) {
+						summary.load(input);
+					}
+					merged.elapsedNanos = Math.max(merged.elapsedNanos, Long.parseLong(summary.getProperty("elapsedNanos", "0")));
+					for (String key : summary.stringPropertyNames()) {
+						if (key.startsWith("errors.")) {
+							merged.errors.merge(key.substring("errors.".length()), Long.parseLong(summary.getProperty(key)), Long::sum);
+						}
+					}
+				}
+			}
+		}
+		return merged;
+	}
+
+	/**
+	 * Coordinator mode of {@link LexevsRestTestRunner}: starts DIST_WORKERS
+	 * local worker JVMs and merges their logs, or with DIST_SPAWN=false only
+	 * merges the logs already in DIST_OUTPUT_DIR.
+	 *
+	 * @throws IOException if a worker exits with an error
+	 */
+	public static void runCoordinator(LexevsConfig config, PrintStream out) throws IOException, InterruptedException {
+		Path directory = Paths.get(config.get("DIST_OUTPUT_DIR", "target/dist")).toAbsolutePath();
+		if (Boolean.parseBoolean(config.get("DIST_SPAWN", "true"))) {
+			int count = config.getInt("DIST_WORKERS", 4);
+			Files.createDirectories(directory);
+			try (DirectoryStream<Path> old = Files.newDirectoryStream(directory, "worker-*")) {
+				for (Path file : old) {
+					Files.delete(file);
+				}
+			}
+			out.println("Coordinator: " + count + " worker JVMs, logs in " + directory);
+			List<Process> workers = new ArrayList<>();
+			for (int i = 0; i < count; i++) {
+				workers.add(workerCommand(config, directory, i, count).inheritIO().start());
+			}
+			List<String> failed = new ArrayList<>();
+			for (int i = 0; i < count; i++) {
+				int status = workers.get(i).waitFor();
+				if (status != 0) {
+					failed.add("worker " + i + " exited with " + status);
+				}
+			}
+			if (!failed.isEmpty()) {
+				throw new IOException(String.join(", ", failed) + ", logs in " + directory);
+			}
+		}
+		Merged merged = merge(directory);
+		out.println();
+		out.println("Cluster-wide, " + merged.getWorkers() + " workers");
+		merged.print(out);
+	}
+
+	static ProcessBuilder workerCommand(LexevsConfig config, Path directory, int index, int count) {
+		List<String> command = new ArrayList<>();
+		command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+		command.add("-cp");
+		command.add(classpath());
+		Properties settings = config.forChildJvm();
+		for (String key : settings.stringPropertyNames()) {
+			command.add("-D" + key + "=" + settings.getProperty(key));
+		}
+		command.add("-DDIST_OUTPUT_DIR=" + directory);
+		command.add(LexevsRestTestRunner.class.getName());
+		command.add("worker");
+		command.add(Integer.toString(index));
+		command.add(Integer.toString(count));
+		return new ProcessBuilder(command);
+	}
+
+	/**
+	 * @return the classpath this class was loaded from; under exec:java that
+	 *         is the project's class loader, not java.class.path
+	 */
+	static String classpath() {
+		ClassLoader loader = DistributedLoad.class.getClassLoader();
+		if (loader instanceof URLClassLoader) {
+			List<String> entries = new ArrayList<>();
+			for (URL url : ((URLClassLoader) loader).getURLs()) {
+				try {
+					entries.add(new File(url.toURI()).getPath());
+				} catch (Exception e) {
+					entries.add(url.getPath());
+				}
+			}
+			return String.join(File.pathSeparator, entries);
+		}
+		return System.getProperty("java.class.path");
+	}
+}
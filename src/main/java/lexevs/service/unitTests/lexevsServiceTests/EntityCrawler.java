@@ -0,0 +1,188 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exports every entity of a code system version by following the
+ * <code>next</code> links of its EntityDirectory pages.  Entries are
+ * streamed to a newline-delimited JSON file as they are parsed, and the
+ * latency of each page is reported so slowdowns deep in the result set
+ * show up.
+ */
+public class EntityCrawler {
+
+	private final CtsHttpClient client;
+	private final int pageSize;
+	private final int maxPages;
+	private final PrintStream out;
+
+	/**
+	 * Totals of one crawl
+	 */
+	public static class Result {
+		private final String codeSystem;
+		private final Histogram pageLatency = LatencyStats.newHistogram();
+		private final List<Long> pageMicros = new ArrayList<>();
+		private long entities;
+		private long bytes;
+		private long elapsedNanos;
+
+		Result(String codeSystem) {
+			this.codeSystem = codeSystem;
+		}
+
+		public String getCodeSystem() {
+			return codeSystem;
+		}
+
+		public int getPages() {
+			return pageMicros.size();
+		}
+
+		public long getEntities() {
+			return entities;
+		}
+
+		public long getBytes() {
+			return bytes;
+		}
+
+		public long getElapsedNanos() {
+			return elapsedNanos;
+		}
+
+		/**
+		 * @return page latencies in microseconds
+		 */
+		public Histogram getPageLatency() {
+			return pageLatency;
+		}
+
+		/**
+		 * @return median latency of the last tenth of the pages over that of the first tenth
+		 */
+		public double getSlowdown() {
+			int tenth = Math.max(pageMicros.size() / 10, 1);
+			if (pageMicros.size() < 2) {
+				return 1;
+			}
+			double first = median(pageMicros.subList(0, tenth));
+			return first > 0 ? median(pageMicros.subList(pageMicros.size() - tenth, pageMicros.size())) / first : 1;
+		}
+
+		private static double median(List<Long> values) {
+			Long[] sorted = values.toArray(new Long[0]);
+			Arrays.sort(sorted);
+			return sorted[sorted.length / 2];
+		}
+	}
+
+	/**
+	 * @param maxPages pages to crawl at most, 0 for all of them
+	 */
+	public EntityCrawler(CtsHttpClient client, int pageSize, int maxPages, PrintStream out) {
+		this.client = client;
+		this.pageSize = pageSize;
+		this.maxPages = maxPages;
+		this.out = out;
+	}
+
+	/**
+	 * Crawls the entities of a code system version into a newline-delimited JSON file.
+	 */
+	public Result crawl(String codeSystem, String version, Path output) throws IOException {
+		Result result = new Result(codeSystem);
+		String request = "codesystem/" + codeSystem + "/version/" + version + "/entities?maxtoreturn=" + pageSize + "&format=json";
+		long start = System.nanoTime();
+		try (Writer writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+			while (request != null && (maxPages <= 0 || result.getPages() < maxPages)) {
+				DirectoryStreamReader page = new DirectoryStreamReader("EntityDirectory");
+				CtsResponse response = client.get(request, body -> page.read(body, (index, entry) -> {
+					writer.write(entry.toString());
+					writer.write('\n');
+				}));
+				if (!response.isSuccess()) {
+					throw new IOException(response.getUrl() + " returned " + response.getStatus());
+				}
+				long micros = TimeUnit.NANOSECONDS.toMicros(response.getLatencyNanos());
+				result.pageLatency.recordValue(Math.min(micros, LatencyStats.HIGHEST_TRACKABLE_MICROS));
+				result.pageMicros.add(micros);
+				result.entities += page.getEntryCount();
+				result.bytes += response.getBytes();
+				out.println(String.format("%-20s page %6d %7d entities %11d bytes  first byte %9.1f ms  total %9.1f ms",
+						codeSystem, result.getPages(), page.getEntryCount(), response.getBytes(),
+						response.getTtfbNanos() / 1e6, response.getLatencyNanos() / 1e6));
+
+				request = page.getEntryCount() > 0 ? client.nextPage(page.getHeader()) : null;
+			}
+		}
+		result.elapsedNanos = System.nanoTime() - start;
+		return result;
+	}
+
+	/**
+	 * Crawl mode of {@link LexevsRestTestRunner}: crawls CRAWL_CODE_SYSTEMS in
+	 * pages of CRAWL_PAGE_SIZE, at most CRAWL_MAX_PAGES each, into CRAWL_OUTPUT_DIR.
+	 */
+	public static void run(LexevsConfig config, PrintStream out) throws IOException {
+		List<String> codeSystems = config.getList("CRAWL_CODE_SYSTEMS");
+		if (codeSystems.isEmpty()) {
+			codeSystems = Arrays.asList(LexevsConfig.THESAURUS, LexevsConfig.CHEBI, LexevsConfig.MEDDRA, LexevsConfig.METATHESAURUS);
+		}
+		Path outputDir = Paths.get(config.get("CRAWL_OUTPUT_DIR", "target/crawl"));
+		Files.createDirectories(outputDir);
+		EntityCrawler crawler = new EntityCrawler(CtsHttpClient.fromConfig(config),
+				config.getInt("CRAWL_PAGE_SIZE", 1000), config.getInt("CRAWL_MAX_PAGES", 0), out);
+
+		List<Result> results = new ArrayList<>();
+		for (String codeSystem : codeSystems) {
+			String version = version(config, codeSystem);
+			Path output = outputDir.resolve((codeSystem + "-" + version).replaceAll("[^A-Za-z0-9._-]", "_") + ".ndjson");
+			out.println("Crawl: " + codeSystem + " " + version + " from " + config.getBaseUrl() + " into " + output);
+			results.add(crawler.crawl(codeSystem, version, output));
+		}
+
+		out.println();
+		out.println(LatencyStats.header("pages"));
+		for (Result result : results) {
+			out.println(LatencyStats.row(result.getCodeSystem(), result.getPageLatency(), 0, result.getElapsedNanos()));
+		}
+		out.println();
+		out.println(String.format("%-40s %12s %12s %10s %10s %9s", "export", "entities", "entities/s", "MB", "MB/s", "slowdown"));
+		for (Result result : results) {
+			double seconds = result.getElapsedNanos() / 1e9;
+			out.println(String.format("%-40s %12d %12.1f %10.1f %10.2f %8.2fx", result.getCodeSystem(), result.getEntities(),
+					result.getEntities() / seconds, result.getBytes() / 1e6, result.getBytes() / 1e6 / seconds, result.getSlowdown()));
+		}
+	}
+
+	/**
+	 * @return the version number of the code system in config.properties
+	 */
+	static String version(LexevsConfig config, String codeSystem) {
+		switch (codeSystem) {
+			case LexevsConfig.THESAURUS:
+				return config.getThesaurusVersionNumber();
+			case LexevsConfig.CHEBI:
+				return config.getChebiVersionNumber();
+			case LexevsConfig.MEDDRA:
+				return config.getMeddraVersionNumber();
+			case LexevsConfig.METATHESAURUS:
+				return config.getMetathesaurusVersionNumber();
+			default:
+				throw new IllegalArgumentException("No version configured for code system " + codeSystem);
+		}
+	}
+}
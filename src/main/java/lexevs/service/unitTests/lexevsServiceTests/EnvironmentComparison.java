@@ -0,0 +1,231 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Sends the request catalog to several deployments of the service at once,
+ * e.g. QA, stage, production and a local instance, and compares latency and
+ * payload size per endpoint.  Each environment walks the catalog on its own
+ * thread, so every deployment sees the same serial client at the same time
+ * of day, and a slowness of one environment stands out against the others.
+ */
+public class EnvironmentComparison {
+
+	public static final String PREFIX = "ENVIRONMENT.";
+
+	private final Map<String, CtsHttpClient> environments;
+	private final List<CtsEndpoint> endpoints;
+	private final int iterations;
+
+	/**
+	 * Requests of one endpoint to one environment
+	 */
+	public static class Cell {
+		private final Histogram latency = LatencyStats.newHistogram();
+		private long errors;
+		private long bytes;
+
+		/**
+		 * @return latencies of the successful requests, in microseconds
+		 */
+		public Histogram getLatency() {
+			return latency;
+		}
+
+		public long getErrors() {
+			return errors;
+		}
+
+		/**
+		 * @return mean size of the successful responses
+		 */
+		public long getMeanBytes() {
+			return latency.getTotalCount() > 0 ? bytes / latency.getTotalCount() : 0;
+		}
+
+		void record(CtsResponse response) {
+			latency.recordValue(Math.min(response.getLatencyNanos() / 1000, LatencyStats.HIGHEST_TRACKABLE_MICROS));
+			bytes += response.getBytes();
+		}
+	}
+
+	/**
+	 * Cells of every endpoint and environment
+	 */
+	public static class Result {
+		private final Map<String, Map<String, Cell>> cells = new LinkedHashMap<>();
+		private final List<String> environments;
+
+		Result(List<CtsEndpoint> endpoints, List<String> environments) {
+			this.environments = environments;
+			for (CtsEndpoint endpoint : endpoints) {
+				Map<String, Cell> row = new LinkedHashMap<>();
+				for (String environment : environments) {
+					row.put(environment, new Cell());
+				}
+				cells.put(endpoint.getName(), row);
+			}
+		}
+
+		public List<String> getEndpoints() {
+			return new ArrayList<>(cells.keySet());
+		}
+
+		public List<String> getEnvironments() {
+			return environments;
+		}
+
+		public Cell cell(String endpoint, String environment) {
+			return cells.get(endpoint).get(environment);
+		}
+	}
+
+	/**
+	 * @param environments clients by environment name, in report order
+	 */
+	public EnvironmentComparison(Map<String, CtsHttpClient> environments, List<CtsEndpoint> endpoints, int iterations) {
+		this.environments = environments;
+		this.endpoints = endpoints;
+		this.iterations = Math.max(iterations, 1);
+	}
+
+	/**
+	 * Sends every endpoint to every environment, one thread per environment.
+	 */
+	public Result compare() throws InterruptedException {
+		Result result = new Result(endpoints, new ArrayList<>(environments.keySet()));
+		ExecutorService pool = Executors.newFixedThreadPool(Math.max(environments.size(), 1));
+		List<Future<?>> walks = new ArrayList<>();
+		try {
+			for (Map.Entry<String, CtsHttpClient> environment : environments.entrySet()) {
+				walks.add(pool.submit(() -> walk(environment.getKey(), environment.getValue(), result)));
+			}
+			for (Future<?> walk : walks) {
+				walk.get();
+			}
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+		return result;
+	}
+
+	private void walk(String environment, CtsHttpClient client, Result result) {
+		for (CtsEndpoint endpoint : endpoints) {
+			// each cell is written by its environment's thread only, and read once every walk is over
+			Cell cell = result.cell(endpoint.getName(), environment);
+			for (int i = 0; i < iterations; i++) {
+				try {
+					CtsResponse response = client.get(endpoint.getPath());
+					if (response.isSuccess()) {
+						cell.record(response);
+					} else {
+						cell.errors++;
+					}
+				} catch (IOException e) {
+					cell.errors++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Prints one table per endpoint.  An environment whose median is at least
+	 * flagRatio times the fastest one's is marked.
+	 */
+	public static void print(Result result, double flagRatio, PrintStream out) {
+		for (String endpoint : result.getEndpoints()) {
+			double fastest = Double.MAX_VALUE;
+			for (String environment : result.environments) {
+				Histogram latency = result.cell(endpoint, environment).latency;
+				if (latency.getTotalCount() > 0) {
+					fastest = Math.min(fastest, LatencyStats.millis(latency, 50));
+				}
+			}
+			out.println(endpoint);
+			out.println(String.format("  %-16s %7s %7s %9s %9s %10s %8s", "environment", "count", "errors", "p50 ms", "p99 ms", "mean KB", "vs best"));
+			for (String environment : result.environments) {
+				Cell cell = result.cell(endpoint, environment);
+				double p50 = LatencyStats.millis(cell.latency, 50);
+				double ratio = cell.latency.getTotalCount() > 0 && fastest > 0 ? p50 / fastest : 0;
+				out.println(String.format("  %-16s %7d %7d %9.1f %9.1f %10.1f %7.2fx%s", environment, cell.latency.getTotalCount(),
+						cell.errors, p50, LatencyStats.millis(cell.latency, 99), cell.getMeanBytes() / 1024.0, ratio,
+						ratio >= flagRatio ? "  <-- slow" : cell.errors > 0 && cell.latency.getTotalCount() == 0 ? "  <-- failing" : ""));
+			}
+			out.println();
+		}
+	}
+
+	/**
+	 * @return the base URL of each ENVIRONMENT.&lt;name&gt;, in the order of
+	 *         FANOUT_ENVIRONMENTS, or by name when that is empty
+	 */
+	public static Map<String, String> environments(LexevsConfig config) {
+		List<String> names = config.getList("FANOUT_ENVIRONMENTS");
+		if (names.isEmpty()) {
+			for (String key : config.keysWithPrefix(PREFIX)) {
+				names.add(key.substring(PREFIX.length()));
+			}
+			Collections.sort(names);
+		}
+		Map<String, String> urls = new LinkedHashMap<>();
+		for (String name : names) {
+			String url = config.get(PREFIX + name);
+			if (url == null || url.trim().isEmpty()) {
+				throw new IllegalArgumentException("No " + PREFIX + name + " in " + LexevsConfig.FILE);
+			}
+			urls.put(name, url.trim());
+		}
+		return urls;
+	}
+
+	/**
+	 * Fan-out mode of {@link LexevsRestTestRunner}: sends FANOUT_ENDPOINTS
+	 * (default the whole catalog) FANOUT_ITERATIONS times each to every
+	 * environment, and marks those FANOUT_FLAG_RATIO times slower than the
+	 * fastest.
+	 */
+	public static void run(LexevsConfig config, PrintStream out) throws InterruptedException {
+		List<CtsEndpoint> catalog = CtsEndpointCatalog.build(config);
+		List<CtsEndpoint> endpoints = new ArrayList<>();
+		for (String name : config.getList("FANOUT_ENDPOINTS")) {
+			CtsEndpoint endpoint = CtsEndpointCatalog.named(catalog, name);
+			if (endpoint == null) {
+				throw new IllegalArgumentException("No endpoint " + name + " in the catalog");
+			}
+			endpoints.add(endpoint);
+		}
+		if (endpoints.isEmpty()) {
+			endpoints = catalog;
+		}
+		Map<String, String> urls = environments(config);
+		if (urls.isEmpty()) {
+			throw new IllegalArgumentException("No " + PREFIX + "<name> environments in " + LexevsConfig.FILE);
+		}
+		Map<String, CtsHttpClient> clients = new LinkedHashMap<>();
+		for (Map.Entry<String, String> url : urls.entrySet()) {
+			clients.put(url.getKey(), CtsHttpClient.forBaseUrl(config, url.getValue()));
+		}
+		int iterations = config.getInt("FANOUT_ITERATIONS", 10);
+
+		out.println("Fan-out: " + endpoints.size() + " endpoints, " + iterations + " requests each, against " + urls);
+		out.println();
+		long start = System.nanoTime();
+		Result result = new EnvironmentComparison(clients, endpoints, iterations).compare();
+		print(result, config.getDouble("FANOUT_FLAG_RATIO", 2.0), out);
+		out.println(String.format("%d environments in %.1f s", urls.size(), (System.nanoTime() - start) / 1e9));
+	}
+}
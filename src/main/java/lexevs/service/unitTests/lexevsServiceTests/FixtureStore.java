@@ -0,0 +1,209 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Directory of recorded CTS2 responses, looked up by request path and query.
+ *
+ * The directory holds an index.tsv file with one line per fixture:
+ * <pre>
+ *   file&lt;TAB&gt;key
+ *   file&lt;TAB&gt;status&lt;TAB&gt;key
+ * </pre>
+ * where key is the request path below the service base path followed by its
+ * query string, e.g. <code>/service?format=json</code>, and status defaults to
+ * 200.  Lines starting with '#' are comments; a later line for the same key
+ * replaces an earlier one.
+ *
+ * Recorded responses are stored gzip compressed under the SHA-256 of their
+ * content, so identical bodies share one file.
+ */
+public class FixtureStore {
+
+	public static final String INDEX_FILE = "index.tsv";
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private final Path directory;
+	private final Map<String, Entry> index = new ConcurrentHashMap<>();
+
+	/**
+	 * A recorded response: the file holding its body and its HTTP status.
+	 */
+	public static class Entry {
+		private final Path file;
+		private final int status;
+
+		Entry(Path file, int status) {
+			this.file = file;
+			this.status = status;
+		}
+
+		public Path getFile() {
+			return file;
+		}
+
+		public int getStatus() {
+			return status;
+		}
+
+		public boolean isCompressed() {
+			return file.getFileName().toString().endsWith(".gz");
+		}
+	}
+
+	public FixtureStore(Path directory) throws IOException {
+		this.directory = directory;
+		Path indexFile = directory.resolve(INDEX_FILE);
+		if (Files.exists(indexFile)) {
+			try (BufferedReader reader = Files.newBufferedReader(indexFile, StandardCharsets.UTF_8)) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					if (line.trim().isEmpty() || line.startsWith("#")) {
+						continue;
+					}
+					String[] fields = line.split("\t", 3);
+					if (fields.length == 2) {
+						index.put(key(fields[1]), new Entry(directory.resolve(fields[0]), 200));
+					} else if (fields.length == 3) {
+						index.put(key(fields[2]), new Entry(directory.resolve(fields[0]), Integer.parseInt(fields[1])));
+					} else {
+						throw new IOException("Malformed line in " + indexFile + ": " + line);
+					}
+				}
+			}
+		}
+	}
+
+	public Path getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * @return the response recorded for the request, or null if there is none
+	 */
+	public Entry find(String pathAndQuery) {
+		return index.get(key(pathAndQuery));
+	}
+
+	public int size() {
+		return index.size();
+	}
+
+	/**
+	 * Records a response body while copying it to <code>out</code>, so a
+	 * caller can pass the body on to its client without holding it in memory.
+	 *
+	 * @param extension file extension for the body type, e.g. ".json"
+	 */
+	public Entry record(String pathAndQuery, int status, String extension, InputStream body, OutputStream out) throws IOException {
+		Files.createDirectories(directory);
+		Path temp = Files.createTempFile(directory, "recording", ".tmp");
+		MessageDigest digest = sha256();
+		try {
+			try (OutputStream file = new DigestOutputStream(new GZIPOutputStream(Files.newOutputStream(temp)), digest)) {
+				byte[] buffer = new byte[64 * 1024];
+				int read;
+				while ((read = body.read(buffer)) != -1) {
+					file.write(buffer, 0, read);
+					out.write(buffer, 0, read);
+				}
+			}
+			String name = hex(digest.digest()) + extension + ".gz";
+			Path target = directory.resolve(name);
+			if (Files.exists(target)) {
+				Files.delete(temp);
+			} else {
+				Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+			}
+
+			Entry entry = new Entry(target, status);
+			appendToIndex(name + "\t" + status + "\t" + key(pathAndQuery));
+			index.put(key(pathAndQuery), entry);
+			return entry;
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	private synchronized void appendToIndex(String line) throws IOException {
+		try (BufferedWriter writer = Files.newBufferedWriter(directory.resolve(INDEX_FILE), StandardCharsets.UTF_8,
+				StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+			writer.write(line);
+			writer.newLine();
+		}
+	}
+
+	/**
+	 * Normalizes a request into its index key: the query parameters are
+	 * decoded and sorted so that the same request always maps to the same
+	 * fixture regardless of how the client encoded or ordered it.
+	 */
+	public static String key(String pathAndQuery) {
+		int q = pathAndQuery.indexOf('?');
+		String path = q < 0 ? pathAndQuery : pathAndQuery.substring(0, q);
+		String query = q < 0 ? "" : pathAndQuery.substring(q + 1);
+
+		path = decode(path.replace("+", "%2B"));
+		if (!path.startsWith("/")) {
+			path = "/" + path;
+		}
+		if (query.isEmpty()) {
+			return path;
+		}
+
+		List<String> params = new ArrayList<>();
+		for (String param : query.split("&")) {
+			if (!param.isEmpty()) {
+				params.add(decode(param));
+			}
+		}
+		Collections.sort(params);
+		return path + "?" + String.join("&", params);
+	}
+
+	private static String decode(String value) {
+		try {
+			return URLDecoder.decode(value, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String hex(byte[] bytes) {
+		char[] chars = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			chars[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+			chars[i * 2 + 1] = HEX[bytes[i] & 0xf];
+		}
+		return new String(chars);
+	}
+}
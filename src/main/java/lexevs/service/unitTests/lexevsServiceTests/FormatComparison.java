@@ -0,0 +1,258 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Requests the same resources as JSON and as XML and compares, per
+ * format, the payload size, the latency of the service and the time and
+ * memory the client spends parsing the body into a tree (Jackson for JSON,
+ * DOM for XML).
+ */
+public class FormatComparison {
+
+	public static final List<String> FORMATS = Arrays.asList("json", "xml");
+	public static final List<String> DEFAULT_ENDPOINTS = Arrays.asList("service", "codeSystemVersion", "entities_read",
+			"associations_children", "associations_subjectof", "valuesets_resolve", "map_version_map_entities");
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	private final CtsHttpClient client;
+	private final int iterations;
+	private final DocumentBuilderFactory documentBuilders = DocumentBuilderFactory.newInstance();
+
+	/**
+	 * Measurements of one endpoint in one format
+	 */
+	public static class Result {
+		private final String endpoint;
+		private final String format;
+		private final Histogram latency = LatencyStats.newHistogram();
+		private final Histogram ttfb = LatencyStats.newHistogram();
+		private final Histogram parse = LatencyStats.newHistogram();
+		private long bytes;
+		private long allocated = -1;
+		private long errors;
+
+		Result(String endpoint, String format) {
+			this.endpoint = endpoint;
+			this.format = format;
+		}
+
+		public String getEndpoint() {
+			return endpoint;
+		}
+
+		public String getFormat() {
+			return format;
+		}
+
+		/**
+		 * @return response latencies in microseconds
+		 */
+		public Histogram getLatency() {
+			return latency;
+		}
+
+		/**
+		 * @return first byte latencies in microseconds
+		 */
+		public Histogram getTtfb() {
+			return ttfb;
+		}
+
+		/**
+		 * @return parse times in microseconds
+		 */
+		public Histogram getParse() {
+			return parse;
+		}
+
+		/**
+		 * @return mean bytes of a response
+		 */
+		public long getBytes() {
+			long count = latency.getTotalCount();
+			return count > 0 ? bytes / count : 0;
+		}
+
+		/**
+		 * @return mean bytes allocated to parse a response, -1 if the JVM cannot tell
+		 */
+		public long getAllocated() {
+			long count = parse.getTotalCount();
+			return allocated < 0 || count == 0 ? -1 : allocated / count;
+		}
+
+		public long getErrors() {
+			return errors;
+		}
+	}
+
+	public FormatComparison(CtsHttpClient client, int iterations) {
+		this.client = client;
+		this.iterations = Math.max(iterations, 1);
+		documentBuilders.setNamespaceAware(true);
+	}
+
+	/**
+	 * Measures the endpoint in both formats, alternating between them on every
+	 * iteration.  A request that fails, is not a 2xx or whose body does not
+	 * parse counts as an error of its format and is not timed.
+	 *
+	 * @return the results of the endpoint, in the order of {@link #FORMATS}
+	 */
+	public List<Result> compare(CtsEndpoint endpoint) {
+		List<Result> results = new ArrayList<>();
+		for (String format : FORMATS) {
+			results.add(new Result(endpoint.getName(), format));
+			// untimed, so neither format pays for a cold cache
+			try {
+				client.get(withFormat(endpoint.getPath(), format));
+			} catch (IOException e) {
+				// the timed requests count it
+			}
+		}
+		for (int i = 0; i < iterations; i++) {
+			for (Result result : results) {
+				ByteArrayOutputStream body = new ByteArrayOutputStream();
+				try {
+					CtsResponse response = client.get(withFormat(endpoint.getPath(), result.format), in -> copy(in, body));
+					if (!response.isSuccess()) {
+						result.errors++;
+						continue;
+					}
+					parse(result, body.toByteArray());
+					result.latency.recordValue(micros(response.getLatencyNanos()));
+					result.ttfb.recordValue(micros(response.getTtfbNanos()));
+					result.bytes += response.getBytes();
+				} catch (IOException e) {
+					result.errors++;
+				}
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Parses the body into a tree, timing it and the memory it takes.
+	 *
+	 * @throws IOException if the body is not well-formed in its format
+	 */
+	private void parse(Result result, byte[] body) throws IOException {
+		long allocatedBefore = allocatedBytes();
+		long start = System.nanoTime();
+		try {
+			if ("json".equals(result.format)) {
+				MAPPER.readTree(body);
+			} else {
+				documentBuilders.newDocumentBuilder().parse(new ByteArrayInputStream(body));
+			}
+		} catch (ParserConfigurationException | SAXException e) {
+			throw new IOException("Unable to parse the " + result.format + " of " + result.endpoint, e);
+		}
+		result.parse.recordValue(micros(System.nanoTime() - start));
+		long allocatedAfter = allocatedBytes();
+		if (allocatedBefore >= 0 && allocatedAfter >= 0) {
+			result.allocated = Math.max(result.allocated, 0) + allocatedAfter - allocatedBefore;
+		}
+	}
+
+	/**
+	 * @return bytes allocated by this thread so far, -1 if the JVM does not track it
+	 */
+	static long allocatedBytes() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) threads;
+			if (hotspot.isThreadAllocatedMemorySupported() && hotspot.isThreadAllocatedMemoryEnabled()) {
+				return hotspot.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the request with format=json replaced by the given format
+	 */
+	static String withFormat(String pathAndQuery, String format) {
+		return pathAndQuery.replaceAll("([?&])format=[^&]*", "$1format=" + format);
+	}
+
+	private static void copy(InputStream in, ByteArrayOutputStream out) throws IOException {
+		byte[] buffer = new byte[16 * 1024];
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			out.write(buffer, 0, read);
+		}
+	}
+
+	private static long micros(long nanos) {
+		return Math.min(nanos / 1000, LatencyStats.HIGHEST_TRACKABLE_MICROS);
+	}
+
+	public static void print(List<Result> results, PrintStream out) {
+		out.println(String.format("%-28s %-6s %7s %10s %9s %9s %9s %9s %11s",
+				"endpoint", "format", "errors", "bytes", "ttfb ms", "p50 ms", "p90 ms", "parse ms", "parse KB"));
+		for (Result result : results) {
+			out.println(String.format("%-28s %-6s %7d %10d %9.1f %9.1f %9.1f %9.2f %11s",
+					result.endpoint, result.format, result.errors, result.getBytes(),
+					LatencyStats.millis(result.ttfb, 50), LatencyStats.millis(result.latency, 50),
+					LatencyStats.millis(result.latency, 90), LatencyStats.millis(result.parse, 50),
+					result.getAllocated() < 0 ? "n/a" : Long.toString(result.getAllocated() / 1024)));
+		}
+	}
+
+	/**
+	 * Formats mode of {@link LexevsRestTestRunner}: compares FORMATS_ENDPOINTS,
+	 * named as in {@link CtsEndpointCatalog}, over FORMATS_ITERATIONS requests per format.
+	 */
+	public static void run(LexevsConfig config, PrintStream out) throws IOException {
+		List<CtsEndpoint> catalog = CtsEndpointCatalog.build(config);
+		List<String> names = config.getList("FORMATS_ENDPOINTS");
+		if (names.isEmpty()) {
+			names = DEFAULT_ENDPOINTS;
+		}
+		int iterations = config.getInt("FORMATS_ITERATIONS", 10);
+		FormatComparison comparison = new FormatComparison(CtsHttpClient.fromConfig(config), iterations);
+
+		out.println("Formats: " + FORMATS + ", " + iterations + " requests each, against " + config.getBaseUrl());
+		List<Result> results = new ArrayList<>();
+		for (String name : names) {
+			CtsEndpoint endpoint = CtsEndpointCatalog.named(catalog, name);
+			if (endpoint == null) {
+				throw new IllegalArgumentException("No endpoint " + name + " in the catalog");
+			}
+			results.addAll(comparison.compare(endpoint));
+		}
+		print(results, out);
+
+		// totals of the medians, XML relative to JSON
+		double[] bytes = new double[2];
+		double[] latency = new double[2];
+		double[] parse = new double[2];
+		for (Result result : results) {
+			int f = FORMATS.indexOf(result.format);
+			bytes[f] += result.getBytes();
+			latency[f] += LatencyStats.millis(result.latency, 50);
+			parse[f] += LatencyStats.millis(result.parse, 50);
+		}
+		out.println();
+		out.println(String.format("xml/json: payload %.2fx, latency %.2fx, parse %.2fx",
+				bytes[1] / bytes[0], latency[1] / latency[0], parse[1] / parse[0]));
+	}
+}
@@ -0,0 +1,318 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Walks a terminology graph from a root, as a tree browser expanding every
+ * node would.  Each node's <code>children</code>, <code>subjectof</code> or
+ * <code>targetof</code> directory is requested, up to a depth.  Requests
+ * fan out over a bounded number of threads, and a concurrent visited set
+ * keeps a node reached along two paths from being expanded twice.  Only
+ * the first page of each directory is read, as the browser shows it.
+ */
+public class HierarchyTraversal {
+
+	public static final String CHILDREN = "children";
+	public static final String SUBJECTOF = "subjectof";
+	public static final String TARGETOF = "targetof";
+
+	private final CtsHttpClient client;
+	private final String codeSystem;
+	private final String version;
+	private final String relation;
+	private final int maxDepth;
+	private final int concurrency;
+	private final long maxNodes;
+	private final int pageSize;
+
+	/**
+	 * Requests made at one depth of the walk
+	 */
+	public static class Level {
+		private final int depth;
+		private final Histogram latency = LatencyStats.newHistogram();
+		private final LongAdder discovered = new LongAdder();
+		private final LongAdder errors = new LongAdder();
+
+		Level(int depth) {
+			this.depth = depth;
+		}
+
+		public int getDepth() {
+			return depth;
+		}
+
+		/**
+		 * @return latencies of the nodes expanded at this depth, in microseconds
+		 */
+		public synchronized Histogram getLatency() {
+			return latency.copy();
+		}
+
+		/**
+		 * @return new nodes found one level below
+		 */
+		public long getDiscovered() {
+			return discovered.sum();
+		}
+
+		public long getErrors() {
+			return errors.sum();
+		}
+
+		synchronized void record(long nanos) {
+			latency.recordValue(Math.min(nanos / 1000, LatencyStats.HIGHEST_TRACKABLE_MICROS));
+		}
+	}
+
+	/**
+	 * Outcome of one walk
+	 */
+	public static class Result {
+		private final String root;
+		private final List<Level> levels = new ArrayList<>();
+		private final Set<String> visited = ConcurrentHashMap.newKeySet();
+		private final AtomicLong bytes = new AtomicLong();
+		private long elapsedNanos;
+		private volatile boolean truncated;
+
+		Result(String root, int maxDepth) {
+			this.root = root;
+			for (int depth = 0; depth < maxDepth; depth++) {
+				levels.add(new Level(depth));
+			}
+		}
+
+		public String getRoot() {
+			return root;
+		}
+
+		public List<Level> getLevels() {
+			return levels;
+		}
+
+		/**
+		 * @return every node reached, the root included
+		 */
+		public Set<String> getVisited() {
+			return Collections.unmodifiableSet(visited);
+		}
+
+		public long getRequests() {
+			long requests = 0;
+			for (Level level : levels) {
+				requests += level.getLatency().getTotalCount() + level.getErrors();
+			}
+			return requests;
+		}
+
+		public long getBytes() {
+			return bytes.get();
+		}
+
+		public long getElapsedNanos() {
+			return elapsedNanos;
+		}
+
+		public double getNodesPerSecond() {
+			return elapsedNanos > 0 ? visited.size() / (elapsedNanos / 1e9) : 0;
+		}
+
+		/**
+		 * @return whether the walk stopped at the node limit before reaching its depth
+		 */
+		public boolean isTruncated() {
+			return truncated;
+		}
+	}
+
+	/**
+	 * @param relation  one of {@link #CHILDREN}, {@link #SUBJECTOF} and {@link #TARGETOF}
+	 * @param maxDepth  levels to expand below the root
+	 * @param maxNodes  nodes to visit at most, 0 for no limit
+	 */
+	public HierarchyTraversal(CtsHttpClient client, String codeSystem, String version, String relation, int maxDepth,
+			int concurrency, long maxNodes, int pageSize) {
+		if (!CHILDREN.equals(relation) && !SUBJECTOF.equals(relation) && !TARGETOF.equals(relation)) {
+			throw new IllegalArgumentException("Unknown relation " + relation);
+		}
+		this.client = client;
+		this.codeSystem = codeSystem;
+		this.version = version;
+		this.relation = relation;
+		this.maxDepth = maxDepth;
+		this.concurrency = Math.max(concurrency, 1);
+		this.maxNodes = maxNodes;
+		this.pageSize = pageSize;
+	}
+
+	/**
+	 * Walks the graph below the root, e.g. "ncit:C1648".
+	 */
+	public Result traverse(String root) throws InterruptedException {
+		Result result = new Result(root, maxDepth);
+		result.visited.add(root);
+		ExecutorService pool = Executors.newFixedThreadPool(concurrency);
+		Walk walk = new Walk(pool, result);
+		long start = System.nanoTime();
+		try {
+			if (maxDepth > 0) {
+				walk.submit(root, 0);
+				walk.done.await();
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+		result.elapsedNanos = System.nanoTime() - start;
+		return result;
+	}
+
+	/**
+	 * Nodes queued or being expanded; the walk is over when none are left.
+	 */
+	private class Walk {
+		final ExecutorService pool;
+		final Result result;
+		final AtomicLong pending = new AtomicLong();
+		final CountDownLatch done = new CountDownLatch(1);
+
+		Walk(ExecutorService pool, Result result) {
+			this.pool = pool;
+			this.result = result;
+		}
+
+		void submit(String node, int depth) {
+			pending.incrementAndGet();
+			pool.execute(() -> {
+				try {
+					expand(node, depth);
+				} finally {
+					if (pending.decrementAndGet() == 0) {
+						done.countDown();
+					}
+				}
+			});
+		}
+
+		void expand(String node, int depth) {
+			Level level = result.levels.get(depth);
+			List<String> neighbours = new ArrayList<>();
+			try {
+				DirectoryStreamReader reader = new DirectoryStreamReader(CHILDREN.equals(relation) ? "EntityDirectory" : "AssociationDirectory");
+				CtsResponse response = client.get(path(node), body -> reader.read(body, (index, entry) -> {
+					String neighbour = neighbour(entry);
+					if (neighbour != null) {
+						neighbours.add(neighbour);
+					}
+				}));
+				if (!response.isSuccess()) {
+					level.errors.increment();
+					return;
+				}
+				level.record(response.getLatencyNanos());
+				result.bytes.addAndGet(response.getBytes());
+			} catch (IOException e) {
+				level.errors.increment();
+				return;
+			}
+			for (String neighbour : neighbours) {
+				if (maxNodes > 0 && result.visited.size() >= maxNodes) {
+					result.truncated = true;
+					return;
+				}
+				if (result.visited.add(neighbour)) {
+					level.discovered.increment();
+					if (depth + 1 < maxDepth) {
+						submit(neighbour, depth + 1);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the directory request of a node
+	 */
+	String path(String node) {
+		return "/codesystem/" + codeSystem + "/version/" + version + "/entity/" + node + "/" + relation
+				+ "?format=json&maxtoreturn=" + pageSize;
+	}
+
+	/**
+	 * @return "namespace:name" of the node an entry leads to, or null if it names none
+	 */
+	String neighbour(JsonNode entry) {
+		JsonNode name;
+		switch (relation) {
+			case CHILDREN:
+				name = entry.path("name");
+				break;
+			case SUBJECTOF:
+				name = entry.path("target").path("entity");
+				break;
+			default:
+				name = entry.path("subject");
+		}
+		String code = name.path("name").asText("");
+		if (code.isEmpty()) {
+			return null;
+		}
+		String namespace = name.path("namespace").asText("");
+		return namespace.isEmpty() ? code : namespace + ":" + code;
+	}
+
+	public static void print(Result result, PrintStream out) {
+		out.println(LatencyStats.header("depth"));
+		for (Level level : result.levels) {
+			Histogram latency = level.getLatency();
+			if (latency.getTotalCount() + level.getErrors() > 0) {
+				out.println(LatencyStats.row(level.depth + " (" + level.getDiscovered() + " new nodes)", latency,
+						level.getErrors(), result.elapsedNanos));
+			}
+		}
+		out.println(String.format("%s: %d nodes, %d requests, %.1f MB in %.1f s: %.1f nodes/s%s",
+				result.root, result.visited.size(), result.getRequests(), result.getBytes() / 1e6,
+				result.elapsedNanos / 1e9, result.getNodesPerSecond(), result.truncated ? " (stopped at the node limit)" : ""));
+	}
+
+	/**
+	 * Traverse mode of {@link LexevsRestTestRunner}: walks TRAVERSE_RELATION
+	 * from each of TRAVERSE_ROOTS in TRAVERSE_CODE_SYSTEM down TRAVERSE_DEPTH
+	 * levels, TRAVERSE_CONCURRENCY requests at a time, visiting at most
+	 * TRAVERSE_MAX_NODES nodes per root.
+	 */
+	public static void run(LexevsConfig config, PrintStream out) throws InterruptedException {
+		String codeSystem = config.get("TRAVERSE_CODE_SYSTEM", LexevsConfig.THESAURUS);
+		String version = EntityCrawler.version(config, codeSystem);
+		String relation = config.get("TRAVERSE_RELATION", CHILDREN);
+		int depth = config.getInt("TRAVERSE_DEPTH", 3);
+		int concurrency = config.getInt("TRAVERSE_CONCURRENCY", 8);
+		List<String> roots = config.getList("TRAVERSE_ROOTS");
+		if (roots.isEmpty()) {
+			roots = Collections.singletonList("ncit:C1648");
+		}
+		HierarchyTraversal traversal = new HierarchyTraversal(CtsHttpClient.fromConfig(config), codeSystem, version,
+				relation, depth, concurrency, config.getLong("TRAVERSE_MAX_NODES", 10000), config.getInt("TRAVERSE_PAGE_SIZE", 1000));
+
+		for (String root : roots) {
+			out.println("Traverse: " + relation + " of " + root + " in " + codeSystem + " " + version + ", " + depth
+					+ " levels, " + concurrency + " concurrent requests, against " + config.getBaseUrl());
+			print(traversal.traverse(root), out);
+			out.println();
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Latency budget for the requests matching a pattern, from config.properties:
+ * <pre>
+ *   LATENCY_BUDGET.&lt;name&gt;.pattern - regular expression found in the request path and query
+ *   LATENCY_BUDGET.&lt;name&gt;.ms      - budget for the complete response
+ *   LATENCY_BUDGET.&lt;name&gt;.ttfbMs  - optional budget for the first byte
+ * </pre>
+ * A request must meet every budget it matches.
+ */
+public class LatencyBudget {
+
+	public static final String PREFIX = "LATENCY_BUDGET.";
+
+	private final String name;
+	private final Pattern pattern;
+	private final long millis;
+	private final long ttfbMillis;
+
+	public LatencyBudget(String name, Pattern pattern, long millis, long ttfbMillis) {
+		this.name = name;
+		this.pattern = pattern;
+		this.millis = millis;
+		this.ttfbMillis = ttfbMillis;
+	}
+
+	public static List<LatencyBudget> load(LexevsConfig config) {
+		List<LatencyBudget> budgets = new ArrayList<>();
+		for (String key : config.keysWithPrefix(PREFIX)) {
+			if (!key.endsWith(".pattern")) {
+				continue;
+			}
+			String name = key.substring(PREFIX.length(), key.length() - ".pattern".length());
+			budgets.add(new LatencyBudget(name, Pattern.compile(config.get(key)),
+					config.getLong(PREFIX + name + ".ms", 0), config.getLong(PREFIX + name + ".ttfbMs", 0)));
+		}
+		return budgets;
+	}
+
+	/**
+	 * @param pathAndQuery the decoded request path below the base path and its query
+	 */
+	public boolean matches(String pathAndQuery) {
+		return pattern.matcher(pathAndQuery).find();
+	}
+
+	/**
+	 * @return whether the timings are within budget; a budget of 0 is not checked
+	 */
+	public boolean isMet(long latencyMillis, long ttfbMillis) {
+		return (millis <= 0 || latencyMillis <= millis) && (this.ttfbMillis <= 0 || ttfbMillis <= this.ttfbMillis);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public long getMillis() {
+		return millis;
+	}
+
+	public long getTtfbMillis() {
+		return ttfbMillis;
+	}
+
+	@Override
+	public String toString() {
+		return name + " (" + pattern + ": " + millis + " ms" + (ttfbMillis > 0 ? ", first byte " + ttfbMillis + " ms" : "") + ")";
+	}
+}
@@ -0,0 +1,141 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histograms keyed by endpoint family (or any other label), safe
+ * to record into from many threads at once.  Values are kept in
+ * microseconds with three significant digits, up to one hour.
+ */
+public class LatencyStats {
+
+	public static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.HOURS.toMicros(1);
+	public static final int SIGNIFICANT_DIGITS = 3;
+
+	private final Map<String, Series> series = new ConcurrentHashMap<>();
+
+	private static class Series {
+		final Recorder recorder = new Recorder(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+		final Histogram total = newHistogram();
+		final LongAdder errors = new LongAdder();
+		final LongAdder bytes = new LongAdder();
+	}
+
+	public static Histogram newHistogram() {
+		return new Histogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+	}
+
+	public void record(String key, long latencyNanos) {
+		series(key).recorder.recordValue(toMicros(latencyNanos));
+	}
+
+	/**
+	 * Records a response: its latency, and its size, or an error if it was not a 2xx.
+	 */
+	public void record(String key, CtsResponse response) {
+		record(key, response.getLatencyNanos());
+		series(key).bytes.add(response.getBytes());
+		if (!response.isSuccess()) {
+			error(key);
+		}
+	}
+
+	public void error(String key) {
+		series(key).errors.increment();
+	}
+
+	/**
+	 * @return all latencies recorded under the key so far
+	 */
+	public Histogram total(String key) {
+		Series s = series(key);
+		synchronized (s) {
+			s.total.add(s.recorder.getIntervalHistogram());
+			return s.total.copy();
+		}
+	}
+
+	/**
+	 * @return the latencies recorded under the key since the last call, which also count in its total
+	 */
+	public Histogram interval(String key) {
+		Series s = series(key);
+		synchronized (s) {
+			Histogram interval = s.recorder.getIntervalHistogram();
+			s.total.add(interval);
+			return interval;
+		}
+	}
+
+	public long errors(String key) {
+		return series(key).errors.sum();
+	}
+
+	public long bytes(String key) {
+		return series(key).bytes.sum();
+	}
+
+	/**
+	 * @return the keys in sorted order
+	 */
+	public Iterable<String> keys() {
+		return new TreeMap<>(series).keySet();
+	}
+
+	/**
+	 * Prints one row per key: request count, errors, throughput over the
+	 * elapsed time and latency percentiles in milliseconds.
+	 */
+	public void print(PrintStream out, long elapsedNanos) {
+		out.println(header("family"));
+		long count = 0;
+		long errors = 0;
+		Histogram all = newHistogram();
+		for (String key : keys()) {
+			Histogram histogram = total(key);
+			out.println(row(key, histogram, errors(key), elapsedNanos));
+			all.add(histogram);
+			count += histogram.getTotalCount();
+			errors += errors(key);
+		}
+		if (count > 0) {
+			out.println(row("all", all, errors, elapsedNanos));
+		}
+	}
+
+	public static String header(String label) {
+		return String.format("%-40s %9s %7s %9s %9s %9s %9s %9s %9s",
+				label, "count", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+	}
+
+	public static String row(String label, Histogram histogram, long errors, long elapsedNanos) {
+		double seconds = elapsedNanos / 1e9;
+		return String.format("%-40s %9d %7d %9.1f %9.1f %9.1f %9.1f %9.1f %9.1f",
+				label, histogram.getTotalCount(), errors, seconds > 0 ? histogram.getTotalCount() / seconds : 0,
+				millis(histogram, 50), millis(histogram, 90), millis(histogram, 99), millis(histogram, 99.9),
+				histogram.getMaxValue() / 1000.0);
+	}
+
+	/**
+	 * @return the percentile of a microsecond histogram, in milliseconds
+	 */
+	public static double millis(Histogram histogram, double percentile) {
+		return histogram.getValueAtPercentile(percentile) / 1000.0;
+	}
+
+	private static long toMicros(long nanos) {
+		return Math.min(Math.max(nanos / 1000, 0), HIGHEST_TRACKABLE_MICROS);
+	}
+
+	private Series series(String key) {
+		return series.computeIfAbsent(key, k -> new Series());
+	}
+}
@@ -0,0 +1,158 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.regex.Pattern;
+
+/**
+ * Settings from config.properties.  A system property of the same name
+ * (e.g. -DBASE_URL=...) overrides the value in the file.
+ */
+public class LexevsConfig {
+
+	public static final String FILE = "config.properties";
+
+	public static final String THESAURUS = "NCI_Thesaurus";
+	public static final String CHEBI = "ChEBI";
+	public static final String MEDDRA = "MedDRA";
+	public static final String METATHESAURUS = "NCI Metathesaurus";
+
+	// Keys of config.properties: upper case, optionally followed by .<name>
+	private static final Pattern SETTING = Pattern.compile("[A-Z][A-Z0-9_]*(\\..+)?");
+	private static final List<String> NETWORK_PREFIXES = Arrays.asList("javax.net.", "jdk.tls.", "java.net.", "sun.net.",
+			"http.", "https.", "socksProxy", "networkaddress.");
+
+	private final Properties properties;
+
+	public LexevsConfig(Properties properties) {
+		this.properties = properties;
+	}
+
+	/**
+	 * Reads config.properties from the classpath.
+	 */
+	public static LexevsConfig load() throws IOException {
+		Properties properties = new Properties();
+		try (InputStream input = LexevsConfig.class.getClassLoader().getResourceAsStream(FILE)) {
+			if (input == null) {
+				System.out.println("Sorry, unable to find " + FILE);
+			} else {
+				properties.load(input);
+			}
+		}
+		return new LexevsConfig(properties);
+	}
+
+	public String get(String key) {
+		return System.getProperty(key, properties.getProperty(key));
+	}
+
+	public String get(String key, String defaultValue) {
+		String value = get(key);
+		return value == null || value.trim().isEmpty() ? defaultValue : value.trim();
+	}
+
+	public int getInt(String key, int defaultValue) {
+		return Integer.parseInt(get(key, Integer.toString(defaultValue)));
+	}
+
+	public long getLong(String key, long defaultValue) {
+		return Long.parseLong(get(key, Long.toString(defaultValue)));
+	}
+
+	public double getDouble(String key, double defaultValue) {
+		return Double.parseDouble(get(key, Double.toString(defaultValue)));
+	}
+
+	/**
+	 * @return the comma separated values of the key, empty if it is not set
+	 */
+	public List<String> getList(String key) {
+		List<String> values = new ArrayList<>();
+		String value = get(key);
+		if (value != null) {
+			for (String item : value.split(",")) {
+				if (!item.trim().isEmpty()) {
+					values.add(item.trim());
+				}
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * @return every key defined in the file or as a system property that starts with the prefix
+	 */
+	public List<String> keysWithPrefix(String prefix) {
+		List<String> keys = new ArrayList<>();
+		for (String key : properties.stringPropertyNames()) {
+			if (key.startsWith(prefix)) {
+				keys.add(key);
+			}
+		}
+		for (String key : System.getProperties().stringPropertyNames()) {
+			if (key.startsWith(prefix) && !keys.contains(key)) {
+				keys.add(key);
+			}
+		}
+		return keys;
+	}
+
+	/**
+	 * @return the settings to pass on to a child JVM as system properties:
+	 *         every key of the configuration with its value here, settings
+	 *         given only as -D, and the network and TLS system properties
+	 */
+	public Properties forChildJvm() {
+		Properties forwarded = new Properties();
+		for (String key : properties.stringPropertyNames()) {
+			forwarded.setProperty(key, get(key));
+		}
+		for (String key : System.getProperties().stringPropertyNames()) {
+			if (SETTING.matcher(key).matches() || isNetworkProperty(key)) {
+				forwarded.setProperty(key, System.getProperty(key));
+			}
+		}
+		return forwarded;
+	}
+
+	/**
+	 * @return whether the JVM reads the key for its HTTP, proxy or TLS settings, e.g. javax.net.ssl.trustStore
+	 */
+	static boolean isNetworkProperty(String key) {
+		for (String prefix : NETWORK_PREFIXES) {
+			if (key.startsWith(prefix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public String getBaseUrl() {
+		return get("BASE_URL");
+	}
+
+	public String getServiceVersion() {
+		return get("LEXEVS_SERVICE_VERSION");
+	}
+
+	public String getThesaurusVersionNumber() {
+		return get("THESAURUS_VERSION_NUMBER");
+	}
+
+	public String getChebiVersionNumber() {
+		return get("CHEBI_VERSION_NUMBER");
+	}
+
+	public String getMetathesaurusVersionNumber() {
+		return get("METATHESAURUS_VERSION_NUMBER");
+	}
+
+	public String getMeddraVersionNumber() {
+		return get("MEDDRA_VERSION_NUMBER");
+	}
+}
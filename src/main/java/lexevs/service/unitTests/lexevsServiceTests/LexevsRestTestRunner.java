@@ -1,10 +1,92 @@
 package lexevs.service.unitTests.lexevsServiceTests;
 
 
-public class LexevsRestTestRunner 
+/**
+ * Command line entry point for the tools that drive the endpoints of the
+ * test suite outside of JUnit.  The first argument selects the mode; every
+ * other setting comes from config.properties or -D system properties.
+ */
+public class LexevsRestTestRunner
 {
-    public static void main( String[] args )
+    public static final String BASE_PATH = "/lexevscts2";
+
+    public static void main( String[] args ) throws Exception
     {
-        System.out.println( "LexevsRestTestRunner" );
+        LexevsConfig config = LexevsConfig.load();
+        String mode = args.length > 0 ? args[0] : "load";
+
+        switch ( mode )
+        {
+            case "load":
+                LoadGenerator.run( config, System.out );
+                break;
+            case "crawl":
+                EntityCrawler.run( config, System.out );
+                break;
+            case "sweep":
+                PageSizeSweep.run( config, System.out );
+                break;
+            case "matrix":
+                SearchMatrix.run( config, System.out );
+                break;
+            case "formats":
+                FormatComparison.run( config, System.out );
+                break;
+            case "soak":
+                SoakRunner.run( config, System.out );
+                break;
+            case "open":
+                OpenLoadGenerator.run( config, System.out );
+                break;
+            case "saturate":
+                SaturationFinder.run( config, System.out );
+                break;
+            case "valuesets":
+                ValueSetResolver.run( config, System.out );
+                break;
+            case "warmup":
+                CacheWarmer.run( config, System.out );
+                break;
+            case "measure":
+                RepeatedMeasurement.run( config, System.out );
+                break;
+            case "fanout":
+                EnvironmentComparison.run( config, System.out );
+                break;
+            case "maps":
+                MapBenchmark.run( config, System.out );
+                break;
+            case "traverse":
+                HierarchyTraversal.run( config, System.out );
+                break;
+            case "diff":
+                DifferentialRunner.run( config, System.out );
+                break;
+            case "coordinator":
+                DistributedLoad.runCoordinator( config, System.out );
+                break;
+            case "worker":
+                DistributedLoad.runWorker( config, Integer.parseInt( args[1] ), Integer.parseInt( args[2] ), System.out );
+                break;
+            default:
+                System.out.println( "Usage: LexevsRestTestRunner [load|crawl|sweep|matrix|formats|soak|open|saturate|valuesets|maps|fanout|measure|warmup|traverse|diff|coordinator|worker <i> <n>]" );
+                System.out.println( "  load         closed-loop load on the suite's endpoints, latency per endpoint family" );
+                System.out.println( "  crawl        export every entity of the configured code systems, page by page" );
+                System.out.println( "  sweep        latency and entries/s of directory endpoints across maxtoreturn page sizes" );
+                System.out.println( "  matrix       latency of every match algorithm x filter component search, flagging full scans" );
+                System.out.println( "  formats      payload size, latency and client parse cost of JSON against XML" );
+                System.out.println( "  soak         hours of read load in time windows, flagging p99 and error rate drift" );
+                System.out.println( "  open         constant arrival rate over a weighted endpoint mix, latency from the intended send time" );
+                System.out.println( "  saturate     step-ramp the arrival rate per endpoint family up to the latency knee" );
+                System.out.println( "  valuesets    resolve every resolved value set into files, timed per value set" );
+                System.out.println( "  warmup       replay the hot requests after a deploy until their latency settles" );
+                System.out.println( "  measure      time each endpoint cold, then after warm-up, with confidence intervals" );
+                System.out.println( "  fanout       send the catalog to every ENVIRONMENT.<name> at once and compare them per endpoint" );
+                System.out.println( "  maps         export every map version, then time random entry lookups against the full scan" );
+                System.out.println( "  traverse     walk children/subjectof/targetof from a root to a depth, nodes/s and latency per level" );
+                System.out.println( "  diff         BASE_URL against DIFF_CANDIDATE_URL: response drift and latency per endpoint" );
+                System.out.println( "  coordinator  the load mode spread over DIST_WORKERS worker JVMs, histograms merged" );
+                System.out.println( "  worker       worker i of n of the coordinator, writing an HdrHistogram log" );
+        }
     }
 }
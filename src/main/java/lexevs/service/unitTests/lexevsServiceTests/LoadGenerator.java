@@ -0,0 +1,105 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Closed-loop load driver: a fixed number of workers cycle through the
+ * endpoint catalog for a fixed time, optionally capped at a total request
+ * rate, and record latency per endpoint family.
+ */
+public class LoadGenerator {
+
+	private final CtsHttpClient client;
+	private final List<CtsEndpoint> endpoints;
+	private final int concurrency;
+	private final double rate;
+	private final long durationNanos;
+
+	/**
+	 * @param rate total requests per second across all workers, 0 for as fast as they go
+	 */
+	public LoadGenerator(CtsHttpClient client, List<CtsEndpoint> endpoints, int concurrency, double rate, long durationNanos) {
+		this.client = client;
+		this.endpoints = endpoints;
+		this.concurrency = concurrency;
+		this.rate = rate;
+		this.durationNanos = durationNanos;
+	}
+
+	/**
+	 * Runs the load and returns the latencies recorded per family.
+	 */
+	public LatencyStats run() throws InterruptedException {
+		return run(new LatencyStats());
+	}
+
+	/**
+	 * Runs the load, recording per family into the given stats, which may be read while it runs.
+	 */
+	public LatencyStats run(LatencyStats stats) throws InterruptedException {
+		AtomicLong sequence = new AtomicLong();
+		long start = System.nanoTime();
+		long end = start + durationNanos;
+		long interval = rate > 0 ? (long) (1e9 / rate) : 0;
+
+		List<Thread> workers = new ArrayList<>();
+		for (int i = 0; i < concurrency; i++) {
+			Thread worker = new Thread(() -> {
+				while (true) {
+					long n = sequence.getAndIncrement();
+					long slot = start + n * interval;
+					if (slot >= end) {
+						return;
+					}
+					pauseUntil(slot);
+					if (System.nanoTime() >= end) {
+						return;
+					}
+					CtsEndpoint endpoint = endpoints.get((int) (n % endpoints.size()));
+					try {
+						stats.record(endpoint.getFamily(), client.get(endpoint.getPath()));
+					} catch (IOException e) {
+						stats.error(endpoint.getFamily());
+					}
+				}
+			}, "load-" + i);
+			worker.start();
+			workers.add(worker);
+		}
+		for (Thread worker : workers) {
+			worker.join();
+		}
+		return stats;
+	}
+
+	static void pauseUntil(long nanoTime) {
+		long wait;
+		while ((wait = nanoTime - System.nanoTime()) > 0) {
+			LockSupport.parkNanos(wait);
+		}
+	}
+
+	/**
+	 * Load mode of {@link LexevsRestTestRunner}, configured by LOAD_CONCURRENCY,
+	 * LOAD_RATE and LOAD_DURATION_SECONDS.
+	 */
+	public static void run(LexevsConfig config, PrintStream out) throws InterruptedException {
+		List<CtsEndpoint> endpoints = CtsEndpointCatalog.build(config);
+		int concurrency = config.getInt("LOAD_CONCURRENCY", 4);
+		double rate = config.getDouble("LOAD_RATE", 0);
+		long seconds = config.getLong("LOAD_DURATION_SECONDS", 60);
+
+		out.println("Load: " + endpoints.size() + " endpoints, " + concurrency + " workers, "
+				+ (rate > 0 ? rate + " req/s" : "unthrottled") + ", " + seconds + " s against " + config.getBaseUrl());
+		long start = System.nanoTime();
+		LatencyStats stats = new LoadGenerator(CtsHttpClient.fromConfig(config), endpoints, concurrency, rate,
+				TimeUnit.SECONDS.toNanos(seconds)).run();
+		stats.print(out, System.nanoTime() - start);
+	}
+}
@@ -0,0 +1,103 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import java.util.Arrays;
+
+/**
+ * Mann-Whitney U test of whether one sample of latencies tends to be
+ * larger than another.  It compares ranks rather than means, so a few
+ * outliers do not decide it, and it assumes nothing about the shape of
+ * the distributions.  The p-value uses the normal approximation with
+ * corrections for ties and continuity.
+ */
+public class MannWhitney {
+
+	/**
+	 * Outcome of a test
+	 */
+	public static class Result {
+		private final double u;
+		private final double z;
+		private final double pValue;
+
+		Result(double u, double z, double pValue) {
+			this.u = u;
+			this.z = z;
+			this.pValue = pValue;
+		}
+
+		/**
+		 * @return U of the second sample: the number of pairs in which it is the larger, ties counting half
+		 */
+		public double getU() {
+			return u;
+		}
+
+		public double getZ() {
+			return z;
+		}
+
+		/**
+		 * @return one-sided probability of a U this large if both samples came from the same distribution
+		 */
+		public double getPValue() {
+			return pValue;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("U=%.1f z=%.2f p=%.4f", u, z, pValue);
+		}
+	}
+
+	private MannWhitney() {
+	}
+
+	/**
+	 * Tests whether <code>current</code> tends to be larger than <code>baseline</code>.
+	 * Either sample being empty gives a p-value of 1.
+	 */
+	public static Result greater(double[] baseline, double[] current) {
+		int n1 = baseline.length;
+		int n2 = current.length;
+		if (n1 == 0 || n2 == 0) {
+			return new Result(0, 0, 1);
+		}
+		int n = n1 + n2;
+		double[] values = new double[n];
+		boolean[] fromCurrent = new boolean[n];
+		Integer[] order = new Integer[n];
+		for (int i = 0; i < n; i++) {
+			values[i] = i < n1 ? baseline[i] : current[i - n1];
+			fromCurrent[i] = i >= n1;
+			order[i] = i;
+		}
+		Arrays.sort(order, (a, b) -> Double.compare(values[a], values[b]));
+
+		double rankSum = 0;
+		double tieTerm = 0;
+		for (int i = 0; i < n; ) {
+			int j = i;
+			while (j + 1 < n && values[order[j + 1]] == values[order[i]]) {
+				j++;
+			}
+			double rank = (i + j + 2) / 2.0;
+			for (int k = i; k <= j; k++) {
+				if (fromCurrent[order[k]]) {
+					rankSum += rank;
+				}
+			}
+			double t = j - i + 1;
+			tieTerm += t * t * t - t;
+			i = j + 1;
+		}
+
+		double u = rankSum - n2 * (n2 + 1) / 2.0;
+		double mean = n1 * (double) n2 / 2;
+		double variance = n1 * (double) n2 / 12 * ((n + 1) - tieTerm / ((double) n * (n - 1)));
+		if (variance <= 0) {
+			return new Result(u, 0, u > mean ? 0 : 1);
+		}
+		double z = (u - mean - 0.5) / Math.sqrt(variance);
+		return new Result(u, z, 1 - Stats.normalCdf(z));
+	}
+}
@@ -0,0 +1,320 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Weighs prefetching whole maps against resolving map entries one at a
+ * time.  Every entry of each map version in <code>/mapversions</code> is
+ * paged through and streamed to disk.  Then random
+ * <code>entry/{code}</code> lookups of the exported codes are replayed at
+ * a fixed concurrency.  Comparing the two gives the number of lookups at
+ * which a full scan becomes the cheaper choice.
+ */
+public class MapBenchmark {
+
+	private final CtsHttpClient client;
+	private final int pageSize;
+	private final int lookups;
+	private final int concurrency;
+	private final long seed;
+	private final Path outputDir;
+
+	/**
+	 * A version of a map listed in /mapversions
+	 */
+	public static class MapVersion {
+		private final String map;
+		private final String version;
+
+		public MapVersion(String map, String version) {
+			this.map = map;
+			this.version = version;
+		}
+
+		public String getMap() {
+			return map;
+		}
+
+		public String getVersion() {
+			return version;
+		}
+
+		String path() {
+			return "/map/" + map + "/version/" + version;
+		}
+
+		@Override
+		public String toString() {
+			return version;
+		}
+	}
+
+	/**
+	 * Full scan of one map version, and lookups of its entries
+	 */
+	public static class Result {
+		private final MapVersion mapVersion;
+		private final List<String> codes = new ArrayList<>();
+		private int pages;
+		private long bytes;
+		private long scanNanos;
+		private String scanError;
+		private final Histogram lookupLatency = LatencyStats.newHistogram();
+		private final AtomicLong lookupErrors = new AtomicLong();
+		private long lookupNanos;
+
+		Result(MapVersion mapVersion) {
+			this.mapVersion = mapVersion;
+		}
+
+		public MapVersion getMapVersion() {
+			return mapVersion;
+		}
+
+		public long getEntries() {
+			return codes.size();
+		}
+
+		public int getPages() {
+			return pages;
+		}
+
+		public long getBytes() {
+			return bytes;
+		}
+
+		/**
+		 * @return time to page through every entry
+		 */
+		public long getScanNanos() {
+			return scanNanos;
+		}
+
+		/**
+		 * @return why the scan stopped early, null if it did not
+		 */
+		public String getScanError() {
+			return scanError;
+		}
+
+		/**
+		 * @return latency of the point lookups, in microseconds
+		 */
+		public synchronized Histogram getLookupLatency() {
+			return lookupLatency.copy();
+		}
+
+		public long getLookupErrors() {
+			return lookupErrors.get();
+		}
+
+		public long getLookups() {
+			return getLookupLatency().getTotalCount() + getLookupErrors();
+		}
+
+		/**
+		 * @return wall time of all the lookups
+		 */
+		public long getLookupNanos() {
+			return lookupNanos;
+		}
+
+		/**
+		 * @return lookups costing as much wall time as the full scan, at the
+		 *         concurrency they ran at; 0 if nothing was looked up
+		 */
+		public double getBreakEven() {
+			long count = getLookups();
+			return count > 0 && lookupNanos > 0 ? scanNanos / ((double) lookupNanos / count) : 0;
+		}
+
+		synchronized void recordLookup(long nanos) {
+			lookupLatency.recordValue(Math.min(nanos / 1000, LatencyStats.HIGHEST_TRACKABLE_MICROS));
+		}
+	}
+
+	/**
+	 * @param lookups random point lookups per map version
+	 */
+	public MapBenchmark(CtsHttpClient client, int pageSize, int lookups, int concurrency, long seed, Path outputDir) {
+		this.client = client;
+		this.pageSize = pageSize;
+		this.lookups = lookups;
+		this.concurrency = Math.max(concurrency, 1);
+		this.seed = seed;
+		this.outputDir = outputDir;
+	}
+
+	/**
+	 * Pages through /mapversions.
+	 */
+	public List<MapVersion> list() throws IOException {
+		List<MapVersion> versions = new ArrayList<>();
+		String request = "/mapversions?format=json&maxtoreturn=" + pageSize;
+		while (request != null) {
+			DirectoryStreamReader page = new DirectoryStreamReader("MapVersionDirectory");
+			CtsResponse response = client.get(request, body -> page.read(body, (index, entry) -> {
+				String map = entry.path("versionOf").path("content").asText("");
+				String version = entry.path("mapVersionName").asText("");
+				if (!map.isEmpty() && !version.isEmpty()) {
+					versions.add(new MapVersion(map, version));
+				}
+			}));
+			if (!response.isSuccess()) {
+				throw new IOException(response.getUrl() + " returned " + response.getStatus());
+			}
+			request = page.getEntryCount() > 0 ? client.nextPage(page.getHeader()) : null;
+		}
+		return versions;
+	}
+
+	/**
+	 * Exports the map version, then looks up random entries of it.
+	 */
+	public Result run(MapVersion mapVersion) throws InterruptedException {
+		Result result = new Result(mapVersion);
+		scan(result);
+		lookup(result);
+		return result;
+	}
+
+	private void scan(Result result) {
+		Path output = outputDir.resolve(result.mapVersion.version.replaceAll("[^A-Za-z0-9._-]", "_") + ".ndjson");
+		String request = result.mapVersion.path() + "/entries?format=json&maxtoreturn=" + pageSize;
+		long start = System.nanoTime();
+		try {
+			Files.createDirectories(outputDir);
+		} catch (IOException e) {
+			result.scanError = e.toString();
+			return;
+		}
+		try (Writer writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+			while (request != null) {
+				DirectoryStreamReader page = new DirectoryStreamReader("MapEntryDirectory");
+				CtsResponse response = client.get(request, body -> page.read(body, (index, entry) -> {
+					writer.write(entry.toString());
+					writer.write('\n');
+					String code = code(entry);
+					if (code != null) {
+						result.codes.add(code);
+					}
+				}));
+				if (!response.isSuccess()) {
+					result.scanError = "HTTP " + response.getStatus();
+					break;
+				}
+				result.pages++;
+				result.bytes += response.getBytes();
+				request = page.getEntryCount() > 0 ? client.nextPage(page.getHeader()) : null;
+			}
+		} catch (IOException e) {
+			result.scanError = e.toString();
+		}
+		result.scanNanos = System.nanoTime() - start;
+	}
+
+	/**
+	 * @return the source code of a map entry, e.g. C1028
+	 */
+	static String code(JsonNode entry) {
+		String code = entry.path("mapFrom").path("name").asText("");
+		return code.isEmpty() ? null : code;
+	}
+
+	private void lookup(Result result) throws InterruptedException {
+		if (result.codes.isEmpty() || lookups <= 0) {
+			return;
+		}
+		Random random = new Random(seed);
+		List<String> sample = new ArrayList<>(lookups);
+		for (int i = 0; i < lookups; i++) {
+			sample.add(result.codes.get(random.nextInt(result.codes.size())));
+		}
+		ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+		long start = System.nanoTime();
+		for (String code : sample) {
+			workers.execute(() -> {
+				try {
+					CtsResponse response = client.get(result.mapVersion.path() + "/entry/" + code + "?format=json");
+					if (response.isSuccess()) {
+						result.recordLookup(response.getLatencyNanos());
+					} else {
+						result.lookupErrors.incrementAndGet();
+					}
+				} catch (IOException e) {
+					result.lookupErrors.incrementAndGet();
+				}
+			});
+		}
+		workers.shutdown();
+		workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		result.lookupNanos = System.nanoTime() - start;
+	}
+
+	public static void print(List<Result> results, int concurrency, PrintStream out) {
+		out.println(String.format("%-36s %9s %9s %10s %8s %9s %9s %10s %11s %9s",
+				"map version", "entries", "scan s", "entries/s", "lookups", "p50 ms", "p99 ms", "lookups/s", "break-even", "of map"));
+		for (Result result : results) {
+			Histogram latency = result.getLookupLatency();
+			double scanSeconds = result.scanNanos / 1e9;
+			double lookupSeconds = result.lookupNanos / 1e9;
+			double breakEven = result.getBreakEven();
+			out.println(String.format("%-36s %9d %9.2f %10.1f %8d %9.1f %9.1f %10.1f %11.0f %8.1f%%%s",
+					result.mapVersion.version, result.getEntries(), scanSeconds,
+					scanSeconds > 0 ? result.getEntries() / scanSeconds : 0, result.getLookups(),
+					LatencyStats.millis(latency, 50), LatencyStats.millis(latency, 99),
+					lookupSeconds > 0 ? result.getLookups() / lookupSeconds : 0, breakEven,
+					result.getEntries() > 0 ? 100 * breakEven / result.getEntries() : 0,
+					result.scanError != null ? "  scan stopped: " + result.scanError : ""));
+		}
+		out.println();
+		out.println("Resolving lazily costs less than prefetching a map while fewer of its entries are needed than the break-even, at "
+				+ concurrency + " concurrent lookups.");
+	}
+
+	/**
+	 * Maps mode of {@link LexevsRestTestRunner}: exports every map version of
+	 * /mapversions (or MAPS_VERSIONS) in pages of MAPS_PAGE_SIZE into
+	 * MAPS_OUTPUT_DIR, then replays MAPS_LOOKUPS random entry lookups of each
+	 * on MAPS_CONCURRENCY threads, drawn with MAPS_SEED.
+	 */
+	public static void run(LexevsConfig config, PrintStream out) throws IOException, InterruptedException {
+		int concurrency = config.getInt("MAPS_CONCURRENCY", 8);
+		MapBenchmark benchmark = new MapBenchmark(CtsHttpClient.fromConfig(config), config.getInt("MAPS_PAGE_SIZE", 1000),
+				config.getInt("MAPS_LOOKUPS", 200), concurrency, config.getLong("MAPS_SEED", 42),
+				Paths.get(config.get("MAPS_OUTPUT_DIR", "target/maps")));
+
+		List<MapVersion> versions = benchmark.list();
+		List<String> selected = config.getList("MAPS_VERSIONS");
+		if (!selected.isEmpty()) {
+			versions.removeIf(version -> !selected.contains(version.getVersion()));
+		}
+		out.println("Maps: " + versions.size() + " map versions, " + config.getInt("MAPS_LOOKUPS", 200) + " lookups each on "
+				+ concurrency + " threads, against " + config.getBaseUrl());
+		List<Result> results = new ArrayList<>();
+		for (MapVersion version : versions) {
+			Result result = benchmark.run(version);
+			out.println(String.format("%-36s %d entries in %d pages, %.1f MB in %.1f s", version, result.getEntries(),
+					result.getPages(), result.getBytes() / 1e6, result.getScanNanos() / 1e9));
+			results.add(result);
+		}
+		out.println();
+		print(results, concurrency, out);
+	}
+}
@@ -0,0 +1,226 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Open-model load driver: requests are scheduled at a constant arrival
+ * rate whatever the service does, and each latency is measured from the
+ * time its request was due, not from when a worker got round to sending
+ * it.  A stall in the service therefore shows in the latency of every
+ * request that should have been sent during it, which a closed loop hides
+ * (coordinated omission).
+ */
+public class OpenLoadGenerator {
+
+	private final CtsHttpClient client;
+	private final Mix mix;
+	private final double rate;
+	private final long durationNanos;
+	private final int maxConcurrency;
+	private final long seed;
+
+	private final LatencyStats intended = new LatencyStats();
+	private final LatencyStats service = new LatencyStats();
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private volatile int maxInFlight;
+	private long warmupNanos;
+	private long start;
+
+	/**
+	 * Endpoints drawn with fixed weights.  Written as a comma separated list
+	 * of <code>name:weight</code>, where name is an endpoint of
+	 * {@link CtsEndpointCatalog} or several joined with '+' that share the weight.
+	 */
+	public static class Mix {
+		private final List<CtsEndpoint> endpoints = new ArrayList<>();
+		private final List<Double> cumulative = new ArrayList<>();
+		private double total;
+
+		public static Mix parse(List<CtsEndpoint> catalog, String spec) {
+			Mix mix = new Mix();
+			for (String item : spec.split(",")) {
+				if (item.trim().isEmpty()) {
+					continue;
+				}
+				int colon = item.lastIndexOf(':');
+				double weight = colon < 0 ? 1 : Double.parseDouble(item.substring(colon + 1).trim());
+				String[] names = (colon < 0 ? item : item.substring(0, colon)).trim().split("\\+");
+				for (String name : names) {
+					CtsEndpoint endpoint = CtsEndpointCatalog.named(catalog, name.trim());
+					if (endpoint == null) {
+						throw new IllegalArgumentException("No endpoint " + name.trim() + " in the catalog");
+					}
+					mix.add(endpoint, weight / names.length);
+				}
+			}
+			if (mix.endpoints.isEmpty()) {
+				throw new IllegalArgumentException("Empty endpoint mix " + spec);
+			}
+			return mix;
+		}
+
+		/**
+		 * @return the endpoints with equal weights
+		 */
+		public static Mix uniform(List<CtsEndpoint> endpoints) {
+			Mix mix = new Mix();
+			for (CtsEndpoint endpoint : endpoints) {
+				mix.add(endpoint, 1);
+			}
+			return mix;
+		}
+
+		void add(CtsEndpoint endpoint, double weight) {
+			total += weight;
+			endpoints.add(endpoint);
+			cumulative.add(total);
+		}
+
+		public CtsEndpoint pick(Random random) {
+			double r = random.nextDouble() * total;
+			for (int i = 0; i < endpoints.size(); i++) {
+				if (r < cumulative.get(i)) {
+					return endpoints.get(i);
+				}
+			}
+			return endpoints.get(endpoints.size() - 1);
+		}
+
+		public List<CtsEndpoint> getEndpoints() {
+			return endpoints;
+		}
+
+		/**
+		 * @return the share of the requests that go to the endpoint
+		 */
+		public double share(CtsEndpoint endpoint) {
+			int i = endpoints.indexOf(endpoint);
+			return i < 0 ? 0 : (cumulative.get(i) - (i > 0 ? cumulative.get(i - 1) : 0)) / total;
+		}
+	}
+
+	/**
+	 * @param rate           requests per second
+	 * @param maxConcurrency requests sent at once at most; beyond it due requests queue, and their wait counts
+	 */
+	public OpenLoadGenerator(CtsHttpClient client, Mix mix, double rate, long durationNanos, int maxConcurrency, long seed) {
+		this.client = client;
+		this.mix = mix;
+		this.rate = rate;
+		this.durationNanos = durationNanos;
+		this.maxConcurrency = maxConcurrency;
+		this.seed = seed;
+	}
+
+	/**
+	 * Requests due in the first part of the run are sent but not recorded,
+	 * so the service can settle at the new rate.
+	 */
+	public void setWarmupNanos(long warmupNanos) {
+		this.warmupNanos = warmupNanos;
+	}
+
+	/**
+	 * Runs the load, then waits for the requests still in flight.
+	 */
+	public void run() throws InterruptedException {
+		ThreadPoolExecutor workers = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+				runnable -> {
+					Thread thread = new Thread(runnable, "open-load");
+					thread.setDaemon(true);
+					return thread;
+				});
+		Random random = new Random(seed);
+		long interval = (long) (1e9 / rate);
+		start = System.nanoTime();
+		for (long due = start; due < start + durationNanos; due += interval) {
+			LoadGenerator.pauseUntil(due);
+			CtsEndpoint endpoint = mix.pick(random);
+			long scheduled = due;
+			maxInFlight = Math.max(maxInFlight, inFlight.incrementAndGet());
+			workers.execute(() -> send(endpoint, scheduled));
+		}
+		workers.shutdown();
+		workers.awaitTermination(1, TimeUnit.HOURS);
+	}
+
+	private void send(CtsEndpoint endpoint, long due) {
+		try {
+			CtsResponse response = client.get(endpoint.getPath());
+			if (due - start < warmupNanos) {
+				return;
+			}
+			service.record(endpoint.getName(), response);
+			intended.record(endpoint.getName(), response.getStartNanos() + response.getLatencyNanos() - due);
+			if (!response.isSuccess()) {
+				intended.error(endpoint.getName());
+			}
+		} catch (IOException e) {
+			if (due - start >= warmupNanos) {
+				service.error(endpoint.getName());
+				intended.error(endpoint.getName());
+			}
+		} finally {
+			inFlight.decrementAndGet();
+		}
+	}
+
+	/**
+	 * @return latencies from the time each request was due
+	 */
+	public LatencyStats getIntended() {
+		return intended;
+	}
+
+	/**
+	 * @return latencies from the time each request was sent, as a closed loop would see them
+	 */
+	public LatencyStats getService() {
+		return service;
+	}
+
+	public int getMaxInFlight() {
+		return maxInFlight;
+	}
+
+	/**
+	 * Open mode of {@link LexevsRestTestRunner}: OPEN_RATE requests/second drawn
+	 * from OPEN_MIX for OPEN_DURATION_SECONDS, at most OPEN_MAX_CONCURRENCY at once.
+	 */
+	public static void run(LexevsConfig config, PrintStream out) throws InterruptedException {
+		Mix mix = Mix.parse(CtsEndpointCatalog.build(config), config.get("OPEN_MIX", ""));
+		double rate = config.getDouble("OPEN_RATE", 20);
+		long seconds = config.getLong("OPEN_DURATION_SECONDS", 300);
+		int maxConcurrency = config.getInt("OPEN_MAX_CONCURRENCY", 200);
+		if (System.getProperty("http.maxConnections") == null) {
+			System.setProperty("http.maxConnections", Integer.toString(maxConcurrency));
+		}
+
+		out.println("Open load: " + rate + " req/s for " + seconds + " s, at most " + maxConcurrency + " in flight, against " + config.getBaseUrl());
+		for (CtsEndpoint endpoint : mix.getEndpoints()) {
+			out.println(String.format("  %5.1f%%  %s", mix.share(endpoint) * 100, endpoint.getName()));
+		}
+		OpenLoadGenerator load = new OpenLoadGenerator(CtsHttpClient.fromConfig(config), mix, rate,
+				TimeUnit.SECONDS.toNanos(seconds), maxConcurrency, config.getLong("OPEN_SEED", 1));
+		long start = System.nanoTime();
+		load.run();
+		long elapsed = System.nanoTime() - start;
+
+		out.println();
+		out.println("Latency from the intended send time");
+		load.getIntended().print(out, elapsed);
+		out.println();
+		out.println("Service time, from the actual send (what a closed loop reports)");
+		load.getService().print(out, elapsed);
+		out.println();
+		out.println("Most requests in flight or queued: " + load.getMaxInFlight());
+	}
+}
@@ -0,0 +1,200 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Requests directory endpoints at a range of <code>maxtoreturn</code> page
+ * sizes and reports, for each size, the latency, the size of the response
+ * and the entries delivered per second, to find the page size at which an
+ * endpoint delivers its entries fastest.
+ */
+public class PageSizeSweep {
+
+	public static final List<String> DEFAULT_ENDPOINTS = Arrays.asList(
+			"codeSystem_search", "codeSystemVersion", "valuesets_resolved", "map_version_map_entities", "associations_targetof");
+	public static final List<Integer> DEFAULT_PAGE_SIZES = Arrays.asList(10, 50, 100, 500, 1000, 2500, 5000, 10000);
+
+	private static final Pattern MAXTORETURN = Pattern.compile("(?i)([?&]maxtoreturn=)\\d+");
+
+	private final CtsHttpClient client;
+	private final List<Integer> pageSizes;
+	private final int repetitions;
+	private final PrintStream out;
+
+	/**
+	 * Measurements of one page size
+	 */
+	public static class Point {
+		private final int pageSize;
+		private final Histogram latency = LatencyStats.newHistogram();
+		private long entries;
+		private long bytes;
+		private long errors;
+
+		Point(int pageSize) {
+			this.pageSize = pageSize;
+		}
+
+		public int getPageSize() {
+			return pageSize;
+		}
+
+		/**
+		 * @return latencies in microseconds
+		 */
+		public Histogram getLatency() {
+			return latency;
+		}
+
+		/**
+		 * @return entries in a response of this size
+		 */
+		public long getEntries() {
+			return entries;
+		}
+
+		/**
+		 * @return mean bytes of a response
+		 */
+		public long getBytes() {
+			long count = latency.getTotalCount();
+			return count > 0 ? bytes / count : 0;
+		}
+
+		public long getErrors() {
+			return errors;
+		}
+
+		/**
+		 * @return entries delivered per second at the median latency
+		 */
+		public double getEntriesPerSecond() {
+			double seconds = latency.getValueAtPercentile(50) / 1e6;
+			return seconds > 0 ? entries / seconds : 0;
+		}
+
+		/**
+		 * @return whether the endpoint had no more entries than this page holds
+		 */
+		public boolean isComplete() {
+			return entries < pageSize;
+		}
+	}
+
+	public PageSizeSweep(CtsHttpClient client, List<Integer> pageSizes, int repetitions, PrintStream out) {
+		this.client = client;
+		this.pageSizes = pageSizes;
+		this.repetitions = Math.max(repetitions, 1);
+		this.out = out;
+	}
+
+	/**
+	 * Measures the endpoint at every page size, in increasing order.  Sizes
+	 * beyond the first that returns every entry are skipped, as they return
+	 * the same page.
+	 */
+	public List<Point> sweep(CtsEndpoint endpoint) throws IOException {
+		List<Integer> sizes = new ArrayList<>(pageSizes);
+		sizes.sort(null);
+		List<Point> points = new ArrayList<>();
+		for (int size : sizes) {
+			String request = withPageSize(endpoint.getPath(), size);
+			Point point = new Point(size);
+			// one untimed request first, so the first repetition does not pay for a cold cache
+			client.get(request);
+			for (int i = 0; i < repetitions; i++) {
+				DirectoryStreamReader page = new DirectoryStreamReader(null);
+				CtsResponse response = client.get(request, body -> page.read(body, (index, entry) -> { }));
+				point.latency.recordValue(Math.min(response.getLatencyNanos() / 1000, LatencyStats.HIGHEST_TRACKABLE_MICROS));
+				point.bytes += response.getBytes();
+				if (response.isSuccess()) {
+					point.entries = page.getEntryCount();
+				} else {
+					point.errors++;
+				}
+			}
+			points.add(point);
+			out.println(String.format("%-40s %9d %9d %9d %9.1f %9.1f %12.1f", endpoint.getName(), size, point.getEntries(),
+					point.getBytes() / 1024, LatencyStats.millis(point.latency, 50), LatencyStats.millis(point.latency, 90),
+					point.getEntriesPerSecond()));
+			if (point.isComplete() && point.errors == 0) {
+				break;
+			}
+		}
+		return points;
+	}
+
+	/**
+	 * @return the point delivering the most entries per second, or null if none returned any
+	 */
+	public static Point optimal(List<Point> points) {
+		Point best = null;
+		for (Point point : points) {
+			if (point.errors == 0 && point.entries > 0 && (best == null || point.getEntriesPerSecond() > best.getEntriesPerSecond())) {
+				best = point;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * @return the request with its maxtoreturn set to the page size, added if it had none
+	 */
+	static String withPageSize(String pathAndQuery, int pageSize) {
+		Matcher matcher = MAXTORETURN.matcher(pathAndQuery);
+		if (matcher.find()) {
+			return matcher.replaceFirst("$1" + pageSize);
+		}
+		return pathAndQuery + (pathAndQuery.contains("?") ? "&" : "?") + "maxtoreturn=" + pageSize;
+	}
+
+	/**
+	 * Sweep mode of {@link LexevsRestTestRunner}: sweeps SWEEP_ENDPOINTS, named
+	 * as in {@link CtsEndpointCatalog}, across SWEEP_PAGE_SIZES, SWEEP_REPETITIONS
+	 * timed requests per size.
+	 */
+	public static void run(LexevsConfig config, PrintStream out) throws IOException {
+		List<CtsEndpoint> catalog = CtsEndpointCatalog.build(config);
+		List<String> names = config.getList("SWEEP_ENDPOINTS");
+		if (names.isEmpty()) {
+			names = DEFAULT_ENDPOINTS;
+		}
+		List<Integer> sizes = new ArrayList<>();
+		for (String size : config.getList("SWEEP_PAGE_SIZES")) {
+			sizes.add(Integer.parseInt(size));
+		}
+		if (sizes.isEmpty()) {
+			sizes = DEFAULT_PAGE_SIZES;
+		}
+		int repetitions = config.getInt("SWEEP_REPETITIONS", 5);
+
+		out.println("Sweep: page sizes " + sizes + ", " + repetitions + " requests each, against " + config.getBaseUrl());
+		out.println(String.format("%-40s %9s %9s %9s %9s %9s %12s", "endpoint", "size", "entries", "KB", "p50 ms", "p90 ms", "entries/s"));
+		PageSizeSweep sweep = new PageSizeSweep(CtsHttpClient.fromConfig(config), sizes, repetitions, out);
+		List<String> optima = new ArrayList<>();
+		for (String name : names) {
+			CtsEndpoint endpoint = CtsEndpointCatalog.named(catalog, name);
+			if (endpoint == null) {
+				throw new IllegalArgumentException("No endpoint " + name + " in the catalog");
+			}
+			Point best = optimal(sweep.sweep(endpoint));
+			optima.add(best == null
+					? String.format("%-40s no entries returned", name)
+					: String.format("%-40s maxtoreturn=%d (%.1f entries/s, p50 %.1f ms)", name, best.getPageSize(),
+							best.getEntriesPerSecond(), LatencyStats.millis(best.getLatency(), 50)));
+		}
+		out.println();
+		out.println("Optimal page size");
+		for (String optimum : optima) {
+			out.println(optimum);
+		}
+	}
+}
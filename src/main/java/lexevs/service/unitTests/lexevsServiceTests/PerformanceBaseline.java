@@ -0,0 +1,177 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Latency samples of earlier runs, appended to a local file so that a run
+ * can be compared with the ones before it.  Each line holds the samples of
+ * one test in one run, tab separated:
+ * <pre>
+ *   test  service version  terminology versions  run  latency ms,latency ms,...
+ * </pre>
+ * A test regresses when its samples are significantly larger than the
+ * baseline's by a {@link MannWhitney} test, and their median is also
+ * slower by a minimum factor, so that a tiny but consistent shift does not
+ * fail the build.
+ */
+public class PerformanceBaseline {
+
+	private final Path file;
+	private final List<Line> lines = new ArrayList<>();
+
+	private static class Line {
+		final String test;
+		final String serviceVersion;
+		final String terminologies;
+		final String run;
+		final double[] millis;
+
+		Line(String test, String serviceVersion, String terminologies, String run, double[] millis) {
+			this.test = test;
+			this.serviceVersion = serviceVersion;
+			this.terminologies = terminologies;
+			this.run = run;
+			this.millis = millis;
+		}
+	}
+
+	/**
+	 * Comparison of a test's samples with the baseline
+	 */
+	public static class Comparison {
+		private final String test;
+		private final double baselineMedian;
+		private final double currentMedian;
+		private final int baselineSamples;
+		private final MannWhitney.Result result;
+		private final boolean regression;
+
+		Comparison(String test, double baselineMedian, double currentMedian, int baselineSamples,
+				MannWhitney.Result result, boolean regression) {
+			this.test = test;
+			this.baselineMedian = baselineMedian;
+			this.currentMedian = currentMedian;
+			this.baselineSamples = baselineSamples;
+			this.result = result;
+			this.regression = regression;
+		}
+
+		public boolean isRegression() {
+			return regression;
+		}
+
+		public double getBaselineMedian() {
+			return baselineMedian;
+		}
+
+		public double getCurrentMedian() {
+			return currentMedian;
+		}
+
+		public int getBaselineSamples() {
+			return baselineSamples;
+		}
+
+		public MannWhitney.Result getResult() {
+			return result;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s median %.1f ms against %.1f ms over %d baseline samples (%s)",
+					test, currentMedian, baselineMedian, baselineSamples, result);
+		}
+	}
+
+	public PerformanceBaseline(Path file) throws IOException {
+		this.file = file;
+		if (Files.exists(file)) {
+			for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+				String[] fields = line.split("\t");
+				if (fields.length < 5 || line.startsWith("#")) {
+					continue;
+				}
+				String[] values = fields[4].split(",");
+				double[] millis = new double[values.length];
+				for (int i = 0; i < values.length; i++) {
+					millis[i] = Double.parseDouble(values[i]);
+				}
+				lines.add(new Line(fields[0], fields[1], fields[2], fields[3], millis));
+			}
+		}
+	}
+
+	/**
+	 * @param serviceVersion only samples of this service version, or null for any
+	 * @param excludeRun     a run whose samples are left out, usually the current one
+	 * @return the samples of the test against the same terminology versions
+	 */
+	public synchronized double[] samples(String test, String serviceVersion, String terminologies, String excludeRun) {
+		List<Double> samples = new ArrayList<>();
+		for (Line line : lines) {
+			if (line.test.equals(test) && line.terminologies.equals(terminologies) && !line.run.equals(excludeRun)
+					&& (serviceVersion == null || line.serviceVersion.equals(serviceVersion))) {
+				for (double millis : line.millis) {
+					samples.add(millis);
+				}
+			}
+		}
+		double[] result = new double[samples.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = samples.get(i);
+		}
+		return result;
+	}
+
+	/**
+	 * Appends the samples of a test to the file.
+	 */
+	public synchronized void append(String test, String serviceVersion, String terminologies, String run, double[] millis)
+			throws IOException {
+		if (millis.length == 0) {
+			return;
+		}
+		StringBuilder values = new StringBuilder();
+		for (double value : millis) {
+			values.append(values.length() == 0 ? "" : ",").append(String.format(Locale.ROOT, "%.3f", value));
+		}
+		if (file.getParent() != null) {
+			Files.createDirectories(file.getParent());
+		}
+		try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+				StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+			out.write(String.join("\t", clean(test), clean(serviceVersion), clean(terminologies), run, values));
+			out.newLine();
+		}
+		lines.add(new Line(clean(test), clean(serviceVersion), clean(terminologies), run, millis.clone()));
+	}
+
+	/**
+	 * Compares the samples of a test with the baseline.
+	 *
+	 * @param minBaseline fewer baseline samples than this are never a regression
+	 * @param alpha       largest p-value taken as significant
+	 * @param minSlowdown smallest ratio of the medians taken as a regression
+	 */
+	public static Comparison compare(String test, double[] baseline, double[] current, int minBaseline, double alpha,
+			double minSlowdown) {
+		MannWhitney.Result result = MannWhitney.greater(baseline, current);
+		double baselineMedian = Stats.median(baseline);
+		double currentMedian = Stats.median(current);
+		boolean regression = baseline.length >= minBaseline && result.getPValue() < alpha
+				&& currentMedian > baselineMedian * minSlowdown;
+		return new Comparison(test, baselineMedian, currentMedian, baseline.length, result, regression);
+	}
+
+	private static String clean(String field) {
+		return String.valueOf(field).replace('\t', ' ').replace('\n', ' ');
+	}
+}
@@ -0,0 +1,284 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Measures each endpoint the way a benchmark harness would, instead of the
+ * single request of its test.  The first request of each endpoint is kept
+ * apart as the cold latency, that of the service's caches for it.  The client
+ * is cold for the first endpoint only, so its cold latency also includes the
+ * client's warm-up.  Warm-up requests follow and are thrown away, then the
+ * measured requests give the mean, median and 99th percentile, each with a
+ * confidence interval.
+ *
+ * The interval of the mean uses Student's t distribution; those of the
+ * median and the 99th percentile come from the order statistics, so they
+ * assume nothing about the latency distribution but are bounded by the
+ * fastest and slowest sample.
+ */
+public class RepeatedMeasurement {
+
+	private final CtsHttpClient client;
+	private final int warmup;
+	private final int iterations;
+	private final double confidence;
+
+	/**
+	 * A statistic with its confidence interval, in milliseconds
+	 */
+	public static class Estimate {
+		private final double value;
+		private final double lower;
+		private final double upper;
+
+		Estimate(double value, double lower, double upper) {
+			this.value = value;
+			this.lower = lower;
+			this.upper = upper;
+		}
+
+		public double getValue() {
+			return value;
+		}
+
+		public double getLower() {
+			return lower;
+		}
+
+		public double getUpper() {
+			return upper;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%.1f [%.1f, %.1f]", value, lower, upper);
+		}
+	}
+
+	/**
+	 * Measurements of one endpoint
+	 */
+	public static class Result {
+		private final String endpoint;
+		private final double confidence;
+		private double coldMillis = Double.NaN;
+		private double[] millis = new double[0];
+		private long errors;
+
+		Result(String endpoint, double confidence) {
+			this.endpoint = endpoint;
+			this.confidence = confidence;
+		}
+
+		public String getEndpoint() {
+			return endpoint;
+		}
+
+		/**
+		 * @return latency of the first request, NaN if it failed
+		 */
+		public double getColdMillis() {
+			return coldMillis;
+		}
+
+		/**
+		 * @return the measured latencies, sorted
+		 */
+		public double[] getMillis() {
+			return millis.clone();
+		}
+
+		/**
+		 * @return failed requests, the cold one and warm-ups included
+		 */
+		public long getErrors() {
+			return errors;
+		}
+
+		public Estimate getMean() {
+			int n = millis.length;
+			if (n == 0) {
+				return new Estimate(0, 0, 0);
+			}
+			double sum = 0;
+			for (double value : millis) {
+				sum += value;
+			}
+			double mean = sum / n;
+			double squares = 0;
+			for (double value : millis) {
+				squares += (value - mean) * (value - mean);
+			}
+			double halfWidth = n > 1 ? Stats.studentQuantile(1 - (1 - confidence) / 2, n - 1) * Math.sqrt(squares / (n - 1) / n) : 0;
+			return new Estimate(mean, mean - halfWidth, mean + halfWidth);
+		}
+
+		public Estimate getMedian() {
+			return quantile(0.5);
+		}
+
+		public Estimate getP99() {
+			return quantile(0.99);
+		}
+
+		/**
+		 * @return the nearest rank quantile, with the order statistics bounding it
+		 */
+		Estimate quantile(double p) {
+			int n = millis.length;
+			if (n == 0) {
+				return new Estimate(0, 0, 0);
+			}
+			double spread = z(confidence) * Math.sqrt(n * p * (1 - p));
+			int rank = Math.max((int) Math.ceil(n * p), 1);
+			int lower = Math.max((int) Math.floor(n * p - spread), 1);
+			int upper = Math.min((int) Math.ceil(n * p + spread), n);
+			return new Estimate(millis[rank - 1], millis[lower - 1], millis[upper - 1]);
+		}
+
+		/**
+		 * @return cold latency over the warm median, 0 if either is missing
+		 */
+		public double getColdRatio() {
+			double median = getMedian().getValue();
+			return Double.isNaN(coldMillis) || median <= 0 ? 0 : coldMillis / median;
+		}
+	}
+
+	/**
+	 * @param confidence level of the intervals, e.g. 0.95
+	 */
+	public RepeatedMeasurement(CtsHttpClient client, int warmup, int iterations, double confidence) {
+		this.client = client;
+		this.warmup = Math.max(warmup, 0);
+		this.iterations = Math.max(iterations, 1);
+		this.confidence = confidence;
+	}
+
+	/**
+	 * Sends the cold request, the warm-ups and the measured requests.
+	 */
+	public Result measure(CtsEndpoint endpoint) {
+		Result result = new Result(endpoint.getName(), confidence);
+		Double cold = send(endpoint, result);
+		if (cold != null) {
+			result.coldMillis = cold;
+		}
+		for (int i = 0; i < warmup; i++) {
+			send(endpoint, result);
+		}
+		List<Double> measured = new ArrayList<>();
+		for (int i = 0; i < iterations; i++) {
+			Double millis = send(endpoint, result);
+			if (millis != null) {
+				measured.add(millis);
+			}
+		}
+		result.millis = new double[measured.size()];
+		for (int i = 0; i < result.millis.length; i++) {
+			result.millis[i] = measured.get(i);
+		}
+		Arrays.sort(result.millis);
+		return result;
+	}
+
+	/**
+	 * @return the latency in milliseconds, or null if the request failed
+	 */
+	private Double send(CtsEndpoint endpoint, Result result) {
+		try {
+			CtsResponse response = client.get(endpoint.getPath());
+			if (response.isSuccess()) {
+				return response.getLatencyNanos() / 1e6;
+			}
+		} catch (IOException e) {
+			// counted below
+		}
+		result.errors++;
+		return null;
+	}
+
+	static double z(double confidence) {
+		return Stats.normalQuantile(1 - (1 - confidence) / 2);
+	}
+
+	public static void print(List<Result> results, double confidence, PrintStream out) {
+		out.println(String.format("%-40s %9s %24s %24s %24s %7s %6s", "endpoint", "cold ms",
+				"mean ms", "median ms", "p99 ms", "cold/x", "errors"));
+		for (Result result : results) {
+			String name = result.endpoint.length() <= 40 ? result.endpoint : result.endpoint.substring(0, 37) + "...";
+			out.println(String.format("%-40s %9.1f %24s %24s %24s %6.1fx %6d", name, result.coldMillis,
+					result.getMean(), result.getMedian(), result.getP99(), result.getColdRatio(), result.errors));
+		}
+		out.println(String.format("[lower, upper] bounds are %.0f%% confidence intervals; cold/x is the cold latency over the warm median",
+				confidence * 100));
+		out.println("cold is the first request of each endpoint; the client itself was cold for the first endpoint only");
+	}
+
+	/**
+	 * Writes one line per endpoint, for comparing service versions.
+	 */
+	public static void write(List<Result> results, String serviceVersion, Path file) throws IOException {
+		if (file.getParent() != null) {
+			Files.createDirectories(file.getParent());
+		}
+		try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			writer.write("endpoint\tserviceVersion\tsamples\tcoldMs\tmeanMs\tmeanLowerMs\tmeanUpperMs"
+					+ "\tmedianMs\tmedianLowerMs\tmedianUpperMs\tp99Ms\tp99LowerMs\tp99UpperMs\terrors\n");
+			for (Result result : results) {
+				Estimate mean = result.getMean();
+				Estimate median = result.getMedian();
+				Estimate p99 = result.getP99();
+				writer.write(String.format(Locale.ROOT, "%s\t%s\t%d\t%.3f\t%.3f\t%.3f\t%.3f\t%.3f\t%.3f\t%.3f\t%.3f\t%.3f\t%.3f\t%d%n",
+						result.endpoint, serviceVersion, result.millis.length, result.coldMillis, mean.value, mean.lower,
+						mean.upper, median.value, median.lower, median.upper, p99.value, p99.lower, p99.upper, result.errors));
+			}
+		}
+	}
+
+	/**
+	 * Measure mode of {@link LexevsRestTestRunner}: sends each of
+	 * MEASURE_ENDPOINTS (default the whole catalog) once cold, MEASURE_WARMUP
+	 * times to warm up and MEASURE_ITERATIONS times measured, with
+	 * MEASURE_CONFIDENCE intervals, and writes MEASURE_OUTPUT_FILE.
+	 */
+	public static void run(LexevsConfig config, PrintStream out) throws IOException {
+		List<CtsEndpoint> catalog = CtsEndpointCatalog.build(config);
+		List<CtsEndpoint> endpoints = new ArrayList<>();
+		for (String name : config.getList("MEASURE_ENDPOINTS")) {
+			CtsEndpoint endpoint = CtsEndpointCatalog.named(catalog, name);
+			if (endpoint == null) {
+				throw new IllegalArgumentException("No endpoint " + name + " in the catalog");
+			}
+			endpoints.add(endpoint);
+		}
+		if (endpoints.isEmpty()) {
+			endpoints = catalog;
+		}
+		int warmup = config.getInt("MEASURE_WARMUP", 10);
+		int iterations = config.getInt("MEASURE_ITERATIONS", 30);
+		double confidence = config.getDouble("MEASURE_CONFIDENCE", 0.95);
+		RepeatedMeasurement measurement = new RepeatedMeasurement(CtsHttpClient.fromConfig(config), warmup, iterations, confidence);
+
+		out.println("Measure: " + endpoints.size() + " endpoints, 1 cold, " + warmup + " warm-up and " + iterations
+				+ " measured requests each, against " + config.getBaseUrl());
+		List<Result> results = new ArrayList<>();
+		for (CtsEndpoint endpoint : endpoints) {
+			results.add(measurement.measure(endpoint));
+		}
+		print(results, confidence, out);
+		Path file = Paths.get(config.get("MEASURE_OUTPUT_FILE", "target/measure.tsv"));
+		write(results, config.getServiceVersion(), file);
+		out.println("Written to " + file);
+	}
+}
@@ -0,0 +1,203 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registry of request timings broken down by phase (DNS, connect, TLS
+ * handshake, first byte, total) with the response statuses and bytes, all
+ * keyed by endpoint template.  It is written out as a Prometheus text file
+ * and as JSON.
+ */
+public class RequestMetrics {
+
+	public static final String DNS = "dns";
+	public static final String CONNECT = "connect";
+	public static final String TLS = "tls";
+	public static final String TTFB = "ttfb";
+	public static final String TOTAL = "total";
+
+	private static final String[] PHASES = { DNS, CONNECT, TLS, TTFB, TOTAL };
+	private static final double[] PERCENTILES = { 50, 90, 99, 99.9 };
+	private static final String[] QUANTILES = { "0.5", "0.9", "0.99", "0.999" };
+
+	private final Map<String, Series> series = new ConcurrentSkipListMap<>();
+
+	private static class Series {
+		final Map<String, Phase> phases = new ConcurrentHashMap<>();
+		final Map<Integer, LongAdder> statuses = new ConcurrentSkipListMap<>();
+		final LongAdder bytes = new LongAdder();
+	}
+
+	private static class Phase {
+		final Histogram histogram = LatencyStats.newHistogram();
+		long sumNanos;
+	}
+
+	/**
+	 * Records the time a request spent in a phase; negative times are ignored.
+	 */
+	public void record(String template, String phase, long nanos) {
+		if (nanos < 0) {
+			return;
+		}
+		Phase p = series(template).phases.computeIfAbsent(phase, k -> new Phase());
+		synchronized (p) {
+			p.histogram.recordValue(Math.min(nanos / 1000, LatencyStats.HIGHEST_TRACKABLE_MICROS));
+			p.sumNanos += nanos;
+		}
+	}
+
+	/**
+	 * Records the status and size of a response.
+	 */
+	public void response(String template, int status, long bytes) {
+		Series s = series(template);
+		s.statuses.computeIfAbsent(status, k -> new LongAdder()).increment();
+		s.bytes.add(Math.max(bytes, 0));
+	}
+
+	/**
+	 * @return a copy of the microsecond timings of a phase, empty if none were recorded
+	 */
+	public Histogram histogram(String template, String phase) {
+		Series s = series.get(template);
+		Phase p = s == null ? null : s.phases.get(phase);
+		if (p == null) {
+			return LatencyStats.newHistogram();
+		}
+		synchronized (p) {
+			return p.histogram.copy();
+		}
+	}
+
+	public long count(String template, int status) {
+		Series s = series.get(template);
+		LongAdder count = s == null ? null : s.statuses.get(status);
+		return count == null ? 0 : count.sum();
+	}
+
+	public long bytes(String template) {
+		Series s = series.get(template);
+		return s == null ? 0 : s.bytes.sum();
+	}
+
+	public Iterable<String> templates() {
+		return series.keySet();
+	}
+
+	/**
+	 * Writes metrics.prom and metrics.json into the directory.
+	 */
+	public void write(Path dir) throws IOException {
+		Files.createDirectories(dir);
+		try (Writer out = Files.newBufferedWriter(dir.resolve("metrics.prom"), StandardCharsets.UTF_8)) {
+			writePrometheus(out);
+		}
+		try (Writer out = Files.newBufferedWriter(dir.resolve("metrics.json"), StandardCharsets.UTF_8)) {
+			writeJson(out);
+		}
+	}
+
+	/**
+	 * Writes the Prometheus text exposition format: a summary of the phase
+	 * times in seconds, and counters of responses and bytes.
+	 */
+	public void writePrometheus(Writer writer) {
+		PrintWriter out = new PrintWriter(writer);
+		out.println("# HELP cts_request_phase_seconds Time spent in each phase of a request.");
+		out.println("# TYPE cts_request_phase_seconds summary");
+		for (String template : templates()) {
+			for (String phase : PHASES) {
+				Phase p = series.get(template).phases.get(phase);
+				if (p == null) {
+					continue;
+				}
+				String labels = "template=\"" + escape(template) + "\",phase=\"" + phase + "\"";
+				synchronized (p) {
+					for (int i = 0; i < PERCENTILES.length; i++) {
+						out.println("cts_request_phase_seconds{" + labels + ",quantile=\"" + QUANTILES[i] + "\"} "
+								+ p.histogram.getValueAtPercentile(PERCENTILES[i]) / 1e6);
+					}
+					out.println("cts_request_phase_seconds_sum{" + labels + "} " + p.sumNanos / 1e9);
+					out.println("cts_request_phase_seconds_count{" + labels + "} " + p.histogram.getTotalCount());
+				}
+			}
+		}
+		out.println("# HELP cts_responses_total Responses received, by status.");
+		out.println("# TYPE cts_responses_total counter");
+		for (String template : templates()) {
+			for (Map.Entry<Integer, LongAdder> status : series.get(template).statuses.entrySet()) {
+				out.println("cts_responses_total{template=\"" + escape(template) + "\",status=\"" + status.getKey() + "\"} "
+						+ status.getValue().sum());
+			}
+		}
+		out.println("# HELP cts_response_bytes_total Response body bytes received.");
+		out.println("# TYPE cts_response_bytes_total counter");
+		for (String template : templates()) {
+			out.println("cts_response_bytes_total{template=\"" + escape(template) + "\"} " + bytes(template));
+		}
+		out.flush();
+	}
+
+	/**
+	 * Writes one object per template with its statuses, bytes, and count,
+	 * mean and percentiles in milliseconds of every phase.
+	 */
+	public void writeJson(Writer out) throws IOException {
+		ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT)
+				.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+		ObjectNode root = mapper.createObjectNode();
+		for (String template : templates()) {
+			Series s = series.get(template);
+			ObjectNode node = root.putObject(template);
+			ObjectNode statuses = node.putObject("status");
+			for (Map.Entry<Integer, LongAdder> status : s.statuses.entrySet()) {
+				statuses.put(String.valueOf(status.getKey()), status.getValue().sum());
+			}
+			node.put("bytes", s.bytes.sum());
+			ObjectNode phases = node.putObject("phases");
+			for (String phase : PHASES) {
+				if (!s.phases.containsKey(phase)) {
+					continue;
+				}
+				Histogram histogram = histogram(template, phase);
+				ObjectNode p = phases.putObject(phase);
+				p.put("count", histogram.getTotalCount());
+				p.put("meanMs", histogram.getMean() / 1000.0);
+				for (double percentile : PERCENTILES) {
+					p.put("p" + trim(percentile) + "Ms", LatencyStats.millis(histogram, percentile));
+				}
+				p.put("maxMs", histogram.getMaxValue() / 1000.0);
+			}
+		}
+		mapper.writeValue(out, root);
+	}
+
+	private static String trim(double percentile) {
+		String s = String.valueOf(percentile);
+		return s.endsWith(".0") ? s.substring(0, s.length() - 2) : s;
+	}
+
+	private static String escape(String label) {
+		return label.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+
+	private Series series(String template) {
+		return series.computeIfAbsent(template, k -> new Series());
+	}
+}
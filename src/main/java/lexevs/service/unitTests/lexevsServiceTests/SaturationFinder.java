@@ -0,0 +1,185 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finds the highest arrival rate an endpoint family sustains: the rate is
+ * raised step by step with {@link OpenLoadGenerator}, each step held long
+ * enough to settle, until the p99 latency or the error rate of a step goes
+ * over its threshold.
+ */
+public class SaturationFinder {
+
+	private final CtsHttpClient client;
+	private final double startRate;
+	private final double stepFactor;
+	private final double maxRate;
+	private final long settleNanos;
+	private final long holdNanos;
+	private final double maxP99Millis;
+	private final double maxErrorRate;
+	private final int maxConcurrency;
+	private final PrintStream out;
+
+	/**
+	 * One step of the ramp
+	 */
+	public static class Step {
+		private final double rate;
+		private final Histogram latency;
+		private final long errors;
+		private final boolean sustained;
+
+		Step(double rate, Histogram latency, long errors, boolean sustained) {
+			this.rate = rate;
+			this.latency = latency;
+			this.errors = errors;
+			this.sustained = sustained;
+		}
+
+		public double getRate() {
+			return rate;
+		}
+
+		/**
+		 * @return latencies from the intended send time, in microseconds
+		 */
+		public Histogram getLatency() {
+			return latency;
+		}
+
+		public double getErrorRate() {
+			long requests = latency.getTotalCount();
+			return requests > 0 ? (double) errors / requests : errors > 0 ? 1 : 0;
+		}
+
+		public boolean isSustained() {
+			return sustained;
+		}
+	}
+
+	/**
+	 * @param stepFactor rate of a step over that of the step before, e.g. 1.5
+	 * @throws IllegalArgumentException unless the rates make at least one step and each step is faster than the last
+	 */
+	public SaturationFinder(CtsHttpClient client, double startRate, double stepFactor, double maxRate, long settleNanos,
+			long holdNanos, double maxP99Millis, double maxErrorRate, int maxConcurrency, PrintStream out) {
+		if (!(startRate > 0)) {
+			throw new IllegalArgumentException("Start rate " + startRate + " is not positive");
+		}
+		if (!(stepFactor > 1)) {
+			throw new IllegalArgumentException("Step factor " + stepFactor + " does not raise the rate");
+		}
+		if (startRate > maxRate) {
+			throw new IllegalArgumentException("Start rate " + startRate + " is over the maximum rate " + maxRate);
+		}
+		this.client = client;
+		this.startRate = startRate;
+		this.stepFactor = stepFactor;
+		this.maxRate = maxRate;
+		this.settleNanos = settleNanos;
+		this.holdNanos = holdNanos;
+		this.maxP99Millis = maxP99Millis;
+		this.maxErrorRate = maxErrorRate;
+		this.maxConcurrency = maxConcurrency;
+		this.out = out;
+	}
+
+	/**
+	 * Ramps the rate on the endpoints, equally weighted, up to the first step
+	 * over a threshold or to the maximum rate.
+	 *
+	 * @return the steps run, the last one being the first not sustained unless the maximum rate was reached
+	 */
+	public List<Step> ramp(String label, List<CtsEndpoint> endpoints) throws InterruptedException {
+		List<Step> steps = new ArrayList<>();
+		for (double rate = startRate; rate <= maxRate; rate *= stepFactor) {
+			OpenLoadGenerator load = new OpenLoadGenerator(client, OpenLoadGenerator.Mix.uniform(endpoints), rate,
+					settleNanos + holdNanos, maxConcurrency, steps.size());
+			load.setWarmupNanos(settleNanos);
+			load.run();
+
+			Histogram latency = LatencyStats.newHistogram();
+			long errors = 0;
+			for (String key : load.getIntended().keys()) {
+				latency.add(load.getIntended().total(key));
+				errors += load.getIntended().errors(key);
+			}
+			long requests = latency.getTotalCount();
+			double errorRate = requests > 0 ? (double) errors / requests : errors > 0 ? 1 : 0;
+			Step step = new Step(rate, latency, errors, LatencyStats.millis(latency, 99) <= maxP99Millis && errorRate <= maxErrorRate);
+			steps.add(step);
+			out.println(String.format("%-20s %9.1f %9d %8.2f %9.1f %9.1f %9.1f %s", label, rate, latency.getTotalCount(),
+					step.getErrorRate() * 100, LatencyStats.millis(latency, 50), LatencyStats.millis(latency, 99),
+					latency.getMaxValue() / 1000.0, step.isSustained() ? "ok" : "KNEE"));
+			if (!step.isSustained()) {
+				break;
+			}
+		}
+		return steps;
+	}
+
+	/**
+	 * @return the highest rate sustained, 0 if even the first step was not
+	 */
+	public static double maxSustainedRate(List<Step> steps) {
+		double max = 0;
+		for (Step step : steps) {
+			if (step.isSustained()) {
+				max = Math.max(max, step.getRate());
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * Saturate mode of {@link LexevsRestTestRunner}: ramps each of SATURATE_FAMILIES
+	 * from SATURATE_START_RATE by SATURATE_STEP_FACTOR up to SATURATE_MAX_RATE,
+	 * SATURATE_SETTLE_SECONDS + SATURATE_STEP_SECONDS a step, until p99 passes
+	 * SATURATE_MAX_P99_MS or the error rate SATURATE_MAX_ERROR_RATE.
+	 */
+	public static void run(LexevsConfig config, PrintStream out) throws InterruptedException {
+		List<CtsEndpoint> catalog = CtsEndpointCatalog.build(config);
+		Set<String> families = new LinkedHashSet<>(config.getList("SATURATE_FAMILIES"));
+		if (families.isEmpty()) {
+			for (CtsEndpoint endpoint : catalog) {
+				families.add(endpoint.getFamily());
+			}
+		}
+		int maxConcurrency = config.getInt("SATURATE_MAX_CONCURRENCY", 500);
+		if (System.getProperty("http.maxConnections") == null) {
+			System.setProperty("http.maxConnections", Integer.toString(maxConcurrency));
+		}
+		double maxP99 = config.getDouble("SATURATE_MAX_P99_MS", 1000);
+		double maxErrorRate = config.getDouble("SATURATE_MAX_ERROR_RATE", 0.01);
+		SaturationFinder finder = new SaturationFinder(CtsHttpClient.fromConfig(config), config.getDouble("SATURATE_START_RATE", 5),
+				config.getDouble("SATURATE_STEP_FACTOR", 1.5), config.getDouble("SATURATE_MAX_RATE", 1000),
+				TimeUnit.SECONDS.toNanos(config.getLong("SATURATE_SETTLE_SECONDS", 10)),
+				TimeUnit.SECONDS.toNanos(config.getLong("SATURATE_STEP_SECONDS", 30)), maxP99, maxErrorRate, maxConcurrency, out);
+
+		out.println("Saturate: p99 up to " + maxP99 + " ms, errors up to " + (maxErrorRate * 100) + "%, against " + config.getBaseUrl());
+		out.println(String.format("%-20s %9s %9s %8s %9s %9s %9s", "family", "req/s", "count", "error %", "p50 ms", "p99 ms", "max ms"));
+		List<String> summary = new ArrayList<>();
+		for (String family : families) {
+			List<CtsEndpoint> endpoints = CtsEndpointCatalog.family(catalog, family);
+			if (endpoints.isEmpty()) {
+				throw new IllegalArgumentException("No endpoint of family " + family + " in the catalog");
+			}
+			List<Step> steps = finder.ramp(family, endpoints);
+			boolean capped = steps.get(steps.size() - 1).isSustained();
+			summary.add(String.format("%-20s %9.1f req/s%s", family, maxSustainedRate(steps), capped ? " (SATURATE_MAX_RATE reached)" : ""));
+		}
+		out.println();
+		out.println("Max sustainable throughput");
+		for (String line : summary) {
+			out.println(line);
+		}
+	}
+}
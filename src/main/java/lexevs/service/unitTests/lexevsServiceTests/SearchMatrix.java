@@ -0,0 +1,199 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Benchmarks every match algorithm x filter component combination of the
+ * search endpoints with several match values.  The cells are interleaved on
+ * every iteration so drift in the service affects them all alike, and a
+ * cell far slower than the fastest of its resource is flagged as a likely
+ * full scan.
+ */
+public class SearchMatrix {
+
+	public static final List<String> RESOURCES = Arrays.asList("codesystemversions", "entities", "valuesets");
+	public static final List<String> MATCH_ALGORITHMS = Arrays.asList("contains", "exactMatch", "luceneQuery", "startsWith");
+	public static final List<String> FILTER_COMPONENTS = Arrays.asList("resourceName", "resourceSynopsis", "about");
+
+	private final CtsHttpClient client;
+	private final int iterations;
+	private final int maxToReturn;
+	private final double scanFactor;
+	private final double scanMinMillis;
+
+	/**
+	 * One combination of resource, match algorithm and filter component
+	 */
+	public static class Cell {
+		private final String resource;
+		private final String matchAlgorithm;
+		private final String filterComponent;
+		private final Histogram latency = LatencyStats.newHistogram();
+		private long errors;
+		private boolean fullScan;
+		private double slowdown;
+
+		Cell(String resource, String matchAlgorithm, String filterComponent) {
+			this.resource = resource;
+			this.matchAlgorithm = matchAlgorithm;
+			this.filterComponent = filterComponent;
+		}
+
+		String request(String matchValue, int maxToReturn) {
+			return "/" + resource + "?matchvalue=" + matchValue + "&filtercomponent=" + filterComponent
+					+ "&matchalgorithm=" + matchAlgorithm + "&maxtoreturn=" + maxToReturn + "&format=json";
+		}
+
+		public String getResource() {
+			return resource;
+		}
+
+		public String getMatchAlgorithm() {
+			return matchAlgorithm;
+		}
+
+		public String getFilterComponent() {
+			return filterComponent;
+		}
+
+		/**
+		 * @return latencies in microseconds
+		 */
+		public Histogram getLatency() {
+			return latency;
+		}
+
+		public long getErrors() {
+			return errors;
+		}
+
+		/**
+		 * @return median latency over that of the fastest cell of the resource
+		 */
+		public double getSlowdown() {
+			return slowdown;
+		}
+
+		public boolean isFullScan() {
+			return fullScan;
+		}
+	}
+
+	/**
+	 * @param scanFactor    slowdown over the fastest cell of the resource above which a cell is flagged
+	 * @param scanMinMillis median latency below which a cell is never flagged
+	 */
+	public SearchMatrix(CtsHttpClient client, int iterations, int maxToReturn, double scanFactor, double scanMinMillis) {
+		this.client = client;
+		this.iterations = Math.max(iterations, 1);
+		this.maxToReturn = maxToReturn;
+		this.scanFactor = scanFactor;
+		this.scanMinMillis = scanMinMillis;
+	}
+
+	/**
+	 * Runs every cell of the resources with each of their match values.
+	 *
+	 * @param matchValues match values per resource
+	 */
+	public List<Cell> run(Map<String, List<String>> matchValues) {
+		List<Cell> cells = new ArrayList<>();
+		for (String resource : matchValues.keySet()) {
+			for (String matchAlgorithm : MATCH_ALGORITHMS) {
+				for (String filterComponent : FILTER_COMPONENTS) {
+					cells.add(new Cell(resource, matchAlgorithm, filterComponent));
+				}
+			}
+		}
+
+		// untimed pass so caches are as warm for the first cell as for the last
+		for (Cell cell : cells) {
+			for (String matchValue : matchValues.get(cell.resource)) {
+				try {
+					client.get(cell.request(matchValue, maxToReturn));
+				} catch (IOException e) {
+					// the timed passes count it
+				}
+			}
+		}
+		for (int i = 0; i < iterations; i++) {
+			for (Cell cell : cells) {
+				for (String matchValue : matchValues.get(cell.resource)) {
+					try {
+						CtsResponse response = client.get(cell.request(matchValue, maxToReturn));
+						if (response.isSuccess()) {
+							cell.latency.recordValue(Math.min(response.getLatencyNanos() / 1000, LatencyStats.HIGHEST_TRACKABLE_MICROS));
+						} else {
+							cell.errors++;
+						}
+					} catch (IOException e) {
+						// a read timeout is likely on the very full scans the matrix looks for
+						cell.errors++;
+					}
+				}
+			}
+		}
+
+		flagFullScans(cells);
+		return cells;
+	}
+
+	private void flagFullScans(List<Cell> cells) {
+		Map<String, Double> fastest = new LinkedHashMap<>();
+		for (Cell cell : cells) {
+			if (cell.latency.getTotalCount() > 0) {
+				fastest.merge(cell.resource, LatencyStats.millis(cell.latency, 50), Math::min);
+			}
+		}
+		for (Cell cell : cells) {
+			Double baseline = fastest.get(cell.resource);
+			if (cell.latency.getTotalCount() == 0 || baseline == null) {
+				continue;
+			}
+			double median = LatencyStats.millis(cell.latency, 50);
+			cell.slowdown = baseline > 0 ? median / baseline : 1;
+			cell.fullScan = median >= scanMinMillis && cell.slowdown >= scanFactor;
+		}
+	}
+
+	public static void print(List<Cell> cells, PrintStream out) {
+		out.println(String.format("%-20s %-12s %-17s %7s %7s %9s %9s %9s %9s %9s",
+				"resource", "algorithm", "filter", "count", "errors", "p50 ms", "p90 ms", "p99 ms", "max ms", "slowdown"));
+		for (Cell cell : cells) {
+			Histogram latency = cell.latency;
+			out.println(String.format("%-20s %-12s %-17s %7d %7d %9.1f %9.1f %9.1f %9.1f %8.1fx%s",
+					cell.resource, cell.matchAlgorithm, cell.filterComponent, latency.getTotalCount(), cell.errors,
+					LatencyStats.millis(latency, 50), LatencyStats.millis(latency, 90), LatencyStats.millis(latency, 99),
+					latency.getMaxValue() / 1000.0, cell.slowdown, cell.fullScan ? "  FULL SCAN?" : ""));
+		}
+	}
+
+	/**
+	 * Matrix mode of {@link LexevsRestTestRunner}: MATRIX_VALUES.&lt;resource&gt;
+	 * lists the match values of each resource, MATRIX_ITERATIONS the timed
+	 * passes, and MATRIX_SCAN_FACTOR / MATRIX_SCAN_MIN_MS when a cell is flagged.
+	 */
+	public static void run(LexevsConfig config, PrintStream out) {
+		Map<String, List<String>> matchValues = new LinkedHashMap<>();
+		for (String resource : RESOURCES) {
+			List<String> values = config.getList("MATRIX_VALUES." + resource);
+			if (!values.isEmpty()) {
+				matchValues.put(resource, values);
+			}
+		}
+		SearchMatrix matrix = new SearchMatrix(CtsHttpClient.fromConfig(config), config.getInt("MATRIX_ITERATIONS", 5),
+				config.getInt("MATRIX_MAXTORETURN", 50), config.getDouble("MATRIX_SCAN_FACTOR", 10),
+				config.getDouble("MATRIX_SCAN_MIN_MS", 500));
+
+		out.println("Matrix: " + matchValues + ", " + config.getInt("MATRIX_ITERATIONS", 5) + " iterations, against " + config.getBaseUrl());
+		print(matrix.run(matchValues), out);
+	}
+}
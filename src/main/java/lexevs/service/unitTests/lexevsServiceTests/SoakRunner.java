@@ -0,0 +1,311 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Long-running read workload: a fixed number of simulated users loop over
+ * the endpoint catalog for hours.  Latency and errors are rolled up per
+ * time window, and a p99 or error rate that creeps up from the first
+ * windows to the last is reported as drift, the usual sign of a leak or
+ * of a cache thrashing on the server.
+ */
+public class SoakRunner {
+
+	private final CtsHttpClient client;
+	private final List<CtsEndpoint> endpoints;
+	private final int users;
+	private final long durationNanos;
+	private final long windowNanos;
+	private final long thinkNanos;
+	private final double driftFactor;
+	private final int baselineWindows;
+	private final PrintStream out;
+
+	private final Recorder window = new Recorder(LatencyStats.HIGHEST_TRACKABLE_MICROS, LatencyStats.SIGNIFICANT_DIGITS);
+	private final LongAdder windowErrors = new LongAdder();
+	private final LatencyStats stats = new LatencyStats();
+	private volatile boolean stopped;
+
+	/**
+	 * Latency and errors of one time window
+	 */
+	public static class Window {
+		private final long offsetNanos;
+		private final Histogram latency;
+		private final long errors;
+
+		public Window(long offsetNanos, Histogram latency, long errors) {
+			this.offsetNanos = offsetNanos;
+			this.latency = latency;
+			this.errors = errors;
+		}
+
+		/**
+		 * @return time from the start of the soak to the start of the window
+		 */
+		public long getOffsetNanos() {
+			return offsetNanos;
+		}
+
+		/**
+		 * @return latencies of the successful requests, in microseconds
+		 */
+		public Histogram getLatency() {
+			return latency;
+		}
+
+		public long getErrors() {
+			return errors;
+		}
+
+		public double getErrorRate() {
+			long requests = latency.getTotalCount() + errors;
+			return requests > 0 ? (double) errors / requests : 0;
+		}
+
+		public double getP99Millis() {
+			return LatencyStats.millis(latency, 99);
+		}
+	}
+
+	/**
+	 * Change from the first windows to the last
+	 */
+	public static class Drift {
+		private final double baselineP99Millis;
+		private final double finalP99Millis;
+		private final double slopeMillisPerHour;
+		private final double baselineErrorRate;
+		private final double finalErrorRate;
+		private final boolean latencyDrift;
+		private final boolean errorDrift;
+
+		Drift(double baselineP99Millis, double finalP99Millis, double slopeMillisPerHour, double baselineErrorRate,
+				double finalErrorRate, boolean latencyDrift, boolean errorDrift) {
+			this.baselineP99Millis = baselineP99Millis;
+			this.finalP99Millis = finalP99Millis;
+			this.slopeMillisPerHour = slopeMillisPerHour;
+			this.baselineErrorRate = baselineErrorRate;
+			this.finalErrorRate = finalErrorRate;
+			this.latencyDrift = latencyDrift;
+			this.errorDrift = errorDrift;
+		}
+
+		public boolean isLatencyDrift() {
+			return latencyDrift;
+		}
+
+		public boolean isErrorDrift() {
+			return errorDrift;
+		}
+
+		public double getSlopeMillisPerHour() {
+			return slopeMillisPerHour;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("p99 %.1f ms -> %.1f ms (%+.1f ms/hour)%s, error rate %.2f%% -> %.2f%%%s",
+					baselineP99Millis, finalP99Millis, slopeMillisPerHour, latencyDrift ? " LATENCY DRIFT" : "",
+					baselineErrorRate * 100, finalErrorRate * 100, errorDrift ? " ERROR DRIFT" : "");
+		}
+	}
+
+	/**
+	 * @param thinkNanos    pause of each user between two requests
+	 * @param driftFactor   p99 over that of the baseline windows from which a window is flagged
+	 * @param baselineWindows windows at the start and at the end compared for drift
+	 */
+	public SoakRunner(CtsHttpClient client, List<CtsEndpoint> endpoints, int users, long durationNanos, long windowNanos,
+			long thinkNanos, double driftFactor, int baselineWindows, PrintStream out) {
+		this.client = client;
+		this.endpoints = endpoints;
+		this.users = users;
+		this.durationNanos = durationNanos;
+		this.windowNanos = windowNanos;
+		this.thinkNanos = thinkNanos;
+		this.driftFactor = driftFactor;
+		this.baselineWindows = Math.max(baselineWindows, 1);
+		this.out = out;
+	}
+
+	/**
+	 * Runs the soak, printing each window as it closes.
+	 *
+	 * @return the windows in order
+	 */
+	public List<Window> run() throws InterruptedException {
+		ThreadFactory threads = userThreads();
+		List<Thread> running = new ArrayList<>();
+		for (int i = 0; i < users; i++) {
+			int user = i;
+			Thread thread = threads.newThread(() -> simulate(user));
+			thread.start();
+			running.add(thread);
+		}
+
+		List<Window> windows = new ArrayList<>();
+		long start = System.nanoTime();
+		window.reset();
+		out.println(String.format("%10s %9s %7s %8s %9s %9s %9s %9s", "minute", "count", "errors", "error %", "p50 ms", "p90 ms", "p99 ms", "max ms"));
+		for (long offset = 0; offset < durationNanos; offset += windowNanos) {
+			LoadGenerator.pauseUntil(start + Math.min(offset + windowNanos, durationNanos));
+			windows.add(close(offset, windows));
+		}
+		stopped = true;
+		for (Thread thread : running) {
+			thread.join();
+		}
+		return windows;
+	}
+
+	private void simulate(int user) {
+		long n = user;
+		while (!stopped) {
+			CtsEndpoint endpoint = endpoints.get((int) (n++ % endpoints.size()));
+			try {
+				CtsResponse response = client.get(endpoint.getPath());
+				stats.record(endpoint.getFamily(), response);
+				if (response.isSuccess()) {
+					window.recordValue(Math.min(response.getLatencyNanos() / 1000, LatencyStats.HIGHEST_TRACKABLE_MICROS));
+				} else {
+					windowErrors.increment();
+				}
+			} catch (IOException e) {
+				stats.error(endpoint.getFamily());
+				windowErrors.increment();
+			}
+			if (thinkNanos > 0 && !stopped) {
+				LoadGenerator.pauseUntil(System.nanoTime() + thinkNanos);
+			}
+		}
+	}
+
+	private Window close(long offset, List<Window> previous) {
+		Window closed = new Window(offset, window.getIntervalHistogram(), windowErrors.sumThenReset());
+		Histogram latency = closed.latency;
+		boolean drift = previous.size() >= baselineWindows
+				&& closed.getP99Millis() > driftFactor * baselineP99(previous.subList(0, baselineWindows));
+		out.println(String.format("%10.1f %9d %7d %8.2f %9.1f %9.1f %9.1f %9.1f%s",
+				offset / 60e9, latency.getTotalCount(), closed.errors, closed.getErrorRate() * 100,
+				LatencyStats.millis(latency, 50), LatencyStats.millis(latency, 90), closed.getP99Millis(),
+				latency.getMaxValue() / 1000.0, drift ? "  DRIFT" : ""));
+		return closed;
+	}
+
+	/**
+	 * Compares the first and the last windows: their median p99 and their
+	 * error rates, and fits a line through the p99 of every window.
+	 *
+	 * @param errorRateDrift rise of the error rate, e.g. 0.01 for one point, from which errors drift
+	 */
+	public static Drift analyze(List<Window> windows, int baselineWindows, double driftFactor, double errorRateDrift) {
+		int n = Math.max(Math.min(baselineWindows, windows.size() / 2), 1);
+		List<Window> first = windows.subList(0, Math.min(n, windows.size()));
+		List<Window> last = windows.subList(Math.max(windows.size() - n, 0), windows.size());
+		double baseline = baselineP99(first);
+		double end = baselineP99(last);
+		double baselineErrors = errorRate(first);
+		double endErrors = errorRate(last);
+
+		// least squares slope of p99 over time
+		double sumX = 0, sumY = 0, sumXY = 0, sumXX = 0;
+		for (Window w : windows) {
+			double hours = w.offsetNanos / 3600e9;
+			sumX += hours;
+			sumY += w.getP99Millis();
+			sumXY += hours * w.getP99Millis();
+			sumXX += hours * hours;
+		}
+		double denominator = windows.size() * sumXX - sumX * sumX;
+		double slope = denominator > 0 ? (windows.size() * sumXY - sumX * sumY) / denominator : 0;
+
+		return new Drift(baseline, end, slope, baselineErrors, endErrors,
+				windows.size() > n && end > driftFactor * baseline, windows.size() > n && endErrors > baselineErrors + errorRateDrift);
+	}
+
+	private static double baselineP99(List<Window> windows) {
+		double[] p99 = new double[windows.size()];
+		for (int i = 0; i < p99.length; i++) {
+			p99[i] = windows.get(i).getP99Millis();
+		}
+		Arrays.sort(p99);
+		return p99.length > 0 ? p99[p99.length / 2] : 0;
+	}
+
+	private static double errorRate(List<Window> windows) {
+		long errors = 0;
+		long requests = 0;
+		for (Window w : windows) {
+			errors += w.errors;
+			requests += w.errors + w.latency.getTotalCount();
+		}
+		return requests > 0 ? (double) errors / requests : 0;
+	}
+
+	public LatencyStats getStats() {
+		return stats;
+	}
+
+	/**
+	 * @return virtual threads on a JVM that has them (Java 21+), otherwise
+	 *         daemon threads with a small stack so thousands of users stay affordable
+	 */
+	static ThreadFactory userThreads() {
+		try {
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			builder = builder.getClass().getMethod("name", String.class, long.class).invoke(builder, "soak-", 0L);
+			return (ThreadFactory) builder.getClass().getMethod("factory").invoke(builder);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return new ThreadFactory() {
+				private int next;
+
+				@Override
+				public synchronized Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(null, runnable, "soak-" + next++, 256 * 1024);
+					thread.setDaemon(true);
+					return thread;
+				}
+			};
+		}
+	}
+
+	/**
+	 * Soak mode of {@link LexevsRestTestRunner}: SOAK_USERS users, each pausing
+	 * SOAK_THINK_MS between requests, for SOAK_DURATION_MINUTES, in windows of
+	 * SOAK_WINDOW_SECONDS.  Drift is judged against the first and last
+	 * SOAK_BASELINE_WINDOWS windows with SOAK_DRIFT_FACTOR and SOAK_ERROR_RATE_DRIFT.
+	 */
+	public static void run(LexevsConfig config, PrintStream out) throws InterruptedException {
+		int users = config.getInt("SOAK_USERS", 50);
+		// HttpURLConnection keeps only 5 idle connections per host unless told otherwise
+		if (System.getProperty("http.maxConnections") == null) {
+			System.setProperty("http.maxConnections", Integer.toString(users));
+		}
+		long minutes = config.getLong("SOAK_DURATION_MINUTES", 240);
+		double driftFactor = config.getDouble("SOAK_DRIFT_FACTOR", 1.5);
+		int baselineWindows = config.getInt("SOAK_BASELINE_WINDOWS", 5);
+		List<CtsEndpoint> endpoints = CtsEndpointCatalog.build(config);
+
+		out.println("Soak: " + endpoints.size() + " endpoints, " + users + " users, " + minutes + " minutes against " + config.getBaseUrl());
+		SoakRunner soak = new SoakRunner(CtsHttpClient.fromConfig(config), endpoints, users, TimeUnit.MINUTES.toNanos(minutes),
+				TimeUnit.SECONDS.toNanos(config.getLong("SOAK_WINDOW_SECONDS", 60)), TimeUnit.MILLISECONDS.toNanos(config.getLong("SOAK_THINK_MS", 0)),
+				driftFactor, baselineWindows, out);
+		long start = System.nanoTime();
+		List<Window> windows = soak.run();
+		out.println();
+		soak.getStats().print(out, System.nanoTime() - start);
+		out.println();
+		out.println("Drift: " + analyze(windows, baselineWindows, driftFactor, config.getDouble("SOAK_ERROR_RATE_DRIFT", 0.01)));
+	}
+}
@@ -0,0 +1,102 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import java.util.Arrays;
+
+/**
+ * Distribution functions and the median, shared by the statistical tests
+ * and the repeated measurements
+ */
+public class Stats {
+
+	private Stats() {
+	}
+
+	/**
+	 * Standard normal distribution function, from the error function
+	 * approximation 7.1.26 of Abramowitz and Stegun (error below 1.5e-7).
+	 */
+	static double normalCdf(double z) {
+		double x = Math.abs(z) / Math.sqrt(2);
+		double t = 1 / (1 + 0.3275911 * x);
+		double erf = 1 - t * (0.254829592 + t * (-0.284496736 + t * (1.421413741
+				+ t * (-1.453152027 + t * 1.061405429)))) * Math.exp(-x * x);
+		return z >= 0 ? (1 + erf) / 2 : (1 - erf) / 2;
+	}
+
+	/**
+	 * Inverse of {@link #normalCdf}, by bisection, e.g. 1.96 for 0.975.
+	 */
+	static double normalQuantile(double p) {
+		double low = -10;
+		double high = 10;
+		for (int i = 0; i < 60; i++) {
+			double middle = (low + high) / 2;
+			if (normalCdf(middle) < p) {
+				low = middle;
+			} else {
+				high = middle;
+			}
+		}
+		return (low + high) / 2;
+	}
+
+	/**
+	 * Student's t distribution function for whole degrees of freedom, from
+	 * the finite series 26.7.3 and 26.7.4 of Abramowitz and Stegun.
+	 */
+	static double studentCdf(double t, int degrees) {
+		double theta = Math.atan(Math.abs(t) / Math.sqrt(degrees));
+		double cos2 = Math.cos(theta) * Math.cos(theta);
+		double sum;
+		double term;
+		if (degrees % 2 == 1) {
+			sum = 0;
+			term = Math.cos(theta);
+			for (int k = 3; k <= degrees; k += 2) {
+				sum += term;
+				term *= cos2 * (k - 1) / k;
+			}
+			sum = 2 / Math.PI * (theta + Math.sin(theta) * sum);
+		} else {
+			sum = 0;
+			term = 1;
+			for (int k = 2; k <= degrees; k += 2) {
+				sum += term;
+				term *= cos2 * (k - 1) / k;
+			}
+			sum *= Math.sin(theta);
+		}
+		return t >= 0 ? (1 + sum) / 2 : (1 - sum) / 2;
+	}
+
+	/**
+	 * Inverse of {@link #studentCdf}, by bisection, e.g. 2.045 for 0.975 and
+	 * 29 degrees of freedom.
+	 */
+	static double studentQuantile(double p, int degrees) {
+		double low = -1e6;
+		double high = 1e6;
+		for (int i = 0; i < 100; i++) {
+			double middle = (low + high) / 2;
+			if (studentCdf(middle, degrees) < p) {
+				low = middle;
+			} else {
+				high = middle;
+			}
+		}
+		return (low + high) / 2;
+	}
+
+	/**
+	 * @return the median, or 0 for no values
+	 */
+	public static double median(double[] values) {
+		if (values.length == 0) {
+			return 0;
+		}
+		double[] sorted = values.clone();
+		Arrays.sort(sorted);
+		int middle = sorted.length / 2;
+		return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+	}
+}
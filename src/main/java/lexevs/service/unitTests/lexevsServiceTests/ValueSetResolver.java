@@ -0,0 +1,317 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Resolves every value set the service has resolutions of, the way the
+ * nightly value set sync does.  The <code>/resolvedvaluesets</code>
+ * directory is paged through to list them.  Each one is then resolved
+ * through <code>/valueset/{name}/definition/{id}/resolution/{n}</code> on a
+ * bounded pool of workers, following its <code>next</code> pages.  Members
+ * are streamed to one newline-delimited JSON file per value set, and each
+ * value set is timed so the ones that dominate the sync stand out.
+ */
+public class ValueSetResolver {
+
+	private static final Pattern RESOLUTION = Pattern.compile("/resolution/([^/?]+)");
+
+	private final CtsHttpClient client;
+	private final int concurrency;
+	private final int pageSize;
+	private final Path outputDir;
+
+	/**
+	 * A resolution listed in /resolvedvaluesets
+	 */
+	public static class Resolution {
+		private final String valueSet;
+		private final String definition;
+		private final String id;
+
+		public Resolution(String valueSet, String definition, String id) {
+			this.valueSet = valueSet;
+			this.definition = definition;
+			this.id = id;
+		}
+
+		public String getValueSet() {
+			return valueSet;
+		}
+
+		public String getDefinition() {
+			return definition;
+		}
+
+		public String getId() {
+			return id;
+		}
+
+		/**
+		 * @return the request of the first page of members
+		 */
+		public String path(int pageSize) {
+			return "/valueset/" + valueSet + "/definition/" + definition + "/resolution/" + id
+					+ "?format=json&maxtoreturn=" + pageSize;
+		}
+
+		@Override
+		public String toString() {
+			return valueSet + " " + definition + "/" + id;
+		}
+	}
+
+	/**
+	 * Timing of one value set
+	 */
+	public static class Timing {
+		private final Resolution resolution;
+		private long members;
+		private int pages;
+		private long bytes;
+		private long firstByteNanos;
+		private long elapsedNanos;
+		private String error;
+
+		Timing(Resolution resolution) {
+			this.resolution = resolution;
+		}
+
+		public Resolution getResolution() {
+			return resolution;
+		}
+
+		public long getMembers() {
+			return members;
+		}
+
+		public int getPages() {
+			return pages;
+		}
+
+		public long getBytes() {
+			return bytes;
+		}
+
+		/**
+		 * @return time to the first byte of the first page
+		 */
+		public long getFirstByteNanos() {
+			return firstByteNanos;
+		}
+
+		/**
+		 * @return time to resolve every page, body included
+		 */
+		public long getElapsedNanos() {
+			return elapsedNanos;
+		}
+
+		/**
+		 * @return why the resolution failed, null if it did not
+		 */
+		public String getError() {
+			return error;
+		}
+	}
+
+	public ValueSetResolver(CtsHttpClient client, int concurrency, int pageSize, Path outputDir) {
+		this.client = client;
+		this.concurrency = Math.max(concurrency, 1);
+		this.pageSize = pageSize;
+		this.outputDir = outputDir;
+	}
+
+	/**
+	 * Pages through /resolvedvaluesets.
+	 *
+	 * @param limit resolutions to list at most, 0 for all of them
+	 */
+	public List<Resolution> list(int limit) throws IOException {
+		List<Resolution> resolutions = new ArrayList<>();
+		String request = "/resolvedvaluesets?format=json&maxtoreturn=" + pageSize;
+		while (request != null && (limit <= 0 || resolutions.size() < limit)) {
+			DirectoryStreamReader page = new DirectoryStreamReader("ResolvedValueSetDirectory");
+			CtsResponse response = client.get(request, body -> page.read(body, (index, entry) -> {
+				Resolution resolution = resolution(entry);
+				if (resolution != null && (limit <= 0 || resolutions.size() < limit)) {
+					resolutions.add(resolution);
+				}
+			}));
+			if (!response.isSuccess()) {
+				throw new IOException(response.getUrl() + " returned " + response.getStatus());
+			}
+			request = page.getEntryCount() > 0 ? client.nextPage(page.getHeader()) : null;
+		}
+		return resolutions;
+	}
+
+	/**
+	 * @return the resolution an entry of /resolvedvaluesets describes, or null if it names none
+	 */
+	static Resolution resolution(JsonNode entry) {
+		JsonNode of = entry.path("resolvedHeader").path("resolutionOf");
+		String valueSet = of.path("valueSet").path("content").asText("");
+		String definition = of.path("valueSetDefinition").path("content").asText("");
+		if (valueSet.isEmpty() || definition.isEmpty()) {
+			return null;
+		}
+		Matcher id = RESOLUTION.matcher(entry.path("href").asText(""));
+		return new Resolution(valueSet, definition, id.find() ? id.group(1) : "1");
+	}
+
+	/**
+	 * Resolves the value sets on the worker pool.
+	 *
+	 * @return the timings, slowest first
+	 */
+	public List<Timing> resolveAll(List<Resolution> resolutions) throws IOException, InterruptedException {
+		Files.createDirectories(outputDir);
+		ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+		List<Future<Timing>> futures = new ArrayList<>();
+		try {
+			for (Resolution resolution : resolutions) {
+				futures.add(workers.submit(() -> resolve(resolution)));
+			}
+			List<Timing> timings = new ArrayList<>();
+			for (Future<Timing> future : futures) {
+				timings.add(future.get());
+			}
+			timings.sort(Comparator.comparingLong(Timing::getElapsedNanos).reversed());
+			return timings;
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			workers.shutdownNow();
+		}
+	}
+
+	/**
+	 * Resolves every page of one value set into its file.
+	 */
+	public Timing resolve(Resolution resolution) {
+		Timing timing = new Timing(resolution);
+		Path output = outputDir.resolve((resolution.valueSet + "-" + resolution.definition + "-" + resolution.id)
+				.replaceAll("[^A-Za-z0-9._-]", "_") + ".ndjson");
+		long start = System.nanoTime();
+		try (Writer writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+			String request = resolution.path(pageSize);
+			while (request != null) {
+				// the directory of a resolution is named differently across CTS2 versions
+				DirectoryStreamReader page = new DirectoryStreamReader(null);
+				CtsResponse response = client.get(request, body -> page.read(body, (index, entry) -> {
+					writer.write(entry.toString());
+					writer.write('\n');
+				}));
+				if (timing.pages == 0) {
+					timing.firstByteNanos = response.getTtfbNanos();
+				}
+				if (!response.isSuccess()) {
+					timing.error = "HTTP " + response.getStatus();
+					break;
+				}
+				timing.pages++;
+				timing.members += page.getEntryCount();
+				timing.bytes += response.getBytes();
+				request = page.getEntryCount() > 0 ? client.nextPage(page.getHeader()) : null;
+			}
+		} catch (IOException e) {
+			timing.error = e.toString();
+		}
+		timing.elapsedNanos = System.nanoTime() - start;
+		return timing;
+	}
+
+	/**
+	 * Writes one line per value set, slowest first, for later analysis.
+	 */
+	public static void write(List<Timing> timings, Path file) throws IOException {
+		try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			writer.write("valueSet\tdefinition\tresolution\tmembers\tpages\tbytes\tfirstByteMs\ttotalMs\terror\n");
+			for (Timing timing : timings) {
+				writer.write(String.format(Locale.ROOT, "%s\t%s\t%s\t%d\t%d\t%d\t%.1f\t%.1f\t%s%n", timing.resolution.valueSet,
+						timing.resolution.definition, timing.resolution.id, timing.members, timing.pages, timing.bytes,
+						timing.firstByteNanos / 1e6, timing.elapsedNanos / 1e6, timing.error == null ? "" : timing.error));
+			}
+		}
+	}
+
+	/**
+	 * Prints the slowest value sets with their share of the summed resolution time.
+	 */
+	public static void print(List<Timing> timings, int top, long wallNanos, PrintStream out) {
+		long total = 0;
+		long members = 0;
+		long errors = 0;
+		Histogram latency = LatencyStats.newHistogram();
+		for (Timing timing : timings) {
+			total += timing.elapsedNanos;
+			members += timing.members;
+			errors += timing.error != null ? 1 : 0;
+			latency.recordValue(Math.min(timing.elapsedNanos / 1000, LatencyStats.HIGHEST_TRACKABLE_MICROS));
+		}
+		out.println(String.format("%-60s %9s %6s %11s %10s %7s %7s", "value set", "members", "pages", "first b ms", "total ms", "share", "cumul."));
+		long cumulative = 0;
+		for (Timing timing : timings.subList(0, Math.min(top, timings.size()))) {
+			cumulative += timing.elapsedNanos;
+			out.println(String.format("%-60s %9d %6d %11.1f %10.1f %6.1f%% %6.1f%%%s", abbreviate(timing.resolution.toString()),
+					timing.members, timing.pages, timing.firstByteNanos / 1e6, timing.elapsedNanos / 1e6,
+					share(timing.elapsedNanos, total), share(cumulative, total), timing.error != null ? "  " + timing.error : ""));
+		}
+		out.println();
+		out.println(LatencyStats.header("value sets"));
+		out.println(LatencyStats.row("resolution", latency, errors, wallNanos));
+		out.println(String.format("%d value sets, %d members in %.1f s: %.1f members/s, %.1f s of resolution time",
+				timings.size(), members, wallNanos / 1e9, wallNanos > 0 ? members / (wallNanos / 1e9) : 0, total / 1e9));
+	}
+
+	private static double share(long part, long total) {
+		return total > 0 ? 100.0 * part / total : 0;
+	}
+
+	private static String abbreviate(String value) {
+		return value.length() <= 60 ? value : value.substring(0, 57) + "...";
+	}
+
+	/**
+	 * Value sets mode of {@link LexevsRestTestRunner}: resolves every value set
+	 * of /resolvedvaluesets (at most VALUESETS_LIMIT) in pages of
+	 * VALUESETS_PAGE_SIZE on VALUESETS_CONCURRENCY workers into
+	 * VALUESETS_OUTPUT_DIR, and prints the VALUESETS_TOP slowest.
+	 */
+	public static void run(LexevsConfig config, PrintStream out) throws IOException, InterruptedException {
+		int concurrency = config.getInt("VALUESETS_CONCURRENCY", 4);
+		Path outputDir = Paths.get(config.get("VALUESETS_OUTPUT_DIR", "target/valuesets"));
+		ValueSetResolver resolver = new ValueSetResolver(CtsHttpClient.fromConfig(config), concurrency,
+				config.getInt("VALUESETS_PAGE_SIZE", 1000), outputDir);
+
+		Files.createDirectories(outputDir);
+		List<Resolution> resolutions = resolver.list(config.getInt("VALUESETS_LIMIT", 0));
+		out.println("Value sets: " + resolutions.size() + " resolutions, " + concurrency + " workers, from "
+				+ config.getBaseUrl() + " into " + outputDir);
+		long start = System.nanoTime();
+		List<Timing> timings = resolutions.isEmpty() ? Collections.<Timing>emptyList() : resolver.resolveAll(resolutions);
+		long wall = System.nanoTime() - start;
+		write(timings, outputDir.resolve("timings.tsv"));
+		print(timings, config.getInt("VALUESETS_TOP", 20), wall, out);
+	}
+}
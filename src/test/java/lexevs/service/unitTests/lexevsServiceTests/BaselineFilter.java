@@ -0,0 +1,98 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import io.restassured.RestAssured;
+import io.restassured.filter.Filter;
+import io.restassured.filter.FilterContext;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the latency samples of a test for its {@link PerformanceBaseline}.
+ * One request gives too few samples for a rank test, so every request is
+ * sent again until there are <code>samples</code> timings of it.
+ *
+ * It must be the first filter of the spec, so the others time only the
+ * test's own request.  A request is timed to the end of its body, which the
+ * test reads after the filter has returned, so the requests are sent again
+ * by {@link #collect()} once the test is over.
+ */
+public class BaselineFilter implements Filter
+{
+	private final int samples;
+	private final List<Request> sent = new ArrayList<>();
+
+	/**
+	 * A request of the test, waiting for its body to be read
+	 */
+	private static class Request {
+		final String uri;
+		final Response response;
+		volatile double firstMillis = -1;
+
+		Request(String uri, Response response) {
+			this.uri = uri;
+			this.response = response;
+		}
+	}
+
+	public BaselineFilter(int samples) {
+		this.samples = Math.max(samples, 1);
+	}
+
+	@Override
+	public Response filter(FilterableRequestSpecification requestSpec, FilterableResponseSpecification responseSpec, FilterContext ctx) {
+		TimingHttpClientFactory.reset();
+		long start = System.nanoTime();
+		Response response = ctx.next(requestSpec, responseSpec);
+		Request request = new Request(requestSpec.getURI(), response);
+		synchronized (sent) {
+			sent.add(request);
+		}
+		TimingHttpClientFactory.timings().whenBodyReceived(end -> request.firstMillis = (end - start) / 1e6);
+		return response;
+	}
+
+	/**
+	 * Drains the bodies the test did not read, then sends every request
+	 * again until it has its samples.
+	 *
+	 * @return the latencies in milliseconds of every request sent since the last call
+	 */
+	public double[] collect() {
+		List<Request> requests;
+		synchronized (sent) {
+			requests = new ArrayList<>(sent);
+			sent.clear();
+		}
+		List<Double> millis = new ArrayList<>();
+		for (Request request : requests) {
+			if (request.firstMillis < 0) {
+				TimingHttpClientFactory.drain(request.response);
+			}
+			if (request.firstMillis >= 0) {
+				millis.add(request.firstMillis);
+			}
+			for (int i = 1; i < samples; i++) {
+				millis.add(resend(request.uri));
+			}
+		}
+		double[] result = new double[millis.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = millis.get(i);
+		}
+		return result;
+	}
+
+	private static double resend(String uri) {
+		TimingHttpClientFactory.reset();
+		long start = System.nanoTime();
+		Response response = RestAssured.given().config(TimingHttpClientFactory.config()).urlEncodingEnabled(false).get(uri);
+		TimingHttpClientFactory.drain(response);
+		long end = TimingHttpClientFactory.timings().getBodyReceived();
+		return ((end > 0 ? end : System.nanoTime()) - start) / 1e6;
+	}
+}
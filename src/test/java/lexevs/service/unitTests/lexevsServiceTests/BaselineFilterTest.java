@@ -0,0 +1,68 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import io.restassured.RestAssured;
+import io.restassured.specification.RequestSpecification;
+import junit.framework.TestCase;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Baseline samples against a local server that sends the headers of
+ * /slowbody at once but its body 100 ms later
+ */
+public class BaselineFilterTest extends TestCase
+{
+	private StubService server;
+	private final AtomicInteger requests = new AtomicInteger();
+
+	protected void setUp() throws Exception {
+		server = new StubService().context("/slowbody", exchange -> {
+			requests.incrementAndGet();
+			StubService.sendSlowBody(exchange, 200, "{\"slow\":true}".getBytes("UTF-8"), 100);
+		}).start();
+	}
+
+	protected void tearDown() throws Exception {
+		server.stop();
+	}
+
+	public final void test_samples_timed_to_end_of_body() {
+		BaselineFilter baseline = new BaselineFilter(3);
+		LatencyBudgetFilter latency = new LatencyBudgetFilter(Collections.<LatencyBudget>emptyList(), 1);
+		assertEquals("{\"slow\":true}", spec(baseline, latency).get("/slowbody").asString());
+		assertEquals(1, requests.get());
+
+		double[] millis = baseline.collect();
+		assertEquals(3, millis.length);
+		assertEquals(3, requests.get());
+		for (double value : millis) {
+			assertTrue(value + " ms", value >= 100);
+		}
+		// the filters inside the baseline one time the test's request only
+		assertEquals(1, latency.getSamples().size());
+		assertEquals(0, baseline.collect().length);
+	}
+
+	public final void test_unread_body_drained() {
+		BaselineFilter baseline = new BaselineFilter(1);
+		spec(baseline).get("/slowbody").then().statusCode(200);
+
+		double[] millis = baseline.collect();
+		assertEquals(1, millis.length);
+		assertTrue(millis[0] + " ms", millis[0] >= 100);
+	}
+
+	private RequestSpecification spec(BaselineFilter baseline, LatencyBudgetFilter... inner) {
+		RequestSpecification spec = RestAssured.
+			given().
+				baseUri(server.getBaseUri()).
+				basePath(LexevsRestTestRunner.BASE_PATH).
+				config(TimingHttpClientFactory.config()).
+				filter(baseline);
+		for (LatencyBudgetFilter filter : inner) {
+			spec.filter(filter);
+		}
+		return spec;
+	}
+}
@@ -0,0 +1,88 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Warms a local server whose /codesystemversions takes 200, 100 and then
+ * 10 ms, whose /valuesets answers in 10 ms from the start, and whose
+ * /missing is not found
+ */
+public class CacheWarmerTest extends TestCase
+{
+	private StubService server;
+	private final AtomicInteger versions = new AtomicInteger();
+
+	protected void setUp() throws Exception {
+		server = new StubService().context("/codesystemversions", exchange -> {
+			int request = versions.getAndIncrement();
+			StubService.sleep(request == 0 ? 200 : request == 1 ? 100 : 10);
+			StubService.send(exchange, 200, "{}");
+		}).context("/valuesets", exchange -> {
+			StubService.sleep(10);
+			StubService.send(exchange, 200, "{}");
+		}).context("/missing", exchange -> StubService.send(exchange, 404, "{}")).start();
+	}
+
+	protected void tearDown() throws Exception {
+		server.stop();
+	}
+
+	private CacheWarmer warmer() {
+		// 10 ms sleeps on a loaded machine may well differ by more than 25%
+		return new CacheWarmer(server.client(), 2, 3, 2.0, 10);
+	}
+
+	public final void test_prioritize() {
+		CtsEndpoint search = new CtsEndpoint("valuesets_all", "/valuesets?format=json");
+		CtsEndpoint service = new CtsEndpoint("service", "/service?format=json");
+		CtsEndpoint children = new CtsEndpoint("children", "/codesystem/NCI_Thesaurus/version/23.04d/entity/ncit:C1648/children?format=json");
+		CtsEndpoint versions = new CtsEndpoint("codeSystemVersion", "/codesystemversions?format=json");
+		CtsEndpoint resolution = new CtsEndpoint("resolution", "/valueset/FDA Terminology/definition/e32e022f/resolution/1?format=json");
+		assertEquals(Arrays.asList(versions, children, search, resolution), CacheWarmer.prioritize(
+				Arrays.asList(search, service, children, versions, resolution),
+				Arrays.asList(CtsEndpoint.CODESYSTEMVERSIONS, CtsEndpoint.ASSOCIATIONS, CtsEndpoint.VALUESETS)));
+	}
+
+	public final void test_settled() {
+		CacheWarmer warmer = warmer();
+		assertFalse(warmer.settled(Arrays.asList(10.0, 10.0)));
+		assertFalse(warmer.settled(Arrays.asList(200.0, 100.0, 10.0)));
+		assertTrue(warmer.settled(Arrays.asList(200.0, 100.0, 10.0, 12.0, 19.0)));
+		assertFalse(warmer.settled(Arrays.asList(10.0, 12.0, 21.0)));
+	}
+
+	public final void test_warm() throws Exception {
+		CacheWarmer warmer = warmer();
+		List<CacheWarmer.Warmup> warmups = warmer.warm(Arrays.asList(
+				new CtsEndpoint("codeSystemVersion", "/codesystemversions?format=json"),
+				new CtsEndpoint("valuesets_all", "/valuesets?format=json"),
+				new CtsEndpoint("missing", "/missing?format=json")));
+
+		CacheWarmer.Warmup cold = warmups.get(0);
+		assertTrue(cold.isSettled());
+		assertTrue(cold.getRequests() >= 5);
+		assertTrue(cold.getFirstMillis() >= 200);
+		assertTrue(cold.getWarmMillis(3) < 100);
+		assertTrue(cold.getDoneNanos() >= 350_000_000L);
+
+		assertTrue(warmups.get(1).isSettled());
+		assertEquals("valuesets_all", warmups.get(1).getEndpoint().getName());
+
+		CacheWarmer.Warmup missing = warmups.get(2);
+		assertFalse(missing.isSettled());
+		assertEquals(10, missing.getRequests());
+		assertEquals(10, missing.getErrors());
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		warmer.print(warmups, 1_000_000_000L, new PrintStream(bytes, true, "UTF-8"));
+		String report = bytes.toString("UTF-8");
+		assertTrue(report, report.contains("failing"));
+		assertTrue(report, report.contains("2 of 3 requests settled"));
+	}
+}
@@ -0,0 +1,66 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import io.restassured.builder.RequestSpecBuilder;
+import junit.framework.TestCase;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Keeps the catalog in step with LexevsRestTestRunnerTest: every test is run
+ * against a stub that only notes its requests, and each request must be the
+ * catalog endpoint named after the test.
+ */
+public class CtsEndpointCatalogTest extends TestCase
+{
+	// Tests whose request is not replayed by the tools: the streamed page is sized by STREAMING_MAXTORETURN
+	private static final List<String> NOT_CATALOGED = Arrays.asList("test_codeSystem_search_streaming_call");
+
+	public final void test_catalog_matches_suite() throws Exception {
+		LexevsRestTestRunnerTest.readProperties();
+		List<CtsEndpoint> catalog = CtsEndpointCatalog.build(LexevsConfig.load());
+		List<String> requests = Collections.synchronizedList(new ArrayList<>());
+		StubService server = new StubService().context("/", exchange -> {
+			URI uri = exchange.getRequestURI();
+			String path = uri.getRawPath().substring(LexevsRestTestRunner.BASE_PATH.length());
+			requests.add(uri.getRawQuery() == null ? path : path + "?" + uri.getRawQuery());
+			StubService.send(exchange, 404, "");
+		}).start();
+		try {
+			List<String> tested = new ArrayList<>();
+			for (Method method : LexevsRestTestRunnerTest.class.getDeclaredMethods()) {
+				String name = method.getName();
+				if (!name.startsWith("test_") || !Modifier.isPublic(method.getModifiers()) || NOT_CATALOGED.contains(name)) {
+					continue;
+				}
+				String endpointName = name.substring("test_".length(), name.length() - "_call".length());
+				CtsEndpoint endpoint = CtsEndpointCatalog.named(catalog, endpointName);
+				assertNotNull("no catalog endpoint " + endpointName + " for " + name, endpoint);
+				tested.add(endpointName);
+
+				requests.clear();
+				LexevsRestTestRunnerTest test = new LexevsRestTestRunnerTest(name);
+				test.spec = new RequestSpecBuilder().
+					setBaseUri(server.getBaseUri()).
+					setBasePath(LexevsRestTestRunner.BASE_PATH).
+					build();
+				try {
+					method.invoke(test);
+				} catch (InvocationTargetException e) {
+					// every request gets a 404, so the test's own assertions fail
+				}
+				assertEquals(name, 1, requests.size());
+				assertEquals(name, FixtureStore.key(endpoint.getPath()), FixtureStore.key(requests.get(0)));
+			}
+			assertEquals("catalog endpoints without a test", catalog.size(), tested.size());
+		} finally {
+			server.stop();
+		}
+	}
+}
@@ -0,0 +1,28 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import junit.framework.TestCase;
+
+/**
+ * Endpoint templates and families used to group the tools' reports
+ */
+public class CtsEndpointTest extends TestCase
+{
+	public final void test_template() {
+		assertEquals("/codesystem/{cs}/version/{v}/entity/{id}/children",
+				CtsEndpoint.template("/codesystem/NCI_Thesaurus/version/23.04d/entity/ncit:C1648/children?format=json"));
+		assertEquals("/valueset/{vs}/definition/{def}/resolution/{n}",
+				CtsEndpoint.template("/valueset/CDISC Questionnaire NPI Test Name Terminology/definition/e31ccb56/resolution/1"));
+		assertEquals("/map/{map}/versions", CtsEndpoint.template("/map/NCIt_to_ChEBI_Mapping/versions?format=json"));
+		assertEquals("/service", CtsEndpoint.template("/service?format=json"));
+	}
+
+	public final void test_family() {
+		assertEquals(CtsEndpoint.CODESYSTEMVERSIONS, CtsEndpoint.family("/codesystemversions?format=json"));
+		assertEquals(CtsEndpoint.CODESYSTEMVERSIONS, CtsEndpoint.family("/codesystem/NCI_Thesaurus/version/23.04d?format=json"));
+		assertEquals(CtsEndpoint.ENTITIES, CtsEndpoint.family("/codesystem/NCI_Thesaurus/version/23.04d/entities?maxtoreturn=10000"));
+		assertEquals(CtsEndpoint.ENTITIES, CtsEndpoint.family("/codesystem/NCI_Thesaurus/version/23.04d/entity/ncit:C938"));
+		assertEquals(CtsEndpoint.ASSOCIATIONS, CtsEndpoint.family("/codesystem/NCI_Thesaurus/version/23.04d/entity/ncit:C875/subjectof"));
+		assertEquals(CtsEndpoint.VALUESETS, CtsEndpoint.family("/resolvedvaluesets?maxtoreturn=50"));
+		assertEquals(CtsEndpoint.MAPS, CtsEndpoint.family("/map/NCIt_to_ChEBI_Mapping/version/NCIt_to_ChEBI_Mapping-1.0/entry/C1028"));
+	}
+}
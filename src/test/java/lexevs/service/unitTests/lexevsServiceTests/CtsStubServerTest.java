@@ -0,0 +1,125 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import io.restassured.RestAssured;
+import junit.framework.TestCase;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Checks the embedded stub against the fixtures shipped in src/test/resources/fixtures
+ */
+public class CtsStubServerTest extends TestCase
+{
+	private CtsStubServer stub;
+
+	protected void setUp() throws Exception {
+		stub = new CtsStubServer(new FixtureStore(Paths.get("src/test/resources/fixtures")), LexevsRestTestRunner.BASE_PATH);
+		stub.start(0);
+	}
+
+	protected void tearDown() throws Exception {
+		stub.stop();
+	}
+
+	public final void test_fixture_served() {
+
+		RestAssured.
+			given().
+				baseUri(stub.getBaseUri()).
+				basePath(LexevsRestTestRunner.BASE_PATH).
+			when().
+				get("/service?format=json").
+			then().
+				statusCode(200).
+				contentType(containsString("application/json")).
+				body("BaseService.serviceName", equalTo("CTS2 Development Framework RESTWebApp"));
+	}
+
+	public final void test_missing_fixture_is_404() {
+
+		RestAssured.
+			given().
+				baseUri(stub.getBaseUri()).
+				basePath(LexevsRestTestRunner.BASE_PATH).
+			when().
+				get("/codesystemversions?format=json").
+			then().
+				statusCode(404);
+	}
+
+	public final void test_record_then_replay() throws Exception {
+		Path recordings = Files.createTempDirectory("fixtures");
+		CtsStubServer recorder = new CtsStubServer(new FixtureStore(recordings), LexevsRestTestRunner.BASE_PATH);
+		recorder.setUpstream(stub.getBaseUri());
+		recorder.start(0);
+		try {
+			RestAssured.
+				given().
+					baseUri(recorder.getBaseUri()).
+					basePath(LexevsRestTestRunner.BASE_PATH).
+				when().
+					get("/service?format=json").
+				then().
+					statusCode(200).
+					body("BaseService.serviceVersion", equalTo("2.2.1.RC1"));
+		} finally {
+			recorder.stop();
+		}
+
+		FixtureStore recorded = new FixtureStore(recordings);
+		assertEquals(1, recorded.size());
+		assertTrue(recorded.find("/service?format=json").isCompressed());
+
+		CtsStubServer replay = new CtsStubServer(recorded, LexevsRestTestRunner.BASE_PATH);
+		replay.start(0);
+		try {
+			RestAssured.
+				given().
+					baseUri(replay.getBaseUri()).
+					basePath(LexevsRestTestRunner.BASE_PATH).
+				when().
+					get("/service?format=json").
+				then().
+					statusCode(200).
+					body("BaseService.serviceVersion", equalTo("2.2.1.RC1"));
+		} finally {
+			replay.stop();
+		}
+	}
+
+	public final void test_upstream_timeout_is_504() throws Exception {
+		StubService upstream = new StubService().context("/service", exchange -> {
+			StubService.sleep(2000);
+			StubService.send(exchange, 200, "{}");
+		}).start();
+		Path recordings = Files.createTempDirectory("fixtures");
+		CtsStubServer recorder = new CtsStubServer(new FixtureStore(recordings), LexevsRestTestRunner.BASE_PATH);
+		recorder.setUpstream(upstream.getBaseUri());
+		recorder.setUpstreamTimeouts(1000, 200);
+		recorder.start(0);
+		try {
+			RestAssured.
+				given().
+					baseUri(recorder.getBaseUri()).
+					basePath(LexevsRestTestRunner.BASE_PATH).
+				when().
+					get("/service?format=json").
+				then().
+					statusCode(504).
+					body(containsString("/service?format=json"));
+		} finally {
+			recorder.stop();
+			upstream.stop();
+		}
+		assertEquals(0, new FixtureStore(recordings).size());
+	}
+
+	public final void test_key_ignores_encoding_and_parameter_order() {
+		assertEquals(FixtureStore.key("/valuesets?matchvalue=GAIA Terminology&format=json"),
+				FixtureStore.key("valuesets?format=json&matchvalue=GAIA%20Terminology"));
+	}
+}
@@ -0,0 +1,98 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Two local deployments: the candidate answers 20 ms later, and differs in
+ * the body of one endpoint
+ */
+public class DifferentialRunnerTest extends TestCase
+{
+	private StubService current;
+	private StubService candidate;
+
+	protected void setUp() throws Exception {
+		current = server(0, "C12345");
+		candidate = server(20, "C99999");
+	}
+
+	protected void tearDown() throws Exception {
+		current.stop();
+		candidate.stop();
+	}
+
+	/**
+	 * Serves a directory with a link to itself, and the given code on /entities.
+	 */
+	private static StubService server(long delayMillis, String code) throws Exception {
+		StubService server = new StubService();
+		return server.context("/", exchange -> {
+			StubService.sleep(delayMillis);
+			String self = server.getBaseUri() + "/lexevscts2" + exchange.getRequestURI().getPath();
+			String name = exchange.getRequestURI().getPath().endsWith("/entities") ? code : "C12345";
+			byte[] body = ("{\"EntityDirectory\":{\"accessDate\":\"" + System.nanoTime() + "\",\"next\":\"" + self
+					+ "\",\"entry\":[{\"name\":\"" + name + "\"}]}}").getBytes("UTF-8");
+			StubService.send(exchange, exchange.getRequestURI().getPath().endsWith("/missing") ? 404 : 200, body);
+		}).start();
+	}
+
+	private DifferentialRunner runner() {
+		return new DifferentialRunner(current.client(), candidate.client(), 12, 0.01, new HashSet<>(Arrays.asList("accessDate")), 5);
+	}
+
+	public final void test_slower_candidate_with_same_body() throws Exception {
+		DifferentialRunner.Result result = runner().compare(new CtsEndpoint("children", "/codesystem/NCI_Thesaurus/entity/C12345/children"));
+		assertEquals(Collections.emptyList(), result.getDifferences());
+		assertEquals("slower", result.getVerdict());
+		assertTrue(result.getChange() > 0.5);
+		assertEquals(12, result.getBaselineLatency().getTotalCount());
+		assertEquals(12, result.getCandidateLatency().getTotalCount());
+	}
+
+	public final void test_faster_candidate() throws Exception {
+		DifferentialRunner runner = new DifferentialRunner(candidate.client(), current.client(), 12, 0.01, Collections.emptySet(), 5);
+		DifferentialRunner.Result result = runner.compare(new CtsEndpoint("children", "/codesystem/NCI_Thesaurus/entity/C12345/children"));
+		assertEquals("faster", result.getVerdict());
+		assertTrue(result.getChange() < -0.5);
+		// accessDate is not ignored here
+		assertEquals(1, result.getDifferences().size());
+		assertTrue(result.getDifferences().get(0), result.getDifferences().get(0).startsWith("EntityDirectory.accessDate: "));
+	}
+
+	public final void test_body_and_status_drift() throws Exception {
+		DifferentialRunner.Result entities = runner().compare(new CtsEndpoint("entities", "/entities?format=json"));
+		assertEquals(Collections.singletonList("EntityDirectory.entry[0].name: \"C12345\" != \"C99999\""), entities.getDifferences());
+
+		DifferentialRunner.Result missing = runner().compare(new CtsEndpoint("missing", "/missing"));
+		assertEquals(Collections.emptyList(), missing.getDifferences());
+		assertEquals(12, missing.getBaselineErrors());
+		assertEquals(12, missing.getCandidateErrors());
+	}
+
+	public final void test_diff_paths() throws Exception {
+		ObjectMapper mapper = new ObjectMapper();
+		List<String> differences = new ArrayList<>();
+		new DifferentialRunner(null, null, 1, 0.01, Collections.emptySet(), 3).diff(
+				mapper.readTree("{\"a\":1,\"b\":[1,2],\"c\":{\"d\":true},\"e\":0}"),
+				mapper.readTree("{\"a\":1,\"b\":[1],\"c\":{},\"f\":0}"), "", differences);
+		assertEquals(Arrays.asList("b: 2 elements != 1", "c.d: only in baseline", "e: only in baseline"), differences);
+	}
+
+	public final void test_print() throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DifferentialRunner.print(Collections.singletonList(runner().compare(new CtsEndpoint("entities", "/entities"))),
+				new PrintStream(bytes, true, "UTF-8"));
+		String report = bytes.toString("UTF-8");
+		assertTrue(report, report.contains("slower"));
+		assertTrue(report, report.contains("entities differs:"));
+	}
+}
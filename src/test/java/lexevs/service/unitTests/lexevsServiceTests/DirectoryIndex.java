@@ -0,0 +1,157 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import io.restassured.response.Response;
+import org.hamcrest.Matcher;
+import org.hamcrest.MatcherAssert;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assertions on a CTS2 directory response (EntityDirectory,
+ * AssociationDirectory, ...) that parse the body once.
+ *
+ * <code>entry.find { it.about == '...' }</code> scans the entries for every
+ * expected value; here the entries are hashed on the key the first time it
+ * is used, and every later lookup on that key is a map access.  Paths are
+ * dotted like GPath, with <code>[n]</code> for list elements, and a field
+ * of a list is collected from each of its elements.
+ */
+public class DirectoryIndex
+{
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	private final String directory;
+	private final JsonNode root;
+	private final Map<String, Map<String, JsonNode>> indexes = new ConcurrentHashMap<>();
+
+	public DirectoryIndex(String directory, JsonNode root) {
+		this.directory = directory;
+		this.root = root;
+	}
+
+	/**
+	 * @param directory the directory element of the body, e.g. "EntityDirectory"
+	 */
+	public static DirectoryIndex of(Response response, String directory) throws IOException {
+		try (InputStream body = response.asInputStream()) {
+			return new DirectoryIndex(directory, MAPPER.readTree(body).path(directory));
+		}
+	}
+
+	/**
+	 * Asserts on a field of the directory itself, e.g. "complete" or "numEntries".
+	 */
+	public <T> void assertThat(String path, Matcher<? super T> matcher) {
+		assertValue(directory + "." + path, value(root, path), matcher);
+	}
+
+	/**
+	 * Asserts on a field of the first entry whose key has the given value,
+	 * the equivalent of <code>entry.find { it.key == 'value' }.path</code>.
+	 */
+	public <T> void assertEntry(String key, String value, String path, Matcher<? super T> matcher) {
+		JsonNode entry = index(key).get(value);
+		assertValue(directory + ".entry.find { it." + key + " == '" + value + "' }." + path,
+				entry == null ? null : value(entry, path), matcher);
+	}
+
+	/**
+	 * @return the first entry whose key has the given value, or null
+	 */
+	public JsonNode entry(String key, String value) {
+		return index(key).get(value);
+	}
+
+	public int size() {
+		return root.path("entry").size();
+	}
+
+	private Map<String, JsonNode> index(String key) {
+		return indexes.computeIfAbsent(key, k -> {
+			Map<String, JsonNode> index = new HashMap<>();
+			for (JsonNode entry : root.path("entry")) {
+				JsonNode value = node(entry, k);
+				if (value.isValueNode()) {
+					index.putIfAbsent(value.asText(), entry);
+				}
+			}
+			return index;
+		});
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> void assertValue(String path, Object value, Matcher<? super T> matcher) {
+		MatcherAssert.assertThat("JSON path " + path + " doesn't match.", (T) value, matcher);
+	}
+
+	/**
+	 * @return the value at the path as the plain Java type GPath would give: String, Integer, List, Map...
+	 */
+	public static Object value(JsonNode node, String path) {
+		return toJava(node(node, path));
+	}
+
+	static JsonNode node(JsonNode node, String path) {
+		JsonNode current = node;
+		for (String segment : path.split("\\.")) {
+			int bracket = segment.indexOf('[');
+			String name = bracket < 0 ? segment : segment.substring(0, bracket);
+			current = field(current, name);
+			if (bracket >= 0) {
+				int index = Integer.parseInt(segment.substring(bracket + 1, segment.indexOf(']', bracket)));
+				current = current.path(index);
+			}
+		}
+		return current;
+	}
+
+	private static JsonNode field(JsonNode node, String name) {
+		if (!node.isArray()) {
+			return node.path(name);
+		}
+		ArrayNode values = JsonNodeFactory.instance.arrayNode();
+		for (JsonNode element : node) {
+			values.add(element.path(name).isMissingNode() ? JsonNodeFactory.instance.nullNode() : element.path(name));
+		}
+		return values;
+	}
+
+	private static Object toJava(JsonNode node) {
+		if (node == null || node.isMissingNode() || node.isNull()) {
+			return null;
+		}
+		if (node.isTextual()) {
+			return node.textValue();
+		}
+		if (node.isInt()) {
+			return node.intValue();
+		}
+		if (node.isLong()) {
+			return node.longValue();
+		}
+		if (node.isNumber()) {
+			return node.numberValue();
+		}
+		if (node.isBoolean()) {
+			return node.booleanValue();
+		}
+		if (node.isArray()) {
+			List<Object> list = new ArrayList<>();
+			for (JsonNode element : node) {
+				list.add(toJava(element));
+			}
+			return list;
+		}
+		return MAPPER.convertValue(node, Map.class);
+	}
+}
@@ -0,0 +1,53 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.*;
+
+/**
+ * GPath-like lookups of DirectoryIndex on an in-memory AssociationDirectory
+ */
+public class DirectoryIndexTest extends TestCase
+{
+	private static final String BODY = "{ \"AssociationDirectory\": { \"complete\": \"PARTIAL\", \"numEntries\": 3, \"entry\": ["
+			+ "{ \"subject\": { \"uri\": \"#C1\", \"name\": \"C1\" }, \"target\": { \"entity\": { \"name\": \"T1\" } },"
+			+ "  \"codes\": [ { \"content\": \"a\" }, { \"content\": \"b\" } ] },"
+			+ "{ \"subject\": { \"uri\": \"#C2\", \"name\": \"C2\" }, \"target\": { \"entity\": { \"name\": \"T2\" } } },"
+			+ "{ \"subject\": { \"uri\": \"#C1\", \"name\": \"duplicate\" } } ] } }";
+
+	private DirectoryIndex directory;
+
+	protected void setUp() throws Exception {
+		directory = new DirectoryIndex("AssociationDirectory", new ObjectMapper().readTree(BODY).path("AssociationDirectory"));
+	}
+
+	public final void test_directory_fields() {
+		directory.assertThat("complete", hasToString("PARTIAL"));
+		directory.assertThat("numEntries", equalTo(3));
+		directory.assertThat("entry[1].subject.name", equalTo("C2"));
+		assertEquals(3, directory.size());
+	}
+
+	public final void test_first_entry_wins_like_find() {
+		directory.assertEntry("subject.uri", "#C1", "subject.name", equalTo("C1"));
+		directory.assertEntry("subject.uri", "#C2", "target.entity.name", equalTo("T2"));
+	}
+
+	public final void test_list_fields_are_collected() {
+		directory.assertEntry("subject.uri", "#C1", "codes.content", equalTo(Arrays.asList("a", "b")));
+		directory.assertEntry("subject.uri", "#C1", "codes[1].content", equalTo("b"));
+	}
+
+	public final void test_missing_entry_is_null() {
+		directory.assertEntry("subject.uri", "#C3", "subject.name", nullValue());
+		try {
+			directory.assertEntry("subject.uri", "#C3", "subject.name", equalTo("C3"));
+			fail("expected a mismatch");
+		} catch (AssertionError e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("it.subject.uri == '#C3'"));
+		}
+	}
+}
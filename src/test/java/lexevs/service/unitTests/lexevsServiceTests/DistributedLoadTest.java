@@ -0,0 +1,149 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Two workers against a local server, run in turn or spawned by the
+ * coordinator, then their logs merged; and what the worker JVMs are given
+ */
+public class DistributedLoadTest extends TestCase
+{
+	public final void test_share() {
+		assertEquals(3, DistributedLoad.share(10, 0, 4));
+		assertEquals(3, DistributedLoad.share(10, 1, 4));
+		assertEquals(2, DistributedLoad.share(10, 2, 4));
+		assertEquals(1, DistributedLoad.share(2, 3, 4));
+	}
+
+	public final void test_workers_merge() throws Exception {
+		StubService server = service();
+		Path directory = Files.createTempDirectory("dist");
+		try {
+			LexevsConfig config = new LexevsConfig(properties(server, directory));
+			PrintStream quiet = new PrintStream(new ByteArrayOutputStream());
+			DistributedLoad.runWorker(config, 0, 2, quiet);
+			DistributedLoad.runWorker(config, 1, 2, quiet);
+
+			assertMerged(directory);
+		} finally {
+			server.stop();
+			delete(directory);
+		}
+	}
+
+	public final void test_coordinator_spawns_workers() throws Exception {
+		StubService server = service();
+		Path directory = Files.createTempDirectory("dist");
+		try {
+			// the worker JVMs read config.properties, so BASE_URL only reaches them if it is forwarded
+			Properties properties = properties(server, directory);
+			properties.setProperty("DIST_WORKERS", "2");
+			DistributedLoad.runCoordinator(new LexevsConfig(properties), new PrintStream(new ByteArrayOutputStream()));
+
+			assertMerged(directory);
+		} finally {
+			server.stop();
+			delete(directory);
+		}
+	}
+
+	public final void test_failed_worker_fails_run() throws Exception {
+		Path directory = Files.createTempDirectory("dist");
+		try {
+			Properties properties = new Properties();
+			properties.setProperty("LOAD_CONCURRENCY", "many");
+			properties.setProperty("DIST_WORKERS", "1");
+			properties.setProperty("DIST_OUTPUT_DIR", directory.toString());
+			DistributedLoad.runCoordinator(new LexevsConfig(properties), new PrintStream(new ByteArrayOutputStream()));
+			fail("expected the worker to fail");
+		} catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("worker 0 exited with "));
+		} finally {
+			delete(directory);
+		}
+	}
+
+	public final void test_worker_command_forwards_settings() {
+		Properties properties = new Properties();
+		properties.setProperty("BASE_URL", "http://127.0.0.1:1");
+		String trustStore = System.getProperty("javax.net.ssl.trustStore");
+		System.setProperty("javax.net.ssl.trustStore", "/etc/cts2.jks");
+		System.setProperty("MATRIX_VALUES.maps", "GO");
+		try {
+			List<String> command = DistributedLoad.workerCommand(new LexevsConfig(properties), Paths.get("dist"), 0, 2).command();
+			assertTrue(command.toString(), command.contains("-DBASE_URL=http://127.0.0.1:1"));
+			assertTrue(command.toString(), command.contains("-Djavax.net.ssl.trustStore=/etc/cts2.jks"));
+			assertTrue(command.toString(), command.contains("-DMATRIX_VALUES.maps=GO"));
+			for (String argument : command) {
+				assertFalse(argument, argument.startsWith("-Djava.home=") || argument.startsWith("-Duser.dir="));
+			}
+			assertEquals(Arrays.asList("worker", "0", "2"), command.subList(command.size() - 3, command.size()));
+		} finally {
+			if (trustStore == null) {
+				System.clearProperty("javax.net.ssl.trustStore");
+			} else {
+				System.setProperty("javax.net.ssl.trustStore", trustStore);
+			}
+			System.clearProperty("MATRIX_VALUES.maps");
+		}
+	}
+
+	/**
+	 * @return a service whose /service answers, and everything else is a 404
+	 */
+	private static StubService service() throws IOException {
+		return new StubService().context("/", exchange -> {
+			boolean service = exchange.getRequestURI().getPath().startsWith("/lexevscts2/service");
+			StubService.send(exchange, service ? 200 : 404, "{}");
+		}).start();
+	}
+
+	private static Properties properties(StubService server, Path directory) {
+		Properties properties = new Properties();
+		properties.setProperty("BASE_URL", server.getBaseUri());
+		properties.setProperty("THESAURUS_VERSION_NUMBER", "23.04d");
+		properties.setProperty("LOAD_CONCURRENCY", "2");
+		properties.setProperty("LOAD_RATE", "200");
+		properties.setProperty("LOAD_DURATION_SECONDS", "1");
+		properties.setProperty("DIST_LOG_INTERVAL_SECONDS", "1");
+		properties.setProperty("DIST_OUTPUT_DIR", directory.toString());
+		return properties;
+	}
+
+	private static void assertMerged(Path directory) throws IOException {
+		DistributedLoad.Merged merged = DistributedLoad.merge(directory);
+		assertEquals(2, merged.getWorkers());
+		long total = 0;
+		long errors = 0;
+		for (String family : merged.getLatency().keySet()) {
+			total += merged.getLatency().get(family).getTotalCount();
+			errors += merged.getErrors(family);
+		}
+		// each worker sends 100 req/s for 1 s, everything but /service is a 404
+		assertEquals(200, total, 4);
+		assertTrue(merged.getLatency().get(CtsEndpoint.SERVICE).getTotalCount() > 0);
+		assertEquals(0, merged.getErrors(CtsEndpoint.SERVICE));
+		assertEquals(total - merged.getLatency().get(CtsEndpoint.SERVICE).getTotalCount(), errors);
+	}
+
+	private static void delete(Path directory) throws IOException {
+		try (Stream<Path> files = Files.walk(directory)) {
+			for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+				Files.delete(file);
+			}
+		}
+	}
+}
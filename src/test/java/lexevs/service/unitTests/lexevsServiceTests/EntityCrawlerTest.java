@@ -0,0 +1,53 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Crawls a local server serving three pages of two entities, whose next
+ * links point at the QA host as the real service would behind a proxy
+ */
+public class EntityCrawlerTest extends TestCase
+{
+	private StubService server;
+
+	protected void setUp() throws Exception {
+		server = new StubService().context("/codesystem/NCI_Thesaurus/version/23.04d/entities", exchange -> {
+			String query = exchange.getRequestURI().getQuery();
+			int page = query.contains("page=") ? Integer.parseInt(query.replaceAll(".*page=(\\d+).*", "$1")) : 0;
+			String next = page < 2 ? ", \"next\": \"https://lexevscts2-qa.nci.nih.gov/lexevscts2/codesystem/NCI_Thesaurus/version/23.04d/entities?maxtoreturn=2&page=" + (page + 1) + "\"" : "";
+			byte[] body = ("{ \"EntityDirectory\": { \"complete\": \"" + (page < 2 ? "PARTIAL" : "COMPLETE") + "\", \"numEntries\": 2" + next + ", \"entry\": ["
+					+ "{ \"name\": { \"name\": \"C" + (2 * page) + "\" } }, { \"name\": { \"name\": \"C" + (2 * page + 1) + "\" } } ] } }").getBytes(StandardCharsets.UTF_8);
+			StubService.send(exchange, 200, body);
+		}).start();
+	}
+
+	protected void tearDown() throws Exception {
+		server.stop();
+	}
+
+	public final void test_crawl_follows_next() throws Exception {
+		Path output = Files.createTempFile("crawl", ".ndjson");
+		EntityCrawler.Result result = new EntityCrawler(server.client(), 2, 0, new PrintStream(new ByteArrayOutputStream()))
+				.crawl(LexevsConfig.THESAURUS, "23.04d", output);
+
+		assertEquals(3, result.getPages());
+		assertEquals(6, result.getEntities());
+		List<String> lines = Files.readAllLines(output, StandardCharsets.UTF_8);
+		assertEquals(6, lines.size());
+		assertEquals("{\"name\":{\"name\":\"C0\"}}", lines.get(0));
+		assertEquals("{\"name\":{\"name\":\"C5\"}}", lines.get(5));
+	}
+
+	public final void test_max_pages() throws Exception {
+		EntityCrawler.Result result = new EntityCrawler(server.client(), 2, 2, new PrintStream(new ByteArrayOutputStream()))
+				.crawl(LexevsConfig.THESAURUS, "23.04d", Files.createTempFile("crawl", ".ndjson"));
+		assertEquals(2, result.getPages());
+	}
+}
@@ -0,0 +1,81 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Compares two local servers: "fast" answers at once, "slow" takes 40 ms to
+ * answer /service, and /missing is not found on either
+ */
+public class EnvironmentComparisonTest extends TestCase
+{
+	private StubService fast;
+	private StubService slow;
+
+	protected void setUp() throws Exception {
+		fast = server(0);
+		slow = server(40);
+	}
+
+	private static StubService server(long serviceDelayMillis) throws IOException {
+		return new StubService().context("/service", exchange -> {
+			StubService.sleep(serviceDelayMillis);
+			StubService.send(exchange, 200, "{\"BaseService\":{\"serviceName\":\"LexEVS CTS2\"}}");
+		}).context("/missing", exchange -> StubService.send(exchange, 404, "{}")).start();
+	}
+
+	protected void tearDown() throws Exception {
+		fast.stop();
+		slow.stop();
+	}
+
+	public final void test_compare() throws Exception {
+		Map<String, CtsHttpClient> environments = new LinkedHashMap<>();
+		environments.put("fast", fast.client());
+		environments.put("slow", slow.client());
+		EnvironmentComparison.Result result = new EnvironmentComparison(environments, Arrays.asList(
+				new CtsEndpoint("service", "/service?format=json"), new CtsEndpoint("missing", "/missing?format=json")), 5).compare();
+
+		assertEquals(Arrays.asList("service", "missing"), result.getEndpoints());
+		assertEquals(Arrays.asList("fast", "slow"), result.getEnvironments());
+		EnvironmentComparison.Cell service = result.cell("service", "slow");
+		assertEquals(5, service.getLatency().getTotalCount());
+		assertEquals(0, service.getErrors());
+		assertTrue(service.getLatency().getValueAtPercentile(50) >= 40_000);
+		assertEquals("{\"BaseService\":{\"serviceName\":\"LexEVS CTS2\"}}".length(), service.getMeanBytes());
+		assertEquals(5, result.cell("missing", "fast").getErrors());
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		EnvironmentComparison.print(result, 2.0, new PrintStream(bytes, true, "UTF-8"));
+		String report = bytes.toString("UTF-8");
+		assertTrue(report, report.matches("(?s).*\n  slow .*<-- slow\n.*"));
+		assertFalse(report, report.matches("(?s).*\n  fast [^\n]*<-- slow\n.*"));
+		assertTrue(report, report.contains("<-- failing"));
+	}
+
+	public final void test_environments() {
+		Properties properties = new Properties();
+		properties.setProperty("ENVIRONMENT.qa", "https://qa");
+		properties.setProperty("ENVIRONMENT.local", "https://localhost:8443");
+		properties.setProperty("FANOUT_ENVIRONMENTS", "");
+		LexevsConfig config = new LexevsConfig(properties);
+		assertEquals(Arrays.asList("local", "qa"), Arrays.asList(EnvironmentComparison.environments(config).keySet().toArray()));
+
+		properties.setProperty("FANOUT_ENVIRONMENTS", "qa,local");
+		assertEquals("https://qa", EnvironmentComparison.environments(config).values().iterator().next());
+
+		properties.setProperty("FANOUT_ENVIRONMENTS", "qa,stage");
+		try {
+			EnvironmentComparison.environments(config);
+			fail();
+		} catch (IllegalArgumentException expected) {
+		}
+	}
+}
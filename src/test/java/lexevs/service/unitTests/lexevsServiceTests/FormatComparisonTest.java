@@ -0,0 +1,64 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import junit.framework.TestCase;
+
+import java.util.List;
+
+/**
+ * Compares the formats of a local /service serving both JSON and XML, and
+ * counts the failures of a /broken one
+ */
+public class FormatComparisonTest extends TestCase
+{
+	private StubService server;
+
+	protected void setUp() throws Exception {
+		server = new StubService().context("/service", exchange -> {
+			boolean xml = exchange.getRequestURI().getQuery().contains("format=xml");
+			byte[] body = (xml
+					? "<BaseService xmlns=\"http://www.omg.org/spec/CTS2/1.1/Core\"><serviceVersion>2.2.1.RC1</serviceVersion></BaseService>"
+					: "{ \"BaseService\": { \"serviceVersion\": \"2.2.1.RC1\" } }").getBytes("UTF-8");
+			StubService.send(exchange, 200, body);
+		}).context("/broken", exchange -> {
+			if (exchange.getRequestURI().getQuery().contains("format=xml")) {
+				// no response at all
+				exchange.close();
+			} else {
+				StubService.send(exchange, 200, "{ \"BaseService\": ");
+			}
+		}).start();
+	}
+
+	protected void tearDown() throws Exception {
+		server.stop();
+	}
+
+	public final void test_with_format() {
+		assertEquals("/valueset/FDA Terminology?format=xml", FormatComparison.withFormat("/valueset/FDA Terminology?format=json", "xml"));
+		assertEquals("/entities?format=xml&maxtoreturn=50", FormatComparison.withFormat("/entities?format=json&maxtoreturn=50", "xml"));
+	}
+
+	public final void test_compare() throws Exception {
+		List<FormatComparison.Result> results = new FormatComparison(server.client(), 3).compare(new CtsEndpoint("service", "/service?format=json"));
+
+		assertEquals(2, results.size());
+		assertEquals("json", results.get(0).getFormat());
+		assertEquals("xml", results.get(1).getFormat());
+		for (FormatComparison.Result result : results) {
+			assertEquals(0, result.getErrors());
+			assertEquals(3, result.getLatency().getTotalCount());
+			assertEquals(3, result.getParse().getTotalCount());
+		}
+		assertTrue(results.get(1).getBytes() > results.get(0).getBytes());
+	}
+
+	public final void test_unparsable_body_and_failed_request_are_errors() {
+		List<FormatComparison.Result> results = new FormatComparison(server.client(), 3).compare(new CtsEndpoint("broken", "/broken?format=json"));
+
+		for (FormatComparison.Result result : results) {
+			assertEquals(result.getFormat(), 3, result.getErrors());
+			assertEquals(result.getFormat(), 0, result.getLatency().getTotalCount());
+			assertEquals(result.getFormat(), 0, result.getBytes());
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Traversal of a generated hierarchy served locally: node ncit:N has the
+ * children ncit:N0, ncit:N1 and ncit:N2, and every node at depth 2 also
+ * has the shared child ncit:S, which must be expanded only once
+ */
+public class HierarchyTraversalTest extends TestCase
+{
+	private static final Pattern ENTITY = Pattern.compile("/entity/ncit:([^/]+)/(children|subjectof)");
+
+	private StubService server;
+	private final AtomicInteger requests = new AtomicInteger();
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final AtomicInteger maxInFlight = new AtomicInteger();
+
+	protected void setUp() throws Exception {
+		server = new StubService().concurrent().context("/", exchange -> {
+			requests.incrementAndGet();
+			maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+			StubService.sleep(5);
+			Matcher matcher = ENTITY.matcher(exchange.getRequestURI().getPath());
+			matcher.find();
+			String code = matcher.group(1);
+			StringBuilder entries = new StringBuilder();
+			if (!code.equals("S")) {
+				for (int i = 0; i < 3; i++) {
+					entries.append(entries.length() == 0 ? "" : ",").append(entry(matcher.group(2), code + i));
+				}
+				if (code.length() == 3) {
+					entries.append(",").append(entry(matcher.group(2), "S"));
+				}
+			}
+			String directory = matcher.group(2).equals("children") ? "EntityDirectory" : "AssociationDirectory";
+			byte[] body = ("{\"" + directory + "\":{\"complete\":\"COMPLETE\",\"entry\":[" + entries + "]}}").getBytes("UTF-8");
+			inFlight.decrementAndGet();
+			StubService.send(exchange, 200, body);
+		}).start();
+	}
+
+	private static String entry(String relation, String code) {
+		String name = "{\"namespace\":\"ncit\",\"name\":\"" + code + "\"}";
+		return relation.equals("children") ? "{\"name\":" + name + "}" : "{\"target\":{\"entity\":" + name + "}}";
+	}
+
+	protected void tearDown() throws Exception {
+		server.stop();
+	}
+
+	private HierarchyTraversal traversal(String relation, int depth, int concurrency, long maxNodes) {
+		return new HierarchyTraversal(server.client(), "NCI_Thesaurus", "23.04d", relation, depth, concurrency, maxNodes, 100);
+	}
+
+	public final void test_walk_to_depth() throws Exception {
+		HierarchyTraversal.Result result = traversal(HierarchyTraversal.CHILDREN, 4, 4, 0).traverse("ncit:C");
+
+		// C, 3 + 9 + 27 + 81 below it, and S; the 81 leaves are not expanded
+		assertEquals(122, result.getVisited().size());
+		assertTrue(result.getVisited().contains("ncit:C210"));
+		assertTrue(result.getVisited().contains("ncit:S"));
+		assertEquals(1 + 3 + 9 + 28, requests.get());
+		assertEquals(41, result.getRequests());
+		assertEquals(3, result.getLevels().get(0).getDiscovered());
+		assertEquals(9, result.getLevels().get(1).getDiscovered());
+		assertEquals(28, result.getLevels().get(2).getDiscovered());
+		assertEquals(81, result.getLevels().get(3).getDiscovered());
+		assertEquals(28, result.getLevels().get(3).getLatency().getTotalCount());
+		assertFalse(result.isTruncated());
+		assertTrue("max in flight " + maxInFlight.get(), maxInFlight.get() <= 4 && maxInFlight.get() > 1);
+		assertTrue(result.getNodesPerSecond() > 0);
+	}
+
+	public final void test_node_limit_and_subjectof() throws Exception {
+		HierarchyTraversal.Result result = traversal(HierarchyTraversal.SUBJECTOF, 10, 2, 20).traverse("ncit:C");
+		assertTrue(result.isTruncated());
+		assertEquals(20, result.getVisited().size());
+		assertTrue(result.getVisited().contains("ncit:C0"));
+	}
+
+	public final void test_neighbour_and_print() throws Exception {
+		ObjectMapper mapper = new ObjectMapper();
+		HierarchyTraversal targetof = traversal(HierarchyTraversal.TARGETOF, 1, 1, 0);
+		assertEquals("ncit:C105150", targetof.neighbour(mapper.readTree("{\"subject\":{\"namespace\":\"ncit\",\"name\":\"C105150\"}}")));
+		assertNull(targetof.neighbour(mapper.readTree("{\"subject\":{}}")));
+		assertEquals("/codesystem/NCI_Thesaurus/version/23.04d/entity/ncit:C1/targetof?format=json&maxtoreturn=100", targetof.path("ncit:C1"));
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		HierarchyTraversal.print(traversal(HierarchyTraversal.CHILDREN, 2, 2, 0).traverse("ncit:C"), new PrintStream(bytes, true, "UTF-8"));
+		String report = bytes.toString("UTF-8");
+		assertTrue(report, report.contains("0 (3 new nodes)"));
+		assertTrue(report, report.contains("ncit:C: 13 nodes, 4 requests"));
+	}
+}
@@ -0,0 +1,61 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import io.restassured.filter.Filter;
+import io.restassured.filter.FilterContext;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+
+/**
+ * Publishes the timing breakdown, status and size of every request into
+ * {@link RequestMetrics}, keyed by the endpoint template of its path.
+ *
+ * The phases come from {@link TimingHttpClientFactory}, so the spec must be
+ * configured with it.  The test reads the body after the filter returns, so
+ * the total time, status and size are recorded when the body has been read
+ * or closed; a body never read is not recorded.
+ */
+public class InstrumentationFilter implements Filter
+{
+	private final RequestMetrics metrics;
+
+	public InstrumentationFilter(RequestMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	@Override
+	public Response filter(FilterableRequestSpecification requestSpec, FilterableResponseSpecification responseSpec, FilterContext ctx) {
+		TimingHttpClientFactory.reset();
+		long start = System.nanoTime();
+		Response response = ctx.next(requestSpec, responseSpec);
+		TimingHttpClientFactory.Timings timings = TimingHttpClientFactory.timings();
+		String template = CtsEndpoint.template(LatencyBudgetFilter.relativePath(requestSpec));
+
+		if (timings.getConnectNanos() > 0) {
+			metrics.record(template, RequestMetrics.DNS, timings.getDnsNanos());
+			metrics.record(template, RequestMetrics.CONNECT, timings.getConnectNanos());
+			if (timings.getTlsNanos() > 0) {
+				metrics.record(template, RequestMetrics.TLS, timings.getTlsNanos());
+			}
+		}
+		if (timings.getHeadersReceived() > 0) {
+			metrics.record(template, RequestMetrics.TTFB, timings.getHeadersReceived() - start);
+		}
+		int status = response.getStatusCode();
+		long contentLength = contentLength(response);
+		timings.whenBodyReceived(end -> {
+			metrics.record(template, RequestMetrics.TOTAL, end - start);
+			metrics.response(template, status, Math.max(timings.getBytes(), contentLength));
+		});
+		return response;
+	}
+
+	private static long contentLength(Response response) {
+		String length = response.getHeader("Content-Length");
+		try {
+			return length == null ? 0 : Long.parseLong(length.trim());
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+}
@@ -0,0 +1,115 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.restassured.RestAssured;
+import io.restassured.response.Response;
+import junit.framework.TestCase;
+
+import java.io.InputStream;
+import java.io.StringWriter;
+
+/**
+ * Request metrics against a local server that takes 20 ms before its headers,
+ * and 100 ms more before the body of /slowbody
+ */
+public class InstrumentationFilterTest extends TestCase
+{
+	private static final String CHILDREN = "/codesystem/NCI_Thesaurus/version/23.04d/entity/C12345/children";
+	private static final String TEMPLATE = "/codesystem/{cs}/version/{v}/entity/{id}/children";
+
+	private StubService server;
+	private final byte[] body = new byte[5000];
+
+	protected void setUp() throws Exception {
+		server = new StubService().context("/", exchange -> {
+			StubService.sleep(20);
+			String path = exchange.getRequestURI().getPath();
+			int status = path.endsWith("/children") || path.endsWith("/slowbody") ? 200 : 404;
+			if (path.endsWith("/slowbody")) {
+				StubService.sendSlowBody(exchange, status, body, 100);
+			} else {
+				StubService.send(exchange, status, body);
+			}
+		}).start();
+	}
+
+	protected void tearDown() throws Exception {
+		server.stop();
+	}
+
+	public final void test_phases_by_template() throws Exception {
+		RequestMetrics metrics = new RequestMetrics();
+		get(metrics, CHILDREN + "?format=json").then().statusCode(200).extract().asByteArray();
+		get(metrics, "/codesystem/ChEBI/version/v221/entity/CHEBI:1/children").then().statusCode(200).extract().asByteArray();
+		get(metrics, "/valueset/Nope").then().statusCode(404).extract().asByteArray();
+
+		assertEquals(2, metrics.count(TEMPLATE, 200));
+		assertEquals(2 * body.length, metrics.bytes(TEMPLATE));
+		assertEquals(1, metrics.count("/valueset/{vs}", 404));
+		assertEquals(2, metrics.histogram(TEMPLATE, RequestMetrics.CONNECT).getTotalCount());
+		assertEquals(2, metrics.histogram(TEMPLATE, RequestMetrics.DNS).getTotalCount());
+		assertEquals(0, metrics.histogram(TEMPLATE, RequestMetrics.TLS).getTotalCount());
+		long ttfb = metrics.histogram(TEMPLATE, RequestMetrics.TTFB).getMinValue();
+		assertTrue("first byte " + ttfb + " us", ttfb >= 20000);
+		assertTrue(metrics.histogram(TEMPLATE, RequestMetrics.TOTAL).getMaxValue()
+				>= metrics.histogram(TEMPLATE, RequestMetrics.TTFB).getMaxValue());
+	}
+
+	public final void test_total_includes_body() throws Exception {
+		RequestMetrics metrics = new RequestMetrics();
+		Response response = get(metrics, "/slowbody");
+		assertEquals(0, metrics.count("/slowbody", 200));
+		assertEquals(body.length, response.asByteArray().length);
+
+		assertEquals(1, metrics.count("/slowbody", 200));
+		assertTrue(metrics.histogram("/slowbody", RequestMetrics.TTFB).getMaxValue() < 100000);
+		long total = metrics.histogram("/slowbody", RequestMetrics.TOTAL).getMinValue();
+		assertTrue("total " + total + " us", total >= 120000);
+	}
+
+	public final void test_streamed_body_counted_by_content_length() throws Exception {
+		RequestMetrics metrics = new RequestMetrics();
+		try (InputStream in = get(metrics, CHILDREN).asInputStream()) {
+			while (in.read() >= 0) {
+				// drain
+			}
+		}
+		assertEquals(body.length, metrics.bytes(TEMPLATE));
+	}
+
+	public final void test_prometheus_and_json() throws Exception {
+		RequestMetrics metrics = new RequestMetrics();
+		get(metrics, CHILDREN).then().statusCode(200).extract().asByteArray();
+
+		StringWriter prometheus = new StringWriter();
+		metrics.writePrometheus(prometheus);
+		String text = prometheus.toString();
+		assertTrue(text, text.contains("# TYPE cts_request_phase_seconds summary"));
+		assertTrue(text, text.contains("cts_request_phase_seconds_count{template=\"" + TEMPLATE + "\",phase=\"ttfb\"} 1"));
+		assertTrue(text, text.contains("cts_request_phase_seconds{template=\"" + TEMPLATE + "\",phase=\"total\",quantile=\"0.99\"} "));
+		assertTrue(text, text.contains("cts_responses_total{template=\"" + TEMPLATE + "\",status=\"200\"} 1"));
+		assertTrue(text, text.contains("cts_response_bytes_total{template=\"" + TEMPLATE + "\"} " + body.length));
+
+		StringWriter json = new StringWriter();
+		metrics.writeJson(json);
+		JsonNode node = new ObjectMapper().readTree(json.toString()).path(TEMPLATE);
+		assertEquals(1, node.path("status").path("200").asInt());
+		assertEquals(body.length, node.path("bytes").asInt());
+		assertEquals(1, node.path("phases").path("connect").path("count").asInt());
+		assertTrue(node.path("phases").path("ttfb").path("p50Ms").asDouble() >= 20);
+		assertTrue(node.path("phases").path("total").has("p99.9Ms"));
+	}
+
+	private Response get(RequestMetrics metrics, String path) {
+		return RestAssured.
+			given().
+				baseUri(server.getBaseUri()).
+				basePath(LexevsRestTestRunner.BASE_PATH).
+				config(TimingHttpClientFactory.config()).
+				urlEncodingEnabled(false).
+				filter(new InstrumentationFilter(metrics)).
+			when().
+				get(path);
+	}
+}
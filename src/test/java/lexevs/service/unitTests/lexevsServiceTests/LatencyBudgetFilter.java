@@ -0,0 +1,208 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import io.restassured.RestAssured;
+import io.restassured.filter.Filter;
+import io.restassured.filter.FilterContext;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+import junit.framework.AssertionFailedError;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every request of a test, response and first byte, and fails the
+ * test when a request is over one of its {@link LatencyBudget}s.
+ *
+ * A response is timed to the end of its body, which the test reads after
+ * the filter has returned, so the budgets are checked by {@link #verify()}
+ * once the test is over.  Bodies the test left unread are drained then.
+ * A request over budget is sent again until there are <code>samples</code>
+ * timings of it; only if their median is still over budget does the test
+ * fail, so one slow outlier does not break the build.
+ */
+public class LatencyBudgetFilter implements Filter
+{
+	private final List<LatencyBudget> budgets;
+	private final int samples;
+	private final List<Sample> recorded = Collections.synchronizedList(new ArrayList<>());
+	private final List<Request> sent = new ArrayList<>();
+
+	/**
+	 * Timing of one request
+	 */
+	public static class Sample {
+		private final String path;
+		private final long latencyNanos;
+		private final long ttfbNanos;
+
+		Sample(String path, long latencyNanos, long ttfbNanos) {
+			this.path = path;
+			this.latencyNanos = latencyNanos;
+			this.ttfbNanos = ttfbNanos;
+		}
+
+		public String getPath() {
+			return path;
+		}
+
+		public long getLatencyNanos() {
+			return latencyNanos;
+		}
+
+		public long getTtfbNanos() {
+			return ttfbNanos;
+		}
+	}
+
+	/**
+	 * A request of the test, waiting for its body to be read
+	 */
+	private static class Request {
+		final String path;
+		final String uri;
+		final Response response;
+		volatile Sample first;
+
+		Request(String path, String uri, Response response) {
+			this.path = path;
+			this.uri = uri;
+			this.response = response;
+		}
+	}
+
+	public LatencyBudgetFilter(List<LatencyBudget> budgets, int samples) {
+		this.budgets = budgets;
+		this.samples = Math.max(samples, 1);
+	}
+
+	@Override
+	public Response filter(FilterableRequestSpecification requestSpec, FilterableResponseSpecification responseSpec, FilterContext ctx) {
+		TimingHttpClientFactory.reset();
+		long start = System.nanoTime();
+		Response response = ctx.next(requestSpec, responseSpec);
+		TimingHttpClientFactory.Timings timings = TimingHttpClientFactory.timings();
+		Request request = new Request(relativePath(requestSpec), requestSpec.getURI(), response);
+		synchronized (sent) {
+			sent.add(request);
+		}
+		timings.whenBodyReceived(end -> request.first = sample(request.path, start, timings.getHeadersReceived(), end));
+		return response;
+	}
+
+	/**
+	 * Drains the bodies the test did not read, then checks every request
+	 * sent since the last call against its budgets.
+	 *
+	 * @throws AssertionFailedError when the median of a request's samples is over budget
+	 */
+	public void verify() {
+		List<Request> requests;
+		synchronized (sent) {
+			requests = new ArrayList<>(sent);
+			sent.clear();
+		}
+		for (Request request : requests) {
+			if (request.first == null) {
+				TimingHttpClientFactory.drain(request.response);
+			}
+		}
+		for (Request request : requests) {
+			if (request.first != null) {
+				verify(request);
+			}
+		}
+	}
+
+	private void verify(Request request) {
+		List<LatencyBudget> applicable = new ArrayList<>();
+		for (LatencyBudget budget : budgets) {
+			if (budget.matches(request.path)) {
+				applicable.add(budget);
+			}
+		}
+		Sample first = request.first;
+		if (applicable.isEmpty() || withinBudget(applicable, first.latencyNanos, first.ttfbNanos)) {
+			return;
+		}
+
+		long[] latencies = new long[samples];
+		long[] ttfbs = new long[samples];
+		latencies[0] = first.latencyNanos;
+		ttfbs[0] = first.ttfbNanos;
+		for (int i = 1; i < samples; i++) {
+			TimingHttpClientFactory.reset();
+			long again = System.nanoTime();
+			Response response = RestAssured.given().config(TimingHttpClientFactory.config()).urlEncodingEnabled(false).get(request.uri);
+			TimingHttpClientFactory.drain(response);
+			Sample sample = sample(request.path, again, TimingHttpClientFactory.headersReceived(), System.nanoTime());
+			latencies[i] = sample.latencyNanos;
+			ttfbs[i] = sample.ttfbNanos;
+		}
+
+		long latency = median(latencies);
+		long ttfb = median(ttfbs);
+		for (LatencyBudget budget : applicable) {
+			if (!budget.isMet(TimeUnit.NANOSECONDS.toMillis(latency), TimeUnit.NANOSECONDS.toMillis(ttfb))) {
+				throw new AssertionFailedError(request.path + " is over latency budget " + budget + ": median of " + samples
+						+ " samples " + TimeUnit.NANOSECONDS.toMillis(latency) + " ms, first byte "
+						+ TimeUnit.NANOSECONDS.toMillis(ttfb) + " ms");
+			}
+		}
+	}
+
+	/**
+	 * @return every request timed so far, including repeated samples
+	 */
+	public List<Sample> getSamples() {
+		synchronized (recorded) {
+			return new ArrayList<>(recorded);
+		}
+	}
+
+	private Sample sample(String path, long start, long headers, long end) {
+		Sample sample = new Sample(path, end - start, headers > 0 ? headers - start : end - start);
+		recorded.add(sample);
+		return sample;
+	}
+
+	private static boolean withinBudget(List<LatencyBudget> budgets, long latencyNanos, long ttfbNanos) {
+		for (LatencyBudget budget : budgets) {
+			if (!budget.isMet(TimeUnit.NANOSECONDS.toMillis(latencyNanos), TimeUnit.NANOSECONDS.toMillis(ttfbNanos))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static long median(long[] values) {
+		long[] sorted = Arrays.copyOf(values, values.length);
+		Arrays.sort(sorted);
+		return sorted[sorted.length / 2];
+	}
+
+	/**
+	 * @return the decoded request path below the base path, with its query
+	 */
+	static String relativePath(FilterableRequestSpecification requestSpec) {
+		URI uri = URI.create(requestSpec.getURI());
+		String path = uri.getRawPath();
+		String basePath = requestSpec.getBasePath();
+		if (basePath != null && path.startsWith(basePath)) {
+			path = path.substring(basePath.length());
+		}
+		String query = uri.getRawQuery();
+		try {
+			return URLDecoder.decode(query == null ? path : path + "?" + query, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,137 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import io.restassured.RestAssured;
+import io.restassured.response.Response;
+import junit.framework.AssertionFailedError;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Latency budgets against a local server that takes 50 ms per request, and
+ * sends the headers of /slowbody at once but its body 200 ms later
+ */
+public class LatencyBudgetFilterTest extends TestCase
+{
+	private StubService server;
+	private final AtomicInteger requests = new AtomicInteger();
+
+	protected void setUp() throws Exception {
+		server = new StubService().context("/slow", exchange -> {
+			StubService.sleep(50);
+			if ("matchvalue=NCI Thesaurus".equals(exchange.getRequestURI().getQuery())) {
+				requests.incrementAndGet();
+			}
+			StubService.send(exchange, 200, "{}");
+		}).context("/slowbody", exchange -> StubService.sendSlowBody(exchange, 200, "{\"slow\":true}".getBytes("UTF-8"), 200)).start();
+	}
+
+	protected void tearDown() throws Exception {
+		server.stop();
+	}
+
+	public final void test_within_budget() {
+		LatencyBudgetFilter filter = filter(10000);
+		get(filter);
+		filter.verify();
+		assertEquals(1, requests.get());
+		assertEquals(1, filter.getSamples().size());
+		assertEquals("/slow?matchvalue=NCI Thesaurus", filter.getSamples().get(0).getPath());
+		assertTrue(filter.getSamples().get(0).getLatencyNanos() >= filter.getSamples().get(0).getTtfbNanos());
+	}
+
+	public final void test_configured_budgets_of_entity_pages() throws Exception {
+		List<LatencyBudget> budgets = LatencyBudget.load(LexevsConfig.load());
+		String entities = "/codesystem/NCI_Thesaurus/version/23.04d/entities?maxtoreturn=";
+		assertEquals(Collections.singletonList("entities_page"), matching(budgets, entities + "10000&format=json"));
+		assertEquals(Collections.singletonList("entities_stream"), matching(budgets, entities + "100000&format=json"));
+		assertEquals(Collections.singletonList("entities_stream"), matching(budgets, entities + "250000"));
+		assertEquals(Collections.emptyList(), matching(budgets, entities + "1000&format=json"));
+	}
+
+	private static List<String> matching(List<LatencyBudget> budgets, String pathAndQuery) {
+		List<String> names = new ArrayList<>();
+		for (LatencyBudget budget : budgets) {
+			if (budget.matches(pathAndQuery)) {
+				names.add(budget.getName());
+			}
+		}
+		return names;
+	}
+
+	public final void test_over_budget_fails_on_median_of_samples() {
+		LatencyBudgetFilter filter = filter(10);
+		get(filter);
+		try {
+			filter.verify();
+			fail("expected the request to be over budget");
+		} catch (AssertionFailedError e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("median of 3 samples"));
+		}
+		assertEquals(3, requests.get());
+	}
+
+	public final void test_body_counts_towards_latency() {
+		List<LatencyBudget> budgets = Collections.singletonList(new LatencyBudget("slowbody", Pattern.compile("^/slowbody"), 100, 0));
+		LatencyBudgetFilter filter = new LatencyBudgetFilter(budgets, 1);
+		Response response = RestAssured.
+			given().
+				baseUri(server.getBaseUri()).
+				basePath(LexevsRestTestRunner.BASE_PATH).
+				config(TimingHttpClientFactory.config()).
+				filter(filter).
+			when().
+				get("/slowbody");
+		assertEquals(0, filter.getSamples().size());
+		assertEquals("{\"slow\":true}", response.asString());
+
+		LatencyBudgetFilter.Sample sample = filter.getSamples().get(0);
+		assertTrue("first byte " + sample.getTtfbNanos(), sample.getTtfbNanos() < 100_000_000L);
+		assertTrue("latency " + sample.getLatencyNanos(), sample.getLatencyNanos() >= 200_000_000L);
+		try {
+			filter.verify();
+			fail("expected the body to be over budget");
+		} catch (AssertionFailedError e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("median of 1 samples"));
+		}
+	}
+
+	public final void test_unread_body_drained() {
+		LatencyBudgetFilter filter = filter(10000);
+		RestAssured.
+			given().
+				baseUri(server.getBaseUri()).
+				basePath(LexevsRestTestRunner.BASE_PATH).
+				config(TimingHttpClientFactory.config()).
+				filter(filter).
+			when().
+				get("/slowbody").
+			then().
+				statusCode(200);
+		filter.verify();
+		assertEquals(1, filter.getSamples().size());
+		assertTrue(filter.getSamples().get(0).getLatencyNanos() >= 200_000_000L);
+	}
+
+	private LatencyBudgetFilter filter(long millis) {
+		List<LatencyBudget> budgets = Collections.singletonList(new LatencyBudget("slow", Pattern.compile("^/slow"), millis, 0));
+		return new LatencyBudgetFilter(budgets, 3);
+	}
+
+	private void get(LatencyBudgetFilter filter) {
+		RestAssured.
+			given().
+				baseUri(server.getBaseUri()).
+				basePath(LexevsRestTestRunner.BASE_PATH).
+				config(TimingHttpClientFactory.config()).
+				filter(filter).
+			when().
+				get("/slow?matchvalue=NCI Thesaurus").
+			then().
+				statusCode(200);
+	}
+}
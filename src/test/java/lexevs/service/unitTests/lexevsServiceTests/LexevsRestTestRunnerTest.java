@@ -1,12 +1,17 @@
 package lexevs.service.unitTests.lexevsServiceTests;
 
 import io.restassured.RestAssured;
+import io.restassured.builder.RequestSpecBuilder;
+import io.restassured.response.Response;
+import io.restassured.specification.RequestSpecification;
 import junit.framework.Test;
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
 
-import java.io.InputStream;
-import java.util.Properties;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.List;
 
 import static org.hamcrest.Matchers.*;
 
@@ -23,6 +28,27 @@ public class LexevsRestTestRunnerTest extends TestCase
 	public static String CHEBI_VERSION_NUMBER;
 	public static  String THESAURUS_VERSION_NUMBER;
 	public static String MEDDRA_VERSION_NUMBER ;
+	public static String SERVICE_MODE;
+	public static String FIXTURE_DIR;
+	public static int HTTP_CONNECT_TIMEOUT_MS = 10000;
+	public static int HTTP_READ_TIMEOUT_MS = 120000;
+	public static int PARALLEL_THREADS = 1;
+	public static List<LatencyBudget> LATENCY_BUDGETS;
+	public static int LATENCY_SAMPLES = 1;
+	public static int STREAMING_MAXTORETURN = 100000;
+	public static String METRICS_OUTPUT_DIR;
+
+	// Timing breakdown of every request of the run, written out when the JVM exits
+	public static final RequestMetrics METRICS = new RequestMetrics();
+
+	// Latency samples of earlier runs, null when BASELINE_FILE is empty or the run is not live
+	public static PerformanceBaseline BASELINE;
+	public static int BASELINE_SAMPLES = 5;
+	public static String BASELINE_SERVICE_VERSION;
+	public static int BASELINE_MIN_SAMPLES = 20;
+	public static double BASELINE_ALPHA = 0.01;
+	public static double BASELINE_MIN_SLOWDOWN = 1.2;
+	public static final String BASELINE_RUN = Instant.now().toString();
 
 	public static final String BASE_PATH = "/lexevscts2";
 	public static final String THESAURUS = "NCI_Thesaurus";
@@ -34,6 +60,19 @@ public class LexevsRestTestRunnerTest extends TestCase
 	public static String METATHESAURUS_VERSION = METATHESAURUS + "-" + METATHESAURUS_VERSION_NUMBER;
 	public static String CHEBI_VERSION = CHEBI + "-" + CHEBI_VERSION_NUMBER;
 	public static String MEDDRA_VERSION = MEDDRA + "-" + MEDDRA_VERSION_NUMBER;
+
+	private static CtsStubServer stubServer;
+	private static boolean propertiesRead;
+
+	// Every test sends its requests through its own spec rather than the
+	// RestAssured statics, so tests can run concurrently.
+	protected RequestSpecification spec;
+
+	// Times every request of the test against LATENCY_BUDGETS
+	protected LatencyBudgetFilter latencyFilter;
+
+	// Samples of the test compared with BASELINE, null when there is none
+	protected BaselineFilter baselineFilter;
 	
     /**
      * Create the test case
@@ -50,40 +89,143 @@ public class LexevsRestTestRunnerTest extends TestCase
      */
     public static Test suite()
     {
+    	try {
+    		readProperties();
+    	} catch (Exception e) {
+    		throw new IllegalStateException("Unable to read config.properties", e);
+    	}
+    	if (PARALLEL_THREADS > 1) {
+    		return new ParallelTestSuite( LexevsRestTestRunnerTest.class, PARALLEL_THREADS );
+    	}
         return new TestSuite( LexevsRestTestRunnerTest.class );
     }
     
     protected void setUp() throws Exception {
     	readProperties();
-    	// Default the URL to prod, stage, ...
-		RestAssured.baseURI = BASE_URL;
-		
-		// Default the base path that is appended to the base URL
-    	RestAssured.basePath = BASE_PATH;
+    	latencyFilter = new LatencyBudgetFilter(LATENCY_BUDGETS, LATENCY_SAMPLES);
+		RequestSpecBuilder builder = new RequestSpecBuilder().
+			// Default the URL to prod, stage, ...
+			setBaseUri("live".equals(SERVICE_MODE) ? BASE_URL : startStubServer()).
+			// Default the base path that is appended to the base URL
+			setBasePath(BASE_PATH).
+			setConfig(TimingHttpClientFactory.config());
+		// Outermost, so the filters below do not see its extra samples
+		if (BASELINE != null) {
+			baselineFilter = new BaselineFilter(BASELINE_SAMPLES);
+			builder.addFilter(baselineFilter);
+		}
+		spec = builder.
+			addFilter(latencyFilter).
+			addFilter(new InstrumentationFilter(METRICS)).
+			build();
 	}
 
-	protected void readProperties() throws Exception{
-		try(InputStream input = LexevsRestTestRunnerTest.class.getClassLoader().getResourceAsStream("config.properties")) {
-			if (input == null) {
-				System.out.println("Sorry, unable to find config.properties");
-				return;
-			}
+	/**
+	 * Checks the requests of the test against their latency budgets, then
+	 * compares its latencies with the baseline and adds them to it.
+	 */
+	protected void tearDown() throws Exception {
+		try {
+			latencyFilter.verify();
+		} finally {
+			compareWithBaseline();
+		}
+	}
+
+	private void compareWithBaseline() throws IOException {
+		if (baselineFilter == null) {
+			return;
+		}
+		double[] current = baselineFilter.collect();
+		if (current.length == 0) {
+			return;
+		}
+		String terminologies = terminologyVersions();
+		PerformanceBaseline.Comparison comparison = PerformanceBaseline.compare(getName(),
+				BASELINE.samples(getName(), BASELINE_SERVICE_VERSION, terminologies, BASELINE_RUN), current,
+				BASELINE_MIN_SAMPLES, BASELINE_ALPHA, BASELINE_MIN_SLOWDOWN);
+		BASELINE.append(getName(), LEXEVS_SERVICE_VERSION, terminologies, BASELINE_RUN, current);
+		if (comparison.isRegression()) {
+			fail("Latency regression: " + comparison);
+		}
+	}
+
+	/**
+	 * @return the terminology versions the baseline samples are keyed by
+	 */
+	protected static String terminologyVersions() {
+		return THESAURUS_VERSION + "," + CHEBI_VERSION + "," + MEDDRA_VERSION + "," + METATHESAURUS_VERSION;
+	}
 
-			// load a properties file
-			Properties prop = new Properties();
-			prop.load(input);
-			System.out.println("prop: " + prop.getProperty("BASE_URL"));
-			BASE_URL = prop.getProperty("BASE_URL");
-			LEXEVS_SERVICE_VERSION = prop.getProperty("LEXEVS_SERVICE_VERSION");
-			THESAURUS_VERSION_NUMBER = prop.getProperty("THESAURUS_VERSION_NUMBER");
-			CHEBI_VERSION_NUMBER = prop.getProperty("CHEBI_VERSION_NUMBER");
-			MEDDRA_VERSION_NUMBER = prop.getProperty("MEDDRA_VERSION_NUMBER");
-			METATHESAURUS_VERSION_NUMBER = prop.getProperty("METATHESAURUS_VERSION_NUMBER");
-			THESAURUS_VERSION = THESAURUS + "-" + THESAURUS_VERSION_NUMBER;
-			METATHESAURUS_VERSION = METATHESAURUS + "-" + METATHESAURUS_VERSION_NUMBER;
-			CHEBI_VERSION = CHEBI + "-" + CHEBI_VERSION_NUMBER;
-			MEDDRA_VERSION = MEDDRA + "-" + MEDDRA_VERSION_NUMBER;
+	protected static synchronized void readProperties() throws Exception{
+		if (propertiesRead) {
+			return;
 		}
+		LexevsConfig config = LexevsConfig.load();
+		System.out.println("prop: " + config.getBaseUrl());
+		BASE_URL = config.getBaseUrl();
+		LEXEVS_SERVICE_VERSION = config.getServiceVersion();
+		THESAURUS_VERSION_NUMBER = config.getThesaurusVersionNumber();
+		CHEBI_VERSION_NUMBER = config.getChebiVersionNumber();
+		MEDDRA_VERSION_NUMBER = config.getMeddraVersionNumber();
+		METATHESAURUS_VERSION_NUMBER = config.getMetathesaurusVersionNumber();
+		// -DSERVICE_MODE=stub on the command line switches a run without editing config.properties
+		SERVICE_MODE = config.get("SERVICE_MODE", "live");
+		FIXTURE_DIR = config.get("FIXTURE_DIR", "src/test/resources/fixtures");
+		HTTP_CONNECT_TIMEOUT_MS = config.getInt("HTTP_CONNECT_TIMEOUT_MS", 10000);
+		HTTP_READ_TIMEOUT_MS = config.getInt("HTTP_READ_TIMEOUT_MS", 120000);
+		PARALLEL_THREADS = config.getInt("PARALLEL_THREADS", 1);
+		LATENCY_BUDGETS = LatencyBudget.load(config);
+		LATENCY_SAMPLES = config.getInt("LATENCY_SAMPLES", 1);
+		STREAMING_MAXTORETURN = config.getInt("STREAMING_MAXTORETURN", 100000);
+		METRICS_OUTPUT_DIR = config.get("METRICS_OUTPUT_DIR", "target/metrics");
+		String baselineFile = config.get("BASELINE_FILE", "");
+		if (!baselineFile.isEmpty() && "live".equals(SERVICE_MODE)) {
+			BASELINE = new PerformanceBaseline(Paths.get(baselineFile));
+		}
+		BASELINE_SAMPLES = config.getInt("BASELINE_SAMPLES", 5);
+		String baselineVersion = config.get("BASELINE_SERVICE_VERSION", "");
+		BASELINE_SERVICE_VERSION = baselineVersion.isEmpty() ? null : baselineVersion;
+		BASELINE_MIN_SAMPLES = config.getInt("BASELINE_MIN_SAMPLES", 20);
+		BASELINE_ALPHA = config.getDouble("BASELINE_ALPHA", 0.01);
+		BASELINE_MIN_SLOWDOWN = config.getDouble("BASELINE_MIN_SLOWDOWN", 1.2);
+		Runtime.getRuntime().addShutdownHook(new Thread(LexevsRestTestRunnerTest::writeMetrics, "metrics"));
+		THESAURUS_VERSION = THESAURUS + "-" + THESAURUS_VERSION_NUMBER;
+		METATHESAURUS_VERSION = METATHESAURUS + "-" + METATHESAURUS_VERSION_NUMBER;
+		CHEBI_VERSION = CHEBI + "-" + CHEBI_VERSION_NUMBER;
+		MEDDRA_VERSION = MEDDRA + "-" + MEDDRA_VERSION_NUMBER;
+		// Only now, so a failed load is retried by the next test instead of leaving the defaults
+		propertiesRead = true;
+	}
+
+	private static void writeMetrics() {
+		if (!METRICS.templates().iterator().hasNext()) {
+			return;
+		}
+		try {
+			METRICS.write(Paths.get(METRICS_OUTPUT_DIR));
+			System.out.println("Request metrics written to " + METRICS_OUTPUT_DIR);
+		} catch (IOException e) {
+			System.err.println("Unable to write request metrics: " + e);
+		}
+	}
+
+	/**
+	 * Starts the embedded stub on first use; it is shared by every test in the run.
+	 * In record mode it proxies BASE_URL and records into FIXTURE_DIR.
+	 *
+	 * @return the base URL of the stub
+	 */
+	protected static synchronized String startStubServer() throws Exception {
+		if (stubServer == null) {
+			stubServer = new CtsStubServer(new FixtureStore(Paths.get(FIXTURE_DIR)), BASE_PATH);
+			if ("record".equals(SERVICE_MODE)) {
+				stubServer.setUpstream(BASE_URL);
+				stubServer.setUpstreamTimeouts(HTTP_CONNECT_TIMEOUT_MS, HTTP_READ_TIMEOUT_MS);
+			}
+			stubServer.start(0);
+		}
+		return stubServer.getBaseUri();
 	}
 	
     //*********************************************************************
@@ -92,6 +234,8 @@ public class LexevsRestTestRunnerTest extends TestCase
 	public final void test_service_call() {
 		
 		RestAssured.
+			given().
+				spec(spec).
 			when().
 				get("/service?format=json").
 			then().
@@ -105,21 +249,26 @@ public class LexevsRestTestRunnerTest extends TestCase
 	//*********************************************************************
 	// codeSystemVersion
 	//*********************************************************************
-	public final void test_codeSystemVersion_call() {
+	public final void test_codeSystemVersion_call() throws Exception {
 
 		System.out.println (MEDDRA_VERSION);
 		System.out.println(CHEBI_VERSION);
 
-		RestAssured.
+		Response response = RestAssured.
+			given().
+				spec(spec).
 			when().
 				get("/codesystemversions?format=json&maxtoreturn=1000").
 			then().
 				assertThat().
 					statusCode(200).
-					body("CodeSystemVersionCatalogEntryDirectory.complete", hasToString("COMPLETE"),
-  						 "CodeSystemVersionCatalogEntryDirectory.numEntries", greaterThanOrEqualTo(20),
-  						 "CodeSystemVersionCatalogEntryDirectory.entry.find { it.codeSystemVersionName == '"+MEDDRA_VERSION+"' }.versionOf.content", equalTo("MedDRA"),
-  						 "CodeSystemVersionCatalogEntryDirectory.entry.find { it.codeSystemVersionName =='"+ CHEBI_VERSION+"' }.versionOf.content", equalTo("ChEBI"));
+					extract().response();
+
+		DirectoryIndex directory = DirectoryIndex.of(response, "CodeSystemVersionCatalogEntryDirectory");
+		directory.assertThat("complete", hasToString("COMPLETE"));
+		directory.assertThat("numEntries", greaterThanOrEqualTo(20));
+		directory.assertEntry("codeSystemVersionName", MEDDRA_VERSION, "versionOf.content", equalTo("MedDRA"));
+		directory.assertEntry("codeSystemVersionName", CHEBI_VERSION, "versionOf.content", equalTo("ChEBI"));
 	}
 	
 	//*********************************************************************
@@ -128,6 +277,8 @@ public class LexevsRestTestRunnerTest extends TestCase
 	public final void test_codeSystemVersion_search_return_none_call() {
 		
 		RestAssured.
+			given().
+				spec(spec).
 			when().
 				get("/codesystemversions?matchvalue=foot&filtercomponent=resourceSynopsis&format=json").
 			then().
@@ -140,38 +291,48 @@ public class LexevsRestTestRunnerTest extends TestCase
 	//*********************************************************************
 	// codeSystemVersion - search "thesaurus"
 	//*********************************************************************
-	public final void test_codeSystemVersion_search_call() {
+	public final void test_codeSystemVersion_search_call() throws Exception {
 		
-		RestAssured.
+		Response response = RestAssured.
+			given().
+				spec(spec).
 			when().
 				get("/codesystemversions?matchvalue=thesaurus&filtercomponent=resourceSynopsis&format=json").
 			then().
 				assertThat().
 					statusCode(200).
-					body("CodeSystemVersionCatalogEntryDirectory.complete", hasToString("COMPLETE"),
-  						 "CodeSystemVersionCatalogEntryDirectory.numEntries", greaterThanOrEqualTo(5),
-							"CodeSystemVersionCatalogEntryDirectory.numEntries", lessThanOrEqualTo(10),
-  						 "CodeSystemVersionCatalogEntryDirectory.entry.find { it.codeSystemVersionName == 'UMLS_SemNet-3.2' }.versionOf.content", equalTo("UMLS_SemNet"),
-  						 "CodeSystemVersionCatalogEntryDirectory.entry.find { it.codeSystemVersionName == '" + THESAURUS_VERSION +"' }.versionOf.content", equalTo("NCI_Thesaurus"),
-  						 "CodeSystemVersionCatalogEntryDirectory.entry.find { it.codeSystemVersionName == '" + METATHESAURUS_VERSION +"' }.versionOf.content", equalTo("NCI Metathesaurus"));
+					extract().response();
+
+		DirectoryIndex directory = DirectoryIndex.of(response, "CodeSystemVersionCatalogEntryDirectory");
+		directory.assertThat("complete", hasToString("COMPLETE"));
+		directory.assertThat("numEntries", greaterThanOrEqualTo(5));
+		directory.assertThat("numEntries", lessThanOrEqualTo(10));
+		directory.assertEntry("codeSystemVersionName", "UMLS_SemNet-3.2", "versionOf.content", equalTo("UMLS_SemNet"));
+		directory.assertEntry("codeSystemVersionName", THESAURUS_VERSION, "versionOf.content", equalTo("NCI_Thesaurus"));
+		directory.assertEntry("codeSystemVersionName", METATHESAURUS_VERSION, "versionOf.content", equalTo("NCI Metathesaurus"));
 	}
 	
 	//*********************************************************************
 	// codeSystemVersion - search exact match on THESAURUS_VERSION
 	//*********************************************************************
-	public final void test_codeSystemVersion_search_exact_match_call() {
+	public final void test_codeSystemVersion_search_exact_match_call() throws Exception {
 		
-		RestAssured.
+		Response response = RestAssured.
+			given().
+				spec(spec).
 			when().
 				get("/codesystemversions?matchvalue=NCI_Thesaurus-" + THESAURUS_VERSION_NUMBER + "&filtercomponent=resourceName&matchalgorithm=exactMatch&format=json").
 			then().
 				assertThat().
 					statusCode(200).
-					body("CodeSystemVersionCatalogEntryDirectory.complete", hasToString("COMPLETE"),
-  						 "CodeSystemVersionCatalogEntryDirectory.numEntries", equalTo(1),
-  						 "CodeSystemVersionCatalogEntryDirectory.entry.find { it.codeSystemVersionName == '" + THESAURUS_VERSION + "' }.versionOf.content", equalTo("NCI_Thesaurus"),
-  					   	 "CodeSystemVersionCatalogEntryDirectory.entry.find { it.codeSystemVersionName == '" + THESAURUS_VERSION + "' }.resourceSynopsis.value", equalTo("NCI Thesaurus"),
-  						 "CodeSystemVersionCatalogEntryDirectory.entry.find { it.codeSystemVersionName == '" + THESAURUS_VERSION + "' }.documentURI", equalTo("http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#" + THESAURUS_VERSION_NUMBER));
+					extract().response();
+
+		DirectoryIndex directory = DirectoryIndex.of(response, "CodeSystemVersionCatalogEntryDirectory");
+		directory.assertThat("complete", hasToString("COMPLETE"));
+		directory.assertThat("numEntries", equalTo(1));
+		directory.assertEntry("codeSystemVersionName", THESAURUS_VERSION, "versionOf.content", equalTo("NCI_Thesaurus"));
+		directory.assertEntry("codeSystemVersionName", THESAURUS_VERSION, "resourceSynopsis.value", equalTo("NCI Thesaurus"));
+		directory.assertEntry("codeSystemVersionName", THESAURUS_VERSION, "documentURI", equalTo("http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#" + THESAURUS_VERSION_NUMBER));
 	}
 	
 	//*********************************************************************
@@ -183,6 +344,8 @@ public class LexevsRestTestRunnerTest extends TestCase
 	public final void test_codeSystemVersion_search_filtercomponent_resourceSynopsis_matchAlgorithm_contains_call() {
 		
 		RestAssured.
+			given().
+				spec(spec).
 			when().
 				get("/codesystemversions?matchvalue=NCI Thesaurus&filtercomponent=resourceSynopsis&matchAlgorithm=contains&format=json").
 			then().
@@ -202,6 +365,8 @@ public class LexevsRestTestRunnerTest extends TestCase
 	public final void test_codeSystemVersion_search_filtercomponent_resourceSynopsis_matchAlgorithm_exactMatch_call() {
 		
 		RestAssured.
+			given().
+				spec(spec).
 			when().
 				get("/codesystemversions?matchvalue=NCI Thesaurus&filtercomponent=resourceSynopsis&matchAlgorithm=exactMatch&format=json").
 			then().
@@ -221,6 +386,8 @@ public class LexevsRestTestRunnerTest extends TestCase
 	public final void test_codeSystemVersion_search_filtercomponent_resourceSynopsis_matchAlgorithm_luceneQuery_call() {
 		
 		RestAssured.
+			given().
+				spec(spec).
 			when().
 				get("/codesystemversions?matchvalue=NCI Thesaurus&filtercomponent=resourceSynopsis&matchAlgorithm=luceneQuery&format=json").
 			then().
@@ -240,6 +407,8 @@ public class LexevsRestTestRunnerTest extends TestCase
 	public final void test_codeSystemVersion_search_filtercomponent_resourceSynopsis_matchAlgorithm_starsWith_call() {
 		
 		RestAssured.
+			given().
+				spec(spec).
 			when().
 				get("/codesystemversions?matchvalue=NCI Thesaurus&filtercomponent=resourceSynopsis&matchAlgorithm=startsWith&format=json").
 			then().
@@ -259,6 +428,8 @@ public class LexevsRestTestRunnerTest extends TestCase
 	public final void test_codeSystemVersion_search_filtercomponent_resourceName_matchAlgorithm_contains_call() {
 		
 		RestAssured.
+			given().
+				spec(spec).
 			when().
 				get("/codesystemversions?matchvalue=Thesaurus&filtercomponent=resourceName&matchAlgorithm=contains&format=json").
 			then().
@@ -278,6 +449,8 @@ public class LexevsRestTestRunnerTest extends TestCase
 	public final void test_codeSystemVersion_search_filtercomponent_resourceName_matchAlgorithm_exactMatch_call() {
 		
 		RestAssured.
+			given().
+				spec(spec).
 			when().
 				get("/codesystemversions?matchvalue=Thesaurus&filtercomponent=resourceName&matchAlgorithm=exactMatch&format=json").
 			then().
@@ -297,6 +470,8 @@ public class LexevsRestTestRunnerTest extends TestCase
 	public final void test_codeSystemVersion_search_filtercomponent_resourceName_matchAlgorithm_luceneQuery_call() {
 		
 		RestAssured.
+			given().
+				spec(spec).
 			when().
 				get("/codesystemversions?matchvalue=Thesaurus&filtercomponent=resourceName&matchAlgorithm=luceneQuery&format=json").
 			then().
@@ -316,6 +491,8 @@ public class LexevsRestTestRunnerTest extends TestCase
 	public final void test_codeSystemVersion_search_filtercomponent_resourceName_matchAlgorithm_starsWith_call() {
 		
 		RestAssured.
+			given().
+				spec(spec).
 			when().
 				get("/codesystemversions?matchvalue=Thesaurus&filtercomponent=resourceName&matchAlgorithm=startsWith&format=json").
 			then().
@@ -335,6 +512,8 @@ public class LexevsRestTestRunnerTest extends TestCase
 	public final void test_codeSystemVersion_search_filtercomponent_about_matchAlgorithm_contains_call() {
 		
 		RestAssured.
+			given().
+				spec(spec).
 			when().
 				get("/codesystemversions?matchvalue=EVS&filtercomponent=about&matchalgorithm=contains&format=json").
 			then().
@@ -354,6 +533,8 @@ public class LexevsRestTestRunnerTest extends TestCase
 	public final void test_codeSystemVersion_search_filtercomponent_about_matchAlgorithm_startsWith_call() {
 		
 		RestAssured.
+			given().
+				spec(spec).
 			when().
 				get("/codesystemversions?matchvalue=EVS&filtercomponent=about&matchalgorithm=startsWith&format=json").
 			then().
@@ -372,6 +553,8 @@ public class LexevsRestTestRunnerTest extends TestCase
 	public final void test_codeSystemVersion_search_filtercomponent_about_matchAlgorithm_exactMatch_call() {
 		
 		RestAssured.
+			given().
+				spec(spec).
 			when().
 				get("/codesystemversions?matchvalue=EVS&filtercomponent=about&matchalgorithm=exactMatch&format=json").
 			then().
@@ -387,6 +570,8 @@ public class LexevsRestTestRunnerTest extends TestCase
 	public final void test_codeSystem_read_call() {
 		
 		RestAssured.
+			given().
+				spec(spec).
 			when().
 				get("/codesystem/NCI_Thesaurus/version/" + THESAURUS_VERSION_NUMBER + "?format=json").
 			then().
@@ -406,19 +591,43 @@ public class LexevsRestTestRunnerTest extends TestCase
 	//*********************************************************************
 	// codeSystem - read entities - only 50 from THESAURUS_VERSION 
 	//*********************************************************************
-	public final void test_codeSystem_search_call() {
+	public final void test_codeSystem_search_call() throws Exception {
 		
-		RestAssured.
+		// No then(): the body is streamed through the validator instead of buffered
+		Response response = RestAssured.
+			given().
+				spec(spec).
 			when().
-				get("codesystem/NCI_Thesaurus/version/" + THESAURUS_VERSION_NUMBER + "/entities?maxtoreturn=10000&format=json").
-			then().
-				assertThat().
-					statusCode(200).					
-					body("EntityDirectory.complete", is("PARTIAL"),
-						 "EntityDirectory.numEntries", is(10000),
-						 "EntityDirectory.entry.find { it.about == 'http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#C17998' }.name.name", equalTo("C17998"),
-						 "EntityDirectory.entry.find { it.about == 'http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#C855' }.name.name", equalTo("C855"),
-						 "EntityDirectory.entry.find { it.about == 'http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#C200' }.name.name", equalTo("C200"));
+				get("codesystem/NCI_Thesaurus/version/" + THESAURUS_VERSION_NUMBER + "/entities?maxtoreturn=10000&format=json");
+		assertEquals(200, response.getStatusCode());
+
+		new StreamingDirectoryValidator("EntityDirectory").
+			expect("complete", is("PARTIAL")).
+			expect("numEntries", is(10000)).
+			expectEntry("about", "http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#C17998", "name.name", equalTo("C17998")).
+			expectEntry("about", "http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#C855", "name.name", equalTo("C855")).
+			expectEntry("about", "http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#C200", "name.name", equalTo("C200")).
+			validate(response.asInputStream());
+	}
+
+	//*********************************************************************
+	// codeSystem - read entities - STREAMING_MAXTORETURN from THESAURUS_VERSION, streamed
+	//*********************************************************************
+	public final void test_codeSystem_search_streaming_call() throws Exception {
+
+		Response response = RestAssured.
+			given().
+				spec(spec).
+			when().
+				get("codesystem/NCI_Thesaurus/version/" + THESAURUS_VERSION_NUMBER + "/entities?maxtoreturn=" + STREAMING_MAXTORETURN + "&format=json");
+		assertEquals(200, response.getStatusCode());
+
+		DirectoryStreamReader directory = new StreamingDirectoryValidator("EntityDirectory").
+			expect("numEntries", is(STREAMING_MAXTORETURN)).
+			expectEveryEntry("name.name", notNullValue()).
+			expectEveryEntry("about", startsWith("http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#")).
+			validate(response.asInputStream());
+		assertEquals(STREAMING_MAXTORETURN, directory.getEntryCount());
 	}
 		
 	//*********************************************************************
@@ -427,6 +636,8 @@ public class LexevsRestTestRunnerTest extends TestCase
 	public final void test_entity_search_resource_synopsis_contains_call() {
 		
 		RestAssured.
+			given().
+				spec(spec).
 			when().
 				get("codesystem/MedDRA/version/22_1/entities?matchvalue=Cleft&filtercomponent=resourceSynopsis&matchalgorithm=contains&format=json").
 			then().
@@ -446,6 +657,8 @@ public class LexevsRestTestRunnerTest extends TestCase
 	public final void test_entity_search_resource_synopsis_exact_match_call() {
 		
 		RestAssured.
+			given().
+				spec(spec).
 			when().
 				get("codesystem/MedDRA/version/22_1/entities?matchvalue=Cleft lip and nose&filtercomponent=resourceSynopsis&matchalgorithm=exactMatch&format=json").
 			then().
@@ -461,6 +674,8 @@ public class LexevsRestTestRunnerTest extends TestCase
 	public final void test_entities_read_call() {
 		
 		RestAssured.
+			given().
+				spec(spec).
 			when().
 				get("codesystem/NCI_Thesaurus/version/" + THESAURUS_VERSION_NUMBER + "/entity/ncit:C938?format=json").
 			then().
@@ -483,6 +698,8 @@ public class LexevsRestTestRunnerTest extends TestCase
 //	public final void test_entities_search_all_call() {
 //
 //		RestAssured.
+//			given().
+//				spec(spec).
 //			when().
 //				get("/entities?maxtoreturn=50&format=json").
 //			then().
@@ -501,6 +718,8 @@ public class LexevsRestTestRunnerTest extends TestCase
 	public final void test_entities_search_filtercomponent_resourceSynopsis_matchAlgorithm_contains_invalid_value_call() {
 		
 		RestAssured.
+			given().
+				spec(spec).
 			when().
 				get("/entities?matchvalue=abcdef&filtercomponent=resourceSynopsis&matchalgorithm=contains&format=json").
 			then().
@@ -516,6 +735,8 @@ public class LexevsRestTestRunnerTest extends TestCase
 	public final void test_entities_search_resource_synopsis_lucene_call() {
 		
 		RestAssured.
+			given().
+				spec(spec).
 			when().
 				get("/entities?matchvalue=heart&filtercomponent=resourceSynopsis&matchalgorithm=luceneQuery&format=json&maxtoreturn=1000").
 			then().
@@ -533,6 +754,8 @@ public class LexevsRestTestRunnerTest extends TestCase
 	public final void test_entities_search_resource_synopsis_exact_match_call() {
 		
 		RestAssured.
+			given().
+				spec(spec).
 			when().
 				get("/entities?matchvalue=Heart disorder&filtercomponent=resourceSynopsis&matchalgorithm=exactMatch&maxtoreturn=50&format=json").
 			then().
@@ -550,6 +773,8 @@ public class LexevsRestTestRunnerTest extends TestCase
 	public final void test_entities_search_resource_synopsis_contains_call() {
 		
 		RestAssured.
+			given().
+				spec(spec).
 			when().
 				get("/entities?matchvalue=Heart disorder&filtercomponent=resourceSynopsis&matchalgorithm=contains&maxtoreturn=50&format=json").
 			then().
@@ -571,6 +796,8 @@ public class LexevsRestTestRunnerTest extends TestCase
 	public final void test_entities_search_filtercomponent_resourceName_matchAlgorithm_luceneQuery_call() {
 		
 		RestAssured.
+			given().
+				spec(spec).
 			when().
 				get("/entities?matchvalue=Heart disorder&filtercomponent=resourceName&matchalgorithm=luceneQuery&maxtoreturn=50&format=json").
 			then().
@@ -591,6 +818,8 @@ public class LexevsRestTestRunnerTest extends TestCase
 	public final void test_entities_search_resource_name_contains_call() {
 		
 		RestAssured.
+			given().
+				spec(spec).
 			when().
 				get("/entities?matchvalue=Heart disorder&filtercomponent=resourceName&matchalgorithm=contains&maxtoreturn=50&format=json").
 			then().
@@ -613,6 +842,8 @@ public class LexevsRestTestRunnerTest extends TestCase
 	public final void test_entities_search_resource_name_exact_match_call() {
 		
 		RestAssured.
+			given().
+				spec(spec).
 			when().
 				get("/entities?matchvalue=Heart disorder&filtercomponent=resourceName&matchalgorithm=exactMatch&maxtoreturn=50&format=json").
 			then().
@@ -627,71 +858,84 @@ public class LexevsRestTestRunnerTest extends TestCase
 	//*********************************************************************
 	// associations - children 
 	//*********************************************************************
-	public final void test_associations_children_call() {
+	public final void test_associations_children_call() throws Exception {
 		
-		RestAssured.
+		Response response = RestAssured.
+			given().
+				spec(spec).
 			when().
 				get("/codesystem/NCI_Thesaurus/version/" + THESAURUS_VERSION_NUMBER + "/entity/ncit:C1648/children?format=json").
 			then().
 				assertThat().
 					statusCode(200).
-					body("EntityDirectory.complete", hasToString("COMPLETE"),
-  						 "EntityDirectory.numEntries", greaterThanOrEqualTo(4),
-							"EntityDirectory.numEntries", lessThanOrEqualTo(10),
-  						 "EntityDirectory.entry.find { it.about == 'http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#C29982' }.name.name", equalTo("C29982"),
-  						 "EntityDirectory.entry.find { it.about == 'http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#C29982' }.name.namespace", equalTo("ncit"),
-  						 "EntityDirectory.entry.find { it.about == 'http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#C1977' }.name.name", equalTo("C1977"),
-  						 "EntityDirectory.entry.find { it.about == 'http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#C1977' }.name.namespace", equalTo("ncit"));
+					extract().response();
+
+		DirectoryIndex directory = DirectoryIndex.of(response, "EntityDirectory");
+		directory.assertThat("complete", hasToString("COMPLETE"));
+		directory.assertThat("numEntries", greaterThanOrEqualTo(4));
+		directory.assertThat("numEntries", lessThanOrEqualTo(10));
+		directory.assertEntry("about", "http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#C29982", "name.name", equalTo("C29982"));
+		directory.assertEntry("about", "http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#C29982", "name.namespace", equalTo("ncit"));
+		directory.assertEntry("about", "http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#C1977", "name.name", equalTo("C1977"));
+		directory.assertEntry("about", "http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#C1977", "name.namespace", equalTo("ncit"));
 	}
 	
 	//*********************************************************************
 	// associations - subjectof 
 	//*********************************************************************
-	public final void test_associations_subjectof_call() {
+	public final void test_associations_subjectof_call() throws Exception {
 		
-		RestAssured.
+		Response response = RestAssured.
+			given().
+				spec(spec).
 			when().
 				get("/codesystem/NCI_Thesaurus/version/" + THESAURUS_VERSION_NUMBER + "/entity/ncit:C875/subjectof?format=json").
 			then().
 				assertThat().
 					statusCode(200).
-					body("AssociationDirectory.complete", hasToString("COMPLETE"),
-  						 "AssociationDirectory.numEntries", greaterThanOrEqualTo(15),
-							"AssociationDirectory.numEntries", lessThanOrEqualTo(20),
-  						 "AssociationDirectory.entry.find { it.subject.uri == 'http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#C875' }.subject.name", equalTo("C875"),
-  						 "AssociationDirectory.entry.find { it.subject.uri == 'http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#C875' }.subject.namespace", equalTo("ncit"),
-  						   						 
-  						 "AssociationDirectory.entry.find { it.subject.uri == 'http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#C186328' }.subject.name", equalTo("C186327"),
- 						 "AssociationDirectory.entry.find { it.subject.uri == 'http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#C186328' }.predicate.name", equalTo("Concept_In_Subset"),
- 						 "AssociationDirectory.entry.find { it.subject.uri == 'http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#C186328' }.target.entity.namespace", equalTo("ncit"),
-						 "AssociationDirectory.entry.find { it.subject.uri == 'http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#C186328' }.target.entity.name", equalTo("C173234"),
-						 "AssociationDirectory.entry.find { it.subject.uri == 'http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#C186328' }.assertedBy.codeSystem.content", equalTo("NCI_Thesaurus"),
-						 "AssociationDirectory.entry.find { it.subject.uri == 'http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#C186328' }.assertedBy.codeSystem.uri", equalTo("http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#"));
+					extract().response();
+
+		DirectoryIndex directory = DirectoryIndex.of(response, "AssociationDirectory");
+		directory.assertThat("complete", hasToString("COMPLETE"));
+		directory.assertThat("numEntries", greaterThanOrEqualTo(15));
+		directory.assertThat("numEntries", lessThanOrEqualTo(20));
+		directory.assertEntry("subject.uri", "http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#C875", "subject.name", equalTo("C875"));
+		directory.assertEntry("subject.uri", "http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#C875", "subject.namespace", equalTo("ncit"));
+		directory.assertEntry("subject.uri", "http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#C186328", "subject.name", equalTo("C186327"));
+		directory.assertEntry("subject.uri", "http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#C186328", "predicate.name", equalTo("Concept_In_Subset"));
+		directory.assertEntry("subject.uri", "http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#C186328", "target.entity.namespace", equalTo("ncit"));
+		directory.assertEntry("subject.uri", "http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#C186328", "target.entity.name", equalTo("C173234"));
+		directory.assertEntry("subject.uri", "http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#C186328", "assertedBy.codeSystem.content", equalTo("NCI_Thesaurus"));
+		directory.assertEntry("subject.uri", "http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#C186328", "assertedBy.codeSystem.uri", equalTo("http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#"));
 	}
 	
 	
 	//*********************************************************************
 	// associations - targetof 
 	//*********************************************************************
-	public final void test_associations_targetof_call() {
+	public final void test_associations_targetof_call() throws Exception {
 		
-		RestAssured.
+		Response response = RestAssured.
+			given().
+				spec(spec).
 			when().
 				get("/codesystem/NCI_Thesaurus/version/" + THESAURUS_VERSION_NUMBER + "/entity/ncit:C128784/targetof?format=json&maxtoreturn=1000").
 			then().
 				assertThat().
 					statusCode(200).
-					body("AssociationDirectory.complete", hasToString("PARTIAL"),
-  						 "AssociationDirectory.numEntries", equalTo(1000),
-  						 "AssociationDirectory.entry.find { it.subject.uri == 'http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#C128784' }.subject.name", equalTo("C128784"),
-  						 "AssociationDirectory.entry.find { it.subject.uri == 'http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#C128784' }.subject.namespace", equalTo("ncit"),
-  						   						 
-  						 "AssociationDirectory.entry.find { it.subject.uri == 'http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#C105150' }.subject.name", equalTo("C105150"),
- 						 "AssociationDirectory.entry.find { it.subject.uri == 'http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#C105150' }.predicate.name", equalTo("Concept_In_Subset"),
- 						 "AssociationDirectory.entry.find { it.subject.uri == 'http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#C105150' }.target.entity.namespace", equalTo("ncit"),
-						 "AssociationDirectory.entry.find { it.subject.uri == 'http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#C105150' }.target.entity.name", equalTo("C1052"),
-						 "AssociationDirectory.entry.find { it.subject.uri == 'http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#C105150' }.assertedBy.codeSystem.content", equalTo("NCI_Thesaurus"),
-						 "AssociationDirectory.entry.find { it.subject.uri == 'http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#C105150' }.assertedBy.codeSystem.uri", equalTo("http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#"));
+					extract().response();
+
+		DirectoryIndex directory = DirectoryIndex.of(response, "AssociationDirectory");
+		directory.assertThat("complete", hasToString("PARTIAL"));
+		directory.assertThat("numEntries", equalTo(1000));
+		directory.assertEntry("subject.uri", "http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#C128784", "subject.name", equalTo("C128784"));
+		directory.assertEntry("subject.uri", "http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#C128784", "subject.namespace", equalTo("ncit"));
+		directory.assertEntry("subject.uri", "http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#C105150", "subject.name", equalTo("C105150"));
+		directory.assertEntry("subject.uri", "http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#C105150", "predicate.name", equalTo("Concept_In_Subset"));
+		directory.assertEntry("subject.uri", "http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#C105150", "target.entity.namespace", equalTo("ncit"));
+		directory.assertEntry("subject.uri", "http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#C105150", "target.entity.name", equalTo("C1052"));
+		directory.assertEntry("subject.uri", "http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#C105150", "assertedBy.codeSystem.content", equalTo("NCI_Thesaurus"));
+		directory.assertEntry("subject.uri", "http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#C105150", "assertedBy.codeSystem.uri", equalTo("http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#"));
 	}
 	
 	
@@ -701,6 +945,8 @@ public class LexevsRestTestRunnerTest extends TestCase
 	public final void test_valuesets_all_call() {
 			
 		RestAssured.
+			given().
+				spec(spec).
 			when().
 				get("/valuesets?format=json").
 			then().
@@ -725,6 +971,8 @@ public class LexevsRestTestRunnerTest extends TestCase
 	public final void test_valuesets_read_call() {
 			
 		RestAssured.
+			given().
+				spec(spec).
 			when().
 				get("/valueset/FDA Terminology?format=json").
 			then().
@@ -742,6 +990,8 @@ public class LexevsRestTestRunnerTest extends TestCase
 	public final void test_valuesets_search_resourceName_exactMatch_call() {
 			
 		RestAssured.
+			given().
+				spec(spec).
 			when().
 				get("/valuesets?matchvalue=GAIA Terminology&filtercomponent=resourceName&matchalgorithm=exactMatch&format=json").
 			then().
@@ -763,6 +1013,8 @@ public class LexevsRestTestRunnerTest extends TestCase
 	public final void test_valuesets_search_filtercomponent_resourceName_matchAlgorithm_contains_call() {
 			
 		RestAssured.
+			given().
+				spec(spec).
 			when().
 				get("/valuesets?matchvalue=GAIA&filtercomponent=resourceName&matchalgorithm=contains&format=json").
 			then().
@@ -781,6 +1033,8 @@ public class LexevsRestTestRunnerTest extends TestCase
 	public final void test_valuesets_search_filtercomponent_resourceSynopsis_matchAlgorithm_exactMatch_call() {
 		
 		RestAssured.
+			given().
+				spec(spec).
 			when().
 				get("/valuesets?matchvalue=diabetes&filtercomponent=resourceSynopsis&matchalgorithm=exactMatch&format=json").
 			then().
@@ -796,6 +1050,8 @@ public class LexevsRestTestRunnerTest extends TestCase
 	public final void test_valuesets_search_resourceSynopsis_contains_call() {
 			
 		RestAssured.
+			given().
+				spec(spec).
 			when().
 				get("/valuesets?matchvalue=diabetes&filtercomponent=resourceSynopsis&maxtoreturn=50&matchalgorithm=contains&format=json").
 			then().
@@ -828,6 +1084,8 @@ public class LexevsRestTestRunnerTest extends TestCase
 //      Appears the the value set search only searches the resourceName and NOT the resourceSynopsis (even though it is specified)
 			
 		RestAssured.
+			given().
+				spec(spec).
 			when().
 				get("/valuesets?matchvalue=Microsoft&filtercomponent=resourceSynopsis&matchalgorithm=exactMatch&format=json").
 			then().
@@ -842,6 +1100,8 @@ public class LexevsRestTestRunnerTest extends TestCase
 	public final void test_valuesets_resolve_call() {
 			
 		RestAssured.
+			given().
+				spec(spec).
 			when().
 				get("/valueset/FDA Terminology/definition/e32e022f?format=json").
 			then().
@@ -859,23 +1119,26 @@ public class LexevsRestTestRunnerTest extends TestCase
 	//*********************************************************************
 	// valuesets - resolved valuesets call 
 	//*********************************************************************
-	public final void test_valuesets_resolved_call() {
+	public final void test_valuesets_resolved_call() throws Exception {
 			
-		RestAssured.
+		Response response = RestAssured.
+			given().
+				spec(spec).
 			when().
 				get("/resolvedvaluesets?maxtoreturn=50&format=json").
 			then().
 				assertThat().
 					statusCode(200).
-					body("ResolvedValueSetDirectory.complete", equalTo("PARTIAL"),
-						 "ResolvedValueSetDirectory.numEntries", equalTo(50),
-						
-						 "ResolvedValueSetDirectory.entry.find { it.resolvedValueSetURI == 'http://evs.nci.nih.gov/valueset/CDISC/C100110' }.resolvedHeader.resolutionOf.valueSetDefinition.content", equalTo("7626ea9"),
-						 "ResolvedValueSetDirectory.entry.find { it.resolvedValueSetURI == 'http://evs.nci.nih.gov/valueset/CDISC/C100110' }.resolvedHeader.resolvedUsingCodeSystem[0].codeSystem.content", equalTo("NCI_Thesaurus"),
-						 
-						 "ResolvedValueSetDirectory.entry.find { it.resolvedValueSetURI == 'http://evs.nci.nih.gov/valueset/CDISC/C100176' }.resolvedHeader.resolutionOf.valueSetDefinition.content", equalTo("b85b6c1a"),
-						 "ResolvedValueSetDirectory.entry.find { it.resolvedValueSetURI == 'http://evs.nci.nih.gov/valueset/CDISC/C100176' }.resolvedHeader.resolvedUsingCodeSystem[0].codeSystem.content", equalTo("NCI_Thesaurus"));
-	 }
+					extract().response();
+
+		DirectoryIndex directory = DirectoryIndex.of(response, "ResolvedValueSetDirectory");
+		directory.assertThat("complete", equalTo("PARTIAL"));
+		directory.assertThat("numEntries", equalTo(50));
+		directory.assertEntry("resolvedValueSetURI", "http://evs.nci.nih.gov/valueset/CDISC/C100110", "resolvedHeader.resolutionOf.valueSetDefinition.content", equalTo("7626ea9"));
+		directory.assertEntry("resolvedValueSetURI", "http://evs.nci.nih.gov/valueset/CDISC/C100110", "resolvedHeader.resolvedUsingCodeSystem[0].codeSystem.content", equalTo("NCI_Thesaurus"));
+		directory.assertEntry("resolvedValueSetURI", "http://evs.nci.nih.gov/valueset/CDISC/C100176", "resolvedHeader.resolutionOf.valueSetDefinition.content", equalTo("b85b6c1a"));
+		directory.assertEntry("resolvedValueSetURI", "http://evs.nci.nih.gov/valueset/CDISC/C100176", "resolvedHeader.resolvedUsingCodeSystem[0].codeSystem.content", equalTo("NCI_Thesaurus"));
+	}
 	
 	//*********************************************************************
 	// valuesets - resolution of a value set definition
@@ -883,6 +1146,8 @@ public class LexevsRestTestRunnerTest extends TestCase
 	public final void test_valuesets_resolution_call() {
 			
 		RestAssured.
+			given().
+				spec(spec).
 			when().
 				get("/valueset/CDISC Questionnaire NPI Test Name Terminology/definition/e31ccb56/resolution/1?format=json").
 			then().
@@ -893,60 +1158,74 @@ public class LexevsRestTestRunnerTest extends TestCase
 	//*********************************************************************
 	// mapversions - read all
 	//*********************************************************************
-	public final void test_mapversions_all_call() {
+	public final void test_mapversions_all_call() throws Exception {
 			
-		RestAssured.
+		Response response = RestAssured.
+			given().
+				spec(spec).
 			when().
 				get("/mapversions?format=json").
 			then().
 				assertThat().
 					statusCode(200).
-					body("MapVersionDirectory.complete", equalTo("COMPLETE"),
-						 "MapVersionDirectory.numEntries", greaterThanOrEqualTo(5),
-							"MapVersionDirectory.numEntries", lessThanOrEqualTo(10),
-						 "MapVersionDirectory.entry.find { it.mapVersionName == 'MA_to_NCIt_Mapping-1.0' }.versionOf.content", equalTo("MA_to_NCIt_Mapping"),
-						 "MapVersionDirectory.entry.find { it.mapVersionName == 'MA_to_NCIt_Mapping-1.0' }.formalName", equalTo("MA_to_NCIt_Mapping"),
-						 
-						 "MapVersionDirectory.entry.find { it.mapVersionName == 'NCIt_to_HGNC_Mapping-1.0' }.versionOf.content", equalTo("NCIt_to_HGNC_Mapping"),
-						 "MapVersionDirectory.entry.find { it.mapVersionName == 'NCIt_to_HGNC_Mapping-1.0' }.formalName", equalTo("NCIt_to_HGNC_Mapping"));
-	 }
+					extract().response();
+
+		DirectoryIndex directory = DirectoryIndex.of(response, "MapVersionDirectory");
+		directory.assertThat("complete", equalTo("COMPLETE"));
+		directory.assertThat("numEntries", greaterThanOrEqualTo(5));
+		directory.assertThat("numEntries", lessThanOrEqualTo(10));
+		directory.assertEntry("mapVersionName", "MA_to_NCIt_Mapping-1.0", "versionOf.content", equalTo("MA_to_NCIt_Mapping"));
+		directory.assertEntry("mapVersionName", "MA_to_NCIt_Mapping-1.0", "formalName", equalTo("MA_to_NCIt_Mapping"));
+		directory.assertEntry("mapVersionName", "NCIt_to_HGNC_Mapping-1.0", "versionOf.content", equalTo("NCIt_to_HGNC_Mapping"));
+		directory.assertEntry("mapVersionName", "NCIt_to_HGNC_Mapping-1.0", "formalName", equalTo("NCIt_to_HGNC_Mapping"));
+	}
 				
 	//*********************************************************************
 	// mapversions - search resourceName
 	//*********************************************************************
-	public final void test_mapversions_search_resource_name_call() {
+	public final void test_mapversions_search_resource_name_call() throws Exception {
 			
-		RestAssured.
+		Response response = RestAssured.
+			given().
+				spec(spec).
 			when().
 				get("/mapversions?matchvalue=GO&filtercomponent=resourceName&format=json").
 			then().
 				assertThat().
 					statusCode(200).
-					body("MapVersionDirectory.complete", equalTo("COMPLETE"),
-						 "MapVersionDirectory.numEntries", equalTo(1),
-						 "MapVersionDirectory.entry.find { it.mapVersionName == 'GO_to_NCIt_Mapping-1.1' }.versionOf.content", equalTo("GO_to_NCIt_Mapping"),
-						 "MapVersionDirectory.entry.find { it.mapVersionName == 'GO_to_NCIt_Mapping-1.1' }.formalName", equalTo("GO_to_NCIt_Mapping"));
-	 }
+					extract().response();
+
+		DirectoryIndex directory = DirectoryIndex.of(response, "MapVersionDirectory");
+		directory.assertThat("complete", equalTo("COMPLETE"));
+		directory.assertThat("numEntries", equalTo(1));
+		directory.assertEntry("mapVersionName", "GO_to_NCIt_Mapping-1.1", "versionOf.content", equalTo("GO_to_NCIt_Mapping"));
+		directory.assertEntry("mapVersionName", "GO_to_NCIt_Mapping-1.1", "formalName", equalTo("GO_to_NCIt_Mapping"));
+	}
 	
 	//*********************************************************************
 	// mapversions - search resourceSynopsis
 	//*********************************************************************
-	public final void test_mapversions_search_resource_synopsis_call() {
+	public final void test_mapversions_search_resource_synopsis_call() throws Exception {
 			
-		RestAssured.
+		Response response = RestAssured.
+			given().
+				spec(spec).
 			when().
 				get("/mapversions?matchvalue=NCIT&filtercomponent=resourceSynopsis&format=json").
 			then().
 				assertThat().
 					statusCode(200).
-					body("MapVersionDirectory.complete", equalTo("COMPLETE"),
-						 "MapVersionDirectory.numEntries", greaterThanOrEqualTo(4),
-							"MapVersionDirectory.numEntries", lessThanOrEqualTo(10),
-						 "MapVersionDirectory.entry.find { it.mapVersionName == 'GO_to_NCIt_Mapping-1.1' }.versionOf.content", equalTo("GO_to_NCIt_Mapping"),
-						 "MapVersionDirectory.entry.find { it.mapVersionName == 'GO_to_NCIt_Mapping-1.1' }.formalName", equalTo("GO_to_NCIt_Mapping"),
-						 "MapVersionDirectory.entry.find { it.mapVersionName == 'NCIt_to_HGNC_Mapping-1.0' }.versionOf.content", equalTo("NCIt_to_HGNC_Mapping"),
-						 "MapVersionDirectory.entry.find { it.mapVersionName == 'NCIt_to_HGNC_Mapping-1.0' }.formalName", equalTo("NCIt_to_HGNC_Mapping"));
-	 }
+					extract().response();
+
+		DirectoryIndex directory = DirectoryIndex.of(response, "MapVersionDirectory");
+		directory.assertThat("complete", equalTo("COMPLETE"));
+		directory.assertThat("numEntries", greaterThanOrEqualTo(4));
+		directory.assertThat("numEntries", lessThanOrEqualTo(10));
+		directory.assertEntry("mapVersionName", "GO_to_NCIt_Mapping-1.1", "versionOf.content", equalTo("GO_to_NCIt_Mapping"));
+		directory.assertEntry("mapVersionName", "GO_to_NCIt_Mapping-1.1", "formalName", equalTo("GO_to_NCIt_Mapping"));
+		directory.assertEntry("mapVersionName", "NCIt_to_HGNC_Mapping-1.0", "versionOf.content", equalTo("NCIt_to_HGNC_Mapping"));
+		directory.assertEntry("mapVersionName", "NCIt_to_HGNC_Mapping-1.0", "formalName", equalTo("NCIt_to_HGNC_Mapping"));
+	}
 	
 	//*********************************************************************
 	// map - read specific
@@ -954,6 +1233,8 @@ public class LexevsRestTestRunnerTest extends TestCase
 	public final void test_map_specific_call() {
 			
 		RestAssured.
+			given().
+				spec(spec).
 			when().
 				get("/map/GO_to_NCIt_Mapping?format=json").
 			then().
@@ -962,25 +1243,30 @@ public class LexevsRestTestRunnerTest extends TestCase
 					body("MapCatalogEntryMsg.map.mapName", equalTo("GO_to_NCIt_Mapping"),
 						 "MapCatalogEntryMsg.map.fromCodeSystem.content", equalTo("GO"),
 						 "MapCatalogEntryMsg.map.toCodeSystem.content", equalTo("NCI_Thesaurus"),
-						 "MapCatalogEntryMsg.map.about", equalTo("GO_to_NCIt_Mapp ing"));
+						 "MapCatalogEntryMsg.map.about", equalTo("GO_to_NCIt_Mapping"));
 	 }
 	
 	//*********************************************************************
 	// map - specific map - list versions
 	//*********************************************************************
-	public final void test_map_versions_of_map_call() {
+	public final void test_map_versions_of_map_call() throws Exception {
 			
-		RestAssured.
+		Response response = RestAssured.
+			given().
+				spec(spec).
 			when().
 				get("/map/NCIt_to_ChEBI_Mapping/versions?format=json").
 			then().
 				assertThat().
 					statusCode(200).
-					body("MapVersionDirectory.complete", equalTo("COMPLETE"),
-						 "MapVersionDirectory.numEntries", equalTo(1),
-						 "MapVersionDirectory.entry.find { it.mapVersionName == 'NCIt_to_ChEBI_Mapping-1.0' }.versionOf.content", equalTo("NCIt_to_ChEBI_Mapping"),
-						 "MapVersionDirectory.entry.find { it.mapVersionName == 'NCIt_to_ChEBI_Mapping-1.0' }.formalName", equalTo("NCIt_to_ChEBI_Mapping"));
-	 }
+					extract().response();
+
+		DirectoryIndex directory = DirectoryIndex.of(response, "MapVersionDirectory");
+		directory.assertThat("complete", equalTo("COMPLETE"));
+		directory.assertThat("numEntries", equalTo(1));
+		directory.assertEntry("mapVersionName", "NCIt_to_ChEBI_Mapping-1.0", "versionOf.content", equalTo("NCIt_to_ChEBI_Mapping"));
+		directory.assertEntry("mapVersionName", "NCIt_to_ChEBI_Mapping-1.0", "formalName", equalTo("NCIt_to_ChEBI_Mapping"));
+	}
 	
 	//*********************************************************************
 	// map - specific map and version
@@ -988,6 +1274,8 @@ public class LexevsRestTestRunnerTest extends TestCase
 	public final void test_map_version_map_call() {
 			
 		RestAssured.
+			given().
+				spec(spec).
 			when().
 				get("/map/NCIt_to_ChEBI_Mapping/version/NCIt_to_ChEBI_Mapping-1.0?format=json").
 			then().
@@ -1011,6 +1299,8 @@ public class LexevsRestTestRunnerTest extends TestCase
 	public final void test_map_version_map_entities_call() {
 			
 		RestAssured.
+			given().
+				spec(spec).
 			when().
 				get("/map/NCIt_to_ChEBI_Mapping/version/NCIt_to_ChEBI_Mapping-1.0/entries?maxtoreturn=50&format=json").
 			then().
@@ -1032,6 +1322,8 @@ public class LexevsRestTestRunnerTest extends TestCase
 	public final void test_map_version_map_entity_call() {
 			
 		RestAssured.
+			given().
+				spec(spec).
 			when().
 				get("/map/NCIt_to_ChEBI_Mapping/version/NCIt_to_ChEBI_Mapping-1.0/entry/C1028?format=json").
 			then().
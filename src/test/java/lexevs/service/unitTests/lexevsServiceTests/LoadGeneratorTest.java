@@ -0,0 +1,67 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Rate cap, round robin over the endpoints and per family counts of the closed-loop load
+ */
+public class LoadGeneratorTest extends TestCase
+{
+	private StubService server;
+	private final AtomicInteger requests = new AtomicInteger();
+
+	protected void setUp() throws Exception {
+		server = new StubService().concurrent().
+			context("/service", exchange -> {
+				requests.incrementAndGet();
+				StubService.send(exchange, 200, "{}");
+			}).
+			context("/valuesets", exchange -> {
+				requests.incrementAndGet();
+				StubService.send(exchange, 500, "down");
+			}).
+			context("/map", exchange -> {
+				requests.incrementAndGet();
+				StubService.send(exchange, 200, "{}");
+			}).
+			start();
+	}
+
+	protected void tearDown() throws Exception {
+		server.stop();
+	}
+
+	public final void test_rate_and_families() throws Exception {
+		List<CtsEndpoint> endpoints = Arrays.asList(new CtsEndpoint("service", "/service?format=json"),
+				new CtsEndpoint("valuesets_all", "/valuesets?format=json"),
+				new CtsEndpoint("map_specific", "/map/GO_to_NCIt_Mapping?format=json"));
+		// 50 req/s for 1 s: one request every 20 ms, whatever the number of workers
+		long start = System.nanoTime();
+		LatencyStats stats = new LoadGenerator(server.client(), endpoints, 4, 50, TimeUnit.SECONDS.toNanos(1)).run();
+		long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+		assertEquals(50, requests.get());
+		assertTrue(elapsedMillis + " ms", elapsedMillis >= 950);
+		assertEquals(17, stats.total(CtsEndpoint.SERVICE).getTotalCount());
+		assertEquals(17, stats.total(CtsEndpoint.VALUESETS).getTotalCount());
+		assertEquals(16, stats.total(CtsEndpoint.MAPS).getTotalCount());
+		assertEquals(0, stats.errors(CtsEndpoint.SERVICE));
+		assertEquals(17, stats.errors(CtsEndpoint.VALUESETS));
+	}
+
+	public final void test_unthrottled_runs_for_the_duration() throws Exception {
+		List<CtsEndpoint> endpoints = Arrays.asList(new CtsEndpoint("service", "/service?format=json"));
+		long start = System.nanoTime();
+		LatencyStats stats = new LoadGenerator(server.client(), endpoints, 2, 0, TimeUnit.MILLISECONDS.toNanos(300)).run();
+		long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+		assertTrue(elapsedMillis + " ms", elapsedMillis >= 300 && elapsedMillis < 2000);
+		assertEquals(requests.get(), stats.total(CtsEndpoint.SERVICE).getTotalCount());
+		assertTrue(requests.get() + " requests", requests.get() > 50);
+	}
+}
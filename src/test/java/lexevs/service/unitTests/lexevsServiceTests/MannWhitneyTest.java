@@ -0,0 +1,32 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import junit.framework.TestCase;
+
+/**
+ * Mann-Whitney U test against values computed by hand
+ */
+public class MannWhitneyTest extends TestCase
+{
+	public final void test_separated_samples() {
+		MannWhitney.Result result = MannWhitney.greater(new double[] { 1, 2, 3, 4, 5 }, new double[] { 6, 7, 8, 9, 10 });
+		assertEquals(25.0, result.getU(), 1e-9);
+		// z = (25 - 12.5 - 0.5) / sqrt(25 * 11 / 12)
+		assertEquals(2.5067, result.getZ(), 1e-4);
+		assertEquals(0.0061, result.getPValue(), 1e-4);
+	}
+
+	public final void test_faster_is_not_significant() {
+		MannWhitney.Result result = MannWhitney.greater(new double[] { 6, 7, 8, 9, 10 }, new double[] { 1, 2, 3, 4, 5 });
+		assertEquals(0.0, result.getU(), 1e-9);
+		assertTrue(result.getPValue() > 0.99);
+	}
+
+	public final void test_ties() {
+		MannWhitney.Result result = MannWhitney.greater(new double[] { 1, 2, 2, 3 }, new double[] { 2, 3, 3, 4 });
+		// ranks 1, 3, 3, 3, 6, 6, 6, 8: the second sample has 3 + 6 + 6 + 8 = 23
+		assertEquals(23 - 10, result.getU(), 1e-9);
+		assertTrue(result.getPValue() > 0.05);
+		assertEquals(1.0, MannWhitney.greater(new double[] { 5, 5 }, new double[] { 5, 5 }).getPValue(), 1e-9);
+		assertEquals(1.0, MannWhitney.greater(new double[0], new double[] { 1 }).getPValue(), 1e-9);
+	}
+}
@@ -0,0 +1,105 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Benchmarks the maps of a local server: /mapversions lists "NCIt_to_ChEBI"
+ * and "Broken", NCIt_to_ChEBI has two pages of two entries and entry C4 is
+ * not found, the entries of Broken are not found, and the second page of
+ * Truncated ends in the middle of an entry
+ */
+public class MapBenchmarkTest extends TestCase
+{
+	private StubService server;
+	private Path outputDir;
+
+	protected void setUp() throws Exception {
+		outputDir = Files.createTempDirectory("maps");
+		server = new StubService().context("/mapversions", exchange -> StubService.send(exchange, 200, "{\"MapVersionDirectory\":{\"complete\":\"COMPLETE\",\"entry\":["
+				+ listed("NCIt_to_ChEBI", "NCIt_to_ChEBI-1.0") + "," + listed("Broken", "Broken-1.0") + "]}}")).context("/map/", exchange -> {
+			String path = exchange.getRequestURI().getPath();
+			if (path.contains("/Broken/") || path.endsWith("/entry/C4")) {
+				StubService.send(exchange, 404, "{}");
+			} else if (path.contains("/Truncated/") && String.valueOf(exchange.getRequestURI().getQuery()).contains("page=2")) {
+				StubService.send(exchange, 200, "{\"MapEntryDirectory\":{\"complete\":\"COMPLETE\",\"entry\":[" + entry("C3") + ",{\"mapFrom\":");
+			} else if (path.contains("/entry/")) {
+				StubService.send(exchange, 200, "{\"MapEntryMsg\":{\"entry\":" + entry(path.substring(path.lastIndexOf('/') + 1)) + "}}");
+			} else {
+				boolean first = !String.valueOf(exchange.getRequestURI().getQuery()).contains("page=2");
+				String next = first ? ",\"next\":\"http://other-host" + exchange.getRequestURI().getRawPath() + "?maxtoreturn=2&page=2\"" : "";
+				String entries = first ? entry("C1") + "," + entry("C2") : entry("C3") + "," + entry("C4");
+				StubService.send(exchange, 200, "{\"MapEntryDirectory\":{\"complete\":\"" + (first ? "PARTIAL" : "COMPLETE") + "\"" + next
+						+ ",\"entry\":[" + entries + "]}}");
+			}
+		}).start();
+	}
+
+	private static String listed(String map, String version) {
+		return "{\"mapVersionName\":\"" + version + "\",\"versionOf\":{\"content\":\"" + map + "\"}}";
+	}
+
+	private static String entry(String code) {
+		return "{\"mapFrom\":{\"namespace\":\"NCI_Thesaurus\",\"name\":\"" + code + "\"}}";
+	}
+
+	protected void tearDown() throws Exception {
+		server.stop();
+	}
+
+	private MapBenchmark benchmark() {
+		return new MapBenchmark(server.client(), 2, 40, 4, 42, outputDir);
+	}
+
+	public final void test_list() throws Exception {
+		List<MapBenchmark.MapVersion> versions = benchmark().list();
+		assertEquals(2, versions.size());
+		assertEquals("NCIt_to_ChEBI", versions.get(0).getMap());
+		assertEquals("NCIt_to_ChEBI-1.0", versions.get(0).getVersion());
+		assertEquals("/map/NCIt_to_ChEBI/version/NCIt_to_ChEBI-1.0", versions.get(0).path());
+	}
+
+	public final void test_scan_and_lookups() throws Exception {
+		MapBenchmark.Result result = benchmark().run(new MapBenchmark.MapVersion("NCIt_to_ChEBI", "NCIt_to_ChEBI-1.0"));
+		assertNull(result.getScanError());
+		assertEquals(2, result.getPages());
+		assertEquals(4, result.getEntries());
+		List<String> entries = Files.readAllLines(outputDir.resolve("NCIt_to_ChEBI-1.0.ndjson"));
+		assertEquals(4, entries.size());
+		assertEquals(entry("C3"), entries.get(2));
+
+		assertEquals(40, result.getLookups());
+		assertTrue(result.getLookupErrors() > 0);
+		assertEquals(40 - result.getLookupErrors(), result.getLookupLatency().getTotalCount());
+		assertTrue(result.getBreakEven() > 0);
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		MapBenchmark.print(Collections.singletonList(result), 4, new PrintStream(bytes, true, "UTF-8"));
+		String report = bytes.toString("UTF-8");
+		assertTrue(report, report.contains("NCIt_to_ChEBI-1.0"));
+		assertTrue(report, report.contains("break-even"));
+	}
+
+	public final void test_scan_failure() throws Exception {
+		MapBenchmark.Result result = benchmark().run(new MapBenchmark.MapVersion("Broken", "Broken-1.0"));
+		assertEquals("HTTP 404", result.getScanError());
+		assertEquals(0, result.getEntries());
+		assertEquals(0, result.getLookups());
+		assertEquals(0.0, result.getBreakEven());
+	}
+
+	public final void test_scan_read_error() throws Exception {
+		MapBenchmark.Result result = benchmark().run(new MapBenchmark.MapVersion("Truncated", "Truncated-1.0"));
+		assertNotNull(result.getScanError());
+		assertFalse(result.getScanError(), result.getScanError().startsWith("HTTP"));
+		assertEquals(1, result.getPages());
+		assertTrue(result.getEntries() >= 2);
+		assertTrue(result.getLookups() > 0);
+	}
+}
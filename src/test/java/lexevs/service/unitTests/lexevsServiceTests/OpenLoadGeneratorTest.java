@@ -0,0 +1,51 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Endpoint mix, and a stall of the service seen from the intended send time
+ */
+public class OpenLoadGeneratorTest extends TestCase
+{
+	public final void test_mix() {
+		List<CtsEndpoint> catalog = Arrays.asList(new CtsEndpoint("a", "/a"), new CtsEndpoint("b", "/b"), new CtsEndpoint("c", "/c"));
+		OpenLoadGenerator.Mix mix = OpenLoadGenerator.Mix.parse(catalog, "a:60, b+c:40");
+		assertEquals(3, mix.getEndpoints().size());
+		assertEquals(0.6, mix.share(catalog.get(0)), 1e-9);
+		assertEquals(0.2, mix.share(catalog.get(2)), 1e-9);
+		try {
+			OpenLoadGenerator.Mix.parse(catalog, "d:1");
+			fail("expected an unknown endpoint");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	public final void test_stall_counts_against_every_due_request() throws Exception {
+		AtomicInteger requests = new AtomicInteger();
+		StubService server = new StubService().context("/service", exchange -> {
+			if (requests.incrementAndGet() == 10) {
+				StubService.sleep(400);
+			}
+			StubService.send(exchange, 200, "{}");
+		}).start();
+		try {
+			OpenLoadGenerator.Mix mix = OpenLoadGenerator.Mix.parse(Arrays.asList(new CtsEndpoint("service", "/service?format=json")), "service");
+			OpenLoadGenerator load = new OpenLoadGenerator(server.client(), mix, 100, TimeUnit.SECONDS.toNanos(1), 1, 1);
+			load.run();
+
+			assertEquals(100, load.getIntended().total("service").getTotalCount());
+			// one slow request in the service time, but ~40 requests waited behind it
+			assertTrue(LatencyStats.millis(load.getService().total("service"), 90) < 100);
+			assertTrue(LatencyStats.millis(load.getIntended().total("service"), 90) > 100);
+			assertTrue(load.getMaxInFlight() > 10);
+		} finally {
+			server.stop();
+		}
+	}
+}
@@ -0,0 +1,49 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Sweeps a local directory of 120 entries
+ */
+public class PageSizeSweepTest extends TestCase
+{
+	private StubService server;
+
+	protected void setUp() throws Exception {
+		server = new StubService().context("/resolvedvaluesets", exchange -> {
+			int size = Math.min(Integer.parseInt(exchange.getRequestURI().getQuery().replaceAll(".*maxtoreturn=(\\d+).*", "$1")), 120);
+			StringBuilder body = new StringBuilder("{ \"ResolvedValueSetDirectory\": { \"numEntries\": " + size + ", \"entry\": [");
+			for (int i = 0; i < size; i++) {
+				body.append(i > 0 ? "," : "").append("{ \"resolvedValueSetURI\": \"urn:").append(i).append("\" }");
+			}
+			StubService.send(exchange, 200, body.append("] } }").toString());
+		}).start();
+	}
+
+	protected void tearDown() throws Exception {
+		server.stop();
+	}
+
+	public final void test_with_page_size() {
+		assertEquals("/resolvedvaluesets?maxtoreturn=500&format=json", PageSizeSweep.withPageSize("/resolvedvaluesets?maxtoreturn=50&format=json", 500));
+		assertEquals("/valuesets?format=json&maxtoreturn=10", PageSizeSweep.withPageSize("/valuesets?format=json", 10));
+	}
+
+	public final void test_sweep_stops_once_complete() throws Exception {
+		PageSizeSweep sweep = new PageSizeSweep(server.client(), Arrays.asList(500, 10, 100, 1000), 2, new PrintStream(new ByteArrayOutputStream()));
+		List<PageSizeSweep.Point> points = sweep.sweep(new CtsEndpoint("valuesets_resolved", "/resolvedvaluesets?maxtoreturn=50&format=json"));
+
+		assertEquals(3, points.size());
+		assertEquals(10, points.get(0).getEntries());
+		assertEquals(100, points.get(1).getEntries());
+		assertEquals(120, points.get(2).getEntries());
+		assertTrue(points.get(2).isComplete());
+		assertEquals(2, points.get(0).getLatency().getTotalCount());
+		assertNotNull(PageSizeSweep.optimal(points));
+	}
+}
@@ -0,0 +1,77 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import junit.framework.AssertionFailedError;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestFailure;
+import junit.framework.TestResult;
+import junit.framework.TestSuite;
+
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Suite that runs its tests concurrently on a fixed pool.
+ *
+ * Each test runs into a private TestResult; once all of them have been
+ * submitted the results are replayed into the caller's TestResult in
+ * declaration order, so listeners see one complete start/failure/end
+ * sequence per test no matter how the runs interleaved.
+ */
+public class ParallelTestSuite extends TestSuite
+{
+	private final int threads;
+
+	public ParallelTestSuite(Class<? extends TestCase> testClass, int threads) {
+		super(testClass);
+		this.threads = threads;
+	}
+
+	@Override
+	public void run(TestResult result) {
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			List<Test> tests = new ArrayList<>();
+			List<Future<TestResult>> runs = new ArrayList<>();
+			for (Enumeration<Test> e = tests(); e.hasMoreElements(); ) {
+				Test test = e.nextElement();
+				tests.add(test);
+				runs.add(pool.submit(() -> {
+					TestResult own = new TestResult();
+					test.run(own);
+					return own;
+				}));
+			}
+
+			for (int i = 0; i < tests.size(); i++) {
+				if (result.shouldStop()) {
+					break;
+				}
+				Test test = tests.get(i);
+				result.startTest(test);
+				try {
+					TestResult own = runs.get(i).get();
+					for (Enumeration<TestFailure> f = own.failures(); f.hasMoreElements(); ) {
+						result.addFailure(test, (AssertionFailedError) f.nextElement().thrownException());
+					}
+					for (Enumeration<TestFailure> f = own.errors(); f.hasMoreElements(); ) {
+						result.addError(test, f.nextElement().thrownException());
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					result.addError(test, e);
+				} catch (ExecutionException e) {
+					result.addError(test, e.getCause());
+				}
+				result.endTest(test);
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+}
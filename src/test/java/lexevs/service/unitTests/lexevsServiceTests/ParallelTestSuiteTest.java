@@ -0,0 +1,95 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import junit.framework.AssertionFailedError;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestListener;
+import junit.framework.TestResult;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ParallelTestSuite on a sample whose tests finish out of order
+ */
+public class ParallelTestSuiteTest extends TestCase
+{
+	// Reached only when test_slow and test_failure run at the same time
+	static CountDownLatch together;
+
+	public static class Sample extends TestCase
+	{
+		public Sample(String name) {
+			super(name);
+		}
+
+		public final void test_slow() throws Exception {
+			together.countDown();
+			assertTrue("ran alone", together.await(5, TimeUnit.SECONDS));
+			Thread.sleep(200);
+		}
+
+		public final void test_failure() throws Exception {
+			together.countDown();
+			together.await(5, TimeUnit.SECONDS);
+			fail("failure of test_failure");
+		}
+
+		public final void test_error() {
+			throw new IllegalStateException("error of test_error");
+		}
+
+		public final void test_pass() {
+		}
+	}
+
+	public final void test_results_in_declaration_order() {
+		together = new CountDownLatch(2);
+		ParallelTestSuite suite = new ParallelTestSuite(Sample.class, 4);
+		List<String> events = Collections.synchronizedList(new ArrayList<>());
+		TestResult result = new TestResult();
+		result.addListener(new TestListener() {
+			public void startTest(Test test) {
+				events.add("start " + name(test));
+			}
+
+			public void addFailure(Test test, AssertionFailedError e) {
+				events.add("failure " + name(test) + ": " + e.getMessage());
+			}
+
+			public void addError(Test test, Throwable e) {
+				events.add("error " + name(test) + ": " + e.getMessage());
+			}
+
+			public void endTest(Test test) {
+				events.add("end " + name(test));
+			}
+		});
+
+		suite.run(result);
+
+		List<String> expected = new ArrayList<>();
+		for (Enumeration<Test> e = suite.tests(); e.hasMoreElements(); ) {
+			String name = name(e.nextElement());
+			expected.add("start " + name);
+			if (name.equals("test_failure")) {
+				expected.add("failure test_failure: failure of test_failure");
+			} else if (name.equals("test_error")) {
+				expected.add("error test_error: error of test_error");
+			}
+			expected.add("end " + name);
+		}
+		assertEquals(expected, events);
+		assertEquals(4, result.runCount());
+		assertEquals(1, result.failureCount());
+		assertEquals(1, result.errorCount());
+	}
+
+	private static String name(Test test) {
+		return ((TestCase) test).getName();
+	}
+}
@@ -0,0 +1,68 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import junit.framework.TestCase;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Baseline file round trip and regression detection on generated latencies
+ */
+public class PerformanceBaselineTest extends TestCase
+{
+	private static final String TERMINOLOGIES = "NCI_Thesaurus-23.04d,ChEBI-v221";
+
+	private Path file;
+
+	protected void setUp() throws Exception {
+		file = Files.createTempDirectory("baseline").resolve("runs/baseline.tsv");
+	}
+
+	public final void test_samples_by_key() throws Exception {
+		PerformanceBaseline baseline = new PerformanceBaseline(file);
+		baseline.append("test_a", "2.2.1.RC1", TERMINOLOGIES, "run1", new double[] { 10, 11 });
+		baseline.append("test_a", "2.2.2", TERMINOLOGIES, "run2", new double[] { 20.5 });
+		baseline.append("test_a", "2.2.2", "NCI_Thesaurus-24.01", "run2", new double[] { 30 });
+		baseline.append("test_b", "2.2.2", TERMINOLOGIES, "run2", new double[] { 40 });
+
+		PerformanceBaseline reloaded = new PerformanceBaseline(file);
+		assertEquals(3, reloaded.samples("test_a", null, TERMINOLOGIES, "run3").length);
+		assertEquals(2, reloaded.samples("test_a", "2.2.1.RC1", TERMINOLOGIES, "run3").length);
+		assertEquals(2, reloaded.samples("test_a", null, TERMINOLOGIES, "run2").length);
+		assertEquals(20.5, reloaded.samples("test_a", "2.2.2", TERMINOLOGIES, "run3")[0], 1e-9);
+		assertEquals(0, reloaded.samples("test_c", null, TERMINOLOGIES, "run3").length);
+	}
+
+	public final void test_regression() {
+		Random random = new Random(42);
+		double[] baseline = latencies(random, 100, 40);
+		PerformanceBaseline.Comparison same = PerformanceBaseline.compare("test_a", baseline, latencies(random, 100, 5), 20, 0.01, 1.2);
+		assertFalse(same.toString(), same.isRegression());
+
+		PerformanceBaseline.Comparison slower = PerformanceBaseline.compare("test_a", baseline, latencies(random, 150, 5), 20, 0.01, 1.2);
+		assertTrue(slower.toString(), slower.isRegression());
+		assertTrue(slower.getResult().getPValue() < 0.01);
+	}
+
+	public final void test_small_shift_or_baseline_is_not_a_regression() {
+		Random random = new Random(7);
+		double[] baseline = latencies(random, 100, 200);
+		PerformanceBaseline.Comparison shifted = PerformanceBaseline.compare("test_a", baseline, latencies(random, 105, 200), 20, 0.01, 1.2);
+		assertFalse(shifted.toString(), shifted.isRegression());
+
+		PerformanceBaseline.Comparison few = PerformanceBaseline.compare("test_a", latencies(random, 100, 10), latencies(random, 300, 5), 20, 0.01, 1.2);
+		assertFalse(few.toString(), few.isRegression());
+	}
+
+	/**
+	 * @return latencies around the median with a long right tail
+	 */
+	private static double[] latencies(Random random, double median, int count) {
+		double[] values = new double[count];
+		for (int i = 0; i < count; i++) {
+			values[i] = median * Math.exp(0.1 * random.nextGaussian());
+		}
+		return values;
+	}
+}
@@ -0,0 +1,99 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures a local server whose /service takes 150 ms on its first request
+ * and 5 ms after, and whose /missing is not found
+ */
+public class RepeatedMeasurementTest extends TestCase
+{
+	private StubService server;
+	private final AtomicInteger requests = new AtomicInteger();
+
+	protected void setUp() throws Exception {
+		server = new StubService().context("/service", exchange -> {
+			StubService.sleep(requests.getAndIncrement() == 0 ? 150 : 5);
+			StubService.send(exchange, 200, "{\"BaseService\":{}}");
+		}).context("/missing", exchange -> StubService.send(exchange, 404, "{}")).start();
+	}
+
+	protected void tearDown() throws Exception {
+		server.stop();
+	}
+
+	private RepeatedMeasurement measurement() {
+		return new RepeatedMeasurement(server.client(), 3, 40, 0.95);
+	}
+
+	public final void test_cold_and_warm() throws Exception {
+		RepeatedMeasurement.Result result = measurement().measure(new CtsEndpoint("service", "/service?format=json"));
+		assertEquals(1 + 3 + 40, requests.get());
+		assertEquals(0, result.getErrors());
+		assertEquals(40, result.getMillis().length);
+		assertTrue(result.getColdMillis() >= 150);
+		assertTrue(result.getMillis()[39] < 150);
+		assertTrue(result.getColdRatio() > 1.5);
+
+		for (RepeatedMeasurement.Estimate estimate : Arrays.asList(result.getMean(), result.getMedian(), result.getP99())) {
+			assertTrue(estimate.toString(), estimate.getLower() <= estimate.getValue());
+			assertTrue(estimate.toString(), estimate.getValue() <= estimate.getUpper());
+			assertTrue(estimate.toString(), estimate.getValue() >= 5);
+		}
+		assertEquals(result.getMillis()[39], result.getP99().getValue());
+		assertEquals(result.getMillis()[39], result.getP99().getUpper());
+		assertTrue(result.getMedian().getLower() < result.getMedian().getUpper());
+	}
+
+	public final void test_mean_interval_uses_t() throws Exception {
+		RepeatedMeasurement.Result result = new RepeatedMeasurement(server.client(), 0, 3, 0.95).measure(new CtsEndpoint("service", "/service?format=json"));
+		double[] millis = result.getMillis();
+		assertEquals(3, millis.length);
+		double mean = (millis[0] + millis[1] + millis[2]) / 3;
+		double squares = 0;
+		for (double value : millis) {
+			squares += (value - mean) * (value - mean);
+		}
+		// t(0.975, 2) = 4.303, where the normal approximation would use 1.96
+		double halfWidth = 4.303 * Math.sqrt(squares / 2 / 3);
+		assertEquals(mean, result.getMean().getValue(), 1e-9);
+		assertEquals(mean - halfWidth, result.getMean().getLower(), 1e-3 * halfWidth + 1e-9);
+		assertEquals(mean + halfWidth, result.getMean().getUpper(), 1e-3 * halfWidth + 1e-9);
+	}
+
+	public final void test_failures() throws Exception {
+		RepeatedMeasurement.Result result = measurement().measure(new CtsEndpoint("missing", "/missing?format=json"));
+		assertEquals(44, result.getErrors());
+		assertTrue(Double.isNaN(result.getColdMillis()));
+		assertEquals(0.0, result.getMedian().getValue());
+		assertEquals(0.0, result.getColdRatio());
+	}
+
+	public final void test_report() throws Exception {
+		RepeatedMeasurement measurement = measurement();
+		List<RepeatedMeasurement.Result> results = Arrays.asList(
+				measurement.measure(new CtsEndpoint("service", "/service?format=json")),
+				measurement.measure(new CtsEndpoint("missing", "/missing?format=json")));
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		RepeatedMeasurement.print(results, 0.95, new PrintStream(bytes, true, "UTF-8"));
+		String report = bytes.toString("UTF-8");
+		assertTrue(report, report.contains("95% confidence intervals"));
+		assertTrue(report, report.contains("first endpoint only"));
+
+		Path file = Files.createTempDirectory("measure").resolve("measure.tsv");
+		RepeatedMeasurement.write(results, "2.2.1.RC1", file);
+		List<String> lines = Files.readAllLines(file);
+		assertEquals(3, lines.size());
+		assertTrue(lines.get(1), lines.get(1).startsWith("service\t2.2.1.RC1\t40\t"));
+		assertTrue(lines.get(2), lines.get(2).endsWith("\t44"));
+	}
+}
@@ -0,0 +1,50 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ramps a local server that handles one request at a time in 20 ms,
+ * i.e. sustains 50 requests/second
+ */
+public class SaturationFinderTest extends TestCase
+{
+	public final void test_knee() throws Exception {
+		StubService server = new StubService().context("/service", exchange -> {
+			StubService.sleep(20);
+			StubService.send(exchange, 200, "{}");
+		}).start();
+		try {
+			SaturationFinder finder = new SaturationFinder(server.client(), 10, 2, 1000, TimeUnit.MILLISECONDS.toNanos(200),
+					TimeUnit.MILLISECONDS.toNanos(800), 200, 0.01, 50, new PrintStream(new ByteArrayOutputStream()));
+			List<SaturationFinder.Step> steps = finder.ramp("service", Collections.singletonList(new CtsEndpoint("service", "/service?format=json")));
+
+			assertEquals(4, steps.size());
+			assertFalse(steps.get(3).isSustained());
+			assertEquals(40.0, SaturationFinder.maxSustainedRate(steps), 1e-9);
+		} finally {
+			server.stop();
+		}
+	}
+
+	public final void test_rates_checked_before_ramping() {
+		assertRejected(5, 1, 1000);
+		assertRejected(5, 0.5, 1000);
+		assertRejected(2000, 1.5, 1000);
+		assertRejected(0, 1.5, 1000);
+	}
+
+	private static void assertRejected(double startRate, double stepFactor, double maxRate) {
+		try {
+			new SaturationFinder(null, startRate, stepFactor, maxRate, 0, 0, 200, 0.01, 50, new PrintStream(new ByteArrayOutputStream()));
+			fail("expected start " + startRate + ", factor " + stepFactor + ", max " + maxRate + " to be rejected");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+}
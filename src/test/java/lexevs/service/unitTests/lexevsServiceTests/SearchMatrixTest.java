@@ -0,0 +1,67 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Runs the matrix on a local server where contains on resourceSynopsis
+ * takes 40 ms, luceneQuery for "timeout" takes 300 ms, and every other
+ * search is immediate
+ */
+public class SearchMatrixTest extends TestCase
+{
+	private StubService server;
+
+	protected void setUp() throws Exception {
+		server = new StubService().concurrent().context("/entities", exchange -> {
+			String query = exchange.getRequestURI().getQuery();
+			if (query.contains("filtercomponent=resourceSynopsis&matchalgorithm=contains")) {
+				StubService.sleep(40);
+			}
+			if (query.contains("matchvalue=timeout") && query.contains("matchalgorithm=luceneQuery")) {
+				StubService.sleep(300);
+			}
+			int status = query.contains("filtercomponent=about") ? 400 : 200;
+			StubService.send(exchange, status, "{ \"EntityDirectory\": { \"numEntries\": 0 } }");
+		}).start();
+	}
+
+	protected void tearDown() throws Exception {
+		server.stop();
+	}
+
+	public final void test_full_scan_flagged() throws Exception {
+		List<SearchMatrix.Cell> cells = new SearchMatrix(server.client(), 2, 50, 5, 20)
+				.run(Collections.singletonMap("entities", Arrays.asList("heart", "Heart disorder")));
+
+		assertEquals(12, cells.size());
+		for (SearchMatrix.Cell cell : cells) {
+			boolean slow = cell.getMatchAlgorithm().equals("contains") && cell.getFilterComponent().equals("resourceSynopsis");
+			assertEquals(cell.getMatchAlgorithm() + " " + cell.getFilterComponent(), slow, cell.isFullScan());
+			if (cell.getFilterComponent().equals("about")) {
+				assertEquals(4, cell.getErrors());
+				assertEquals(0, cell.getLatency().getTotalCount());
+			} else {
+				assertEquals(4, cell.getLatency().getTotalCount());
+			}
+		}
+	}
+
+	public final void test_read_timeout_counted_as_error() throws Exception {
+		List<SearchMatrix.Cell> cells = new SearchMatrix(server.client(100), 2, 50, 5, 20)
+				.run(Collections.singletonMap("entities", Collections.singletonList("timeout")));
+
+		assertEquals(12, cells.size());
+		for (SearchMatrix.Cell cell : cells) {
+			if (cell.getMatchAlgorithm().equals("luceneQuery") || cell.getFilterComponent().equals("about")) {
+				assertEquals(cell.getMatchAlgorithm() + " " + cell.getFilterComponent(), 2, cell.getErrors());
+				assertEquals(0, cell.getLatency().getTotalCount());
+			} else {
+				assertEquals(2, cell.getLatency().getTotalCount());
+			}
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import junit.framework.TestCase;
+import org.HdrHistogram.Histogram;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drift analysis on made-up windows, and a short soak on a local server
+ */
+public class SoakRunnerTest extends TestCase
+{
+	private static SoakRunner.Window window(int minute, long p99Millis, long errors) {
+		Histogram latency = LatencyStats.newHistogram();
+		for (int i = 0; i < 100; i++) {
+			latency.recordValue(TimeUnit.MILLISECONDS.toMicros(p99Millis));
+		}
+		return new SoakRunner.Window(TimeUnit.MINUTES.toNanos(minute), latency, errors);
+	}
+
+	public final void test_steady_soak_has_no_drift() {
+		List<SoakRunner.Window> windows = new ArrayList<>();
+		for (int minute = 0; minute < 60; minute++) {
+			windows.add(window(minute, 100 + minute % 3, 0));
+		}
+		SoakRunner.Drift drift = SoakRunner.analyze(windows, 5, 1.5, 0.01);
+		assertFalse(drift.toString(), drift.isLatencyDrift());
+		assertFalse(drift.toString(), drift.isErrorDrift());
+	}
+
+	public final void test_creeping_p99_and_errors_drift() {
+		List<SoakRunner.Window> windows = new ArrayList<>();
+		for (int minute = 0; minute < 60; minute++) {
+			windows.add(window(minute, 100 + 2 * minute, minute / 10));
+		}
+		SoakRunner.Drift drift = SoakRunner.analyze(windows, 5, 1.5, 0.01);
+		assertTrue(drift.toString(), drift.isLatencyDrift());
+		assertTrue(drift.toString(), drift.isErrorDrift());
+		assertEquals(120.0, drift.getSlopeMillisPerHour(), 1.0);
+	}
+
+	public final void test_short_soak() throws Exception {
+		StubService server = new StubService().context("/service", exchange -> StubService.send(exchange, 200, "{}")).start();
+		try {
+			List<SoakRunner.Window> windows = new SoakRunner(server.client(), Collections.singletonList(new CtsEndpoint("service", "/service?format=json")),
+					4, TimeUnit.MILLISECONDS.toNanos(600), TimeUnit.MILLISECONDS.toNanos(200), TimeUnit.MILLISECONDS.toNanos(1), 1.5, 1,
+					new PrintStream(new ByteArrayOutputStream())).run();
+			assertEquals(3, windows.size());
+			for (SoakRunner.Window w : windows) {
+				assertTrue(w.getLatency().getTotalCount() > 0);
+				assertEquals(0, w.getErrors());
+			}
+		} finally {
+			server.stop();
+		}
+	}
+}
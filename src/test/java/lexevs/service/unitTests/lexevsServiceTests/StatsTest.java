@@ -0,0 +1,36 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import junit.framework.TestCase;
+
+/**
+ * Distribution functions against published tables
+ */
+public class StatsTest extends TestCase
+{
+	public final void test_normal_cdf() {
+		assertEquals(0.5, Stats.normalCdf(0), 1e-7);
+		assertEquals(0.975, Stats.normalCdf(1.959964), 1e-6);
+		assertEquals(0.025, Stats.normalCdf(-1.959964), 1e-6);
+	}
+
+	public final void test_normal_quantile() {
+		assertEquals(0.0, Stats.normalQuantile(0.5), 1e-6);
+		assertEquals(1.959964, Stats.normalQuantile(0.975), 1e-5);
+		assertEquals(-2.326348, Stats.normalQuantile(0.01), 1e-5);
+	}
+
+	public final void test_student_quantile() {
+		assertEquals(0.0, Stats.studentQuantile(0.5, 5), 1e-6);
+		assertEquals(12.7062, Stats.studentQuantile(0.975, 1), 1e-3);
+		assertEquals(4.3027, Stats.studentQuantile(0.975, 2), 1e-3);
+		assertEquals(2.0452, Stats.studentQuantile(0.975, 29), 1e-3);
+		assertEquals(-2.5280, Stats.studentQuantile(0.01, 20), 1e-3);
+		assertEquals(1.9600, Stats.studentQuantile(0.975, 5000), 1e-3);
+	}
+
+	public final void test_median() {
+		assertEquals(3.0, Stats.median(new double[] { 5, 1, 3 }), 1e-9);
+		assertEquals(2.5, Stats.median(new double[] { 4, 1, 3, 2 }), 1e-9);
+		assertEquals(0.0, Stats.median(new double[0]), 1e-9);
+	}
+}
@@ -0,0 +1,129 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.hamcrest.Matcher;
+import org.hamcrest.MatcherAssert;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming counterpart of {@link DirectoryIndex} for pages too large to
+ * hold in memory.  Expectations are declared first, then the body is read
+ * once with {@link DirectoryStreamReader}: each entry is matched against the
+ * expected keys as it goes by and then dropped.
+ *
+ * The body must not be buffered, i.e. take it from
+ * <code>given().spec(spec).get(...).asInputStream()</code> without a
+ * <code>then()</code>.
+ */
+public class StreamingDirectoryValidator
+{
+	private final String directory;
+	private final List<Check> directoryChecks = new ArrayList<>();
+	private final List<Check> everyEntryChecks = new ArrayList<>();
+	// key -> value -> checks of the first entry with that value
+	private final Map<String, Map<String, List<Check>>> entryChecks = new LinkedHashMap<>();
+
+	private static class Check {
+		private final String description;
+		private final String path;
+		private final Matcher<?> matcher;
+
+		Check(String description, String path, Matcher<?> matcher) {
+			this.description = description;
+			this.path = path;
+			this.matcher = matcher;
+		}
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		void verify(JsonNode node) {
+			MatcherAssert.assertThat("JSON path " + description + " doesn't match.",
+					node == null ? null : DirectoryIndex.value(node, path), (Matcher) matcher);
+		}
+	}
+
+	/**
+	 * @param directory the directory element of the body, e.g. "EntityDirectory"
+	 */
+	public StreamingDirectoryValidator(String directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Expects a field of the directory itself, e.g. "complete" or "numEntries".
+	 */
+	public StreamingDirectoryValidator expect(String path, Matcher<?> matcher) {
+		directoryChecks.add(new Check(directory + "." + path, path, matcher));
+		return this;
+	}
+
+	/**
+	 * Expects a field of the first entry whose key has the given value,
+	 * the equivalent of <code>entry.find { it.key == 'value' }.path</code>.
+	 */
+	public StreamingDirectoryValidator expectEntry(String key, String value, String path, Matcher<?> matcher) {
+		entryChecks.computeIfAbsent(key, k -> new HashMap<>()).computeIfAbsent(value, v -> new ArrayList<>())
+				.add(new Check(directory + ".entry.find { it." + key + " == '" + value + "' }." + path, path, matcher));
+		return this;
+	}
+
+	/**
+	 * Expects a field of every entry.
+	 */
+	public StreamingDirectoryValidator expectEveryEntry(String path, Matcher<?> matcher) {
+		everyEntryChecks.add(new Check(directory + ".entry." + path, path, matcher));
+		return this;
+	}
+
+	/**
+	 * Reads the body and asserts every expectation.
+	 *
+	 * @return the reader, for the header fields and the number of entries read
+	 */
+	public DirectoryStreamReader validate(InputStream body) throws IOException {
+		Map<String, Map<String, List<Check>>> pending = new LinkedHashMap<>();
+		for (Map.Entry<String, Map<String, List<Check>>> checks : entryChecks.entrySet()) {
+			pending.put(checks.getKey(), new HashMap<>(checks.getValue()));
+		}
+
+		DirectoryStreamReader reader;
+		try (InputStream in = body) {
+			reader = new DirectoryStreamReader(directory).read(in, (index, entry) -> {
+				for (Check check : everyEntryChecks) {
+					check.verify(entry);
+				}
+				for (Map.Entry<String, Map<String, List<Check>>> checks : pending.entrySet()) {
+					if (checks.getValue().isEmpty()) {
+						continue;
+					}
+					JsonNode key = DirectoryIndex.node(entry, checks.getKey());
+					List<Check> matched = key.isValueNode() ? checks.getValue().remove(key.asText()) : null;
+					if (matched != null) {
+						for (Check check : matched) {
+							check.verify(entry);
+						}
+					}
+				}
+			});
+		}
+
+		for (Check check : directoryChecks) {
+			check.verify(reader.getHeader());
+		}
+		// like find, an entry that never came is null
+		for (Map<String, List<Check>> checks : pending.values()) {
+			for (List<Check> missing : checks.values()) {
+				for (Check check : missing) {
+					check.verify(null);
+				}
+			}
+		}
+		return reader;
+	}
+}
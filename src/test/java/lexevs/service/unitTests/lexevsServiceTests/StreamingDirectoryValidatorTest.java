@@ -0,0 +1,74 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+
+import static org.hamcrest.Matchers.*;
+
+/**
+ * StreamingDirectoryValidator on generated EntityDirectory bodies
+ */
+public class StreamingDirectoryValidatorTest extends TestCase
+{
+	private static final String ABOUT = "http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#C";
+
+	/**
+	 * An EntityDirectory of the given size, generated as it is read
+	 */
+	private static InputStream entities(int size) {
+		return new SequenceInputStream(new Enumeration<InputStream>() {
+			private int next = -1;
+
+			public boolean hasMoreElements() {
+				return next <= size;
+			}
+
+			public InputStream nextElement() {
+				String part;
+				if (next < 0) {
+					part = "{ \"EntityDirectory\": { \"complete\": \"PARTIAL\", \"numEntries\": " + size + ", \"entry\": [";
+				} else if (next == size) {
+					part = "] } }";
+				} else {
+					part = (next > 0 ? "," : "") + "{ \"about\": \"" + ABOUT + next + "\", \"name\": { \"name\": \"C" + next
+							+ "\", \"namespace\": \"ncit\" } }";
+				}
+				next++;
+				return new ByteArrayInputStream(part.getBytes(StandardCharsets.UTF_8));
+			}
+		});
+	}
+
+	public final void test_large_directory() throws Exception {
+		DirectoryStreamReader reader = new StreamingDirectoryValidator("EntityDirectory").
+			expect("complete", is("PARTIAL")).
+			expect("numEntries", is(200000)).
+			expectEntry("about", ABOUT + "17998", "name.name", equalTo("C17998")).
+			expectEntry("about", ABOUT + "199999", "name.name", equalTo("C199999")).
+			expectEveryEntry("name.namespace", equalTo("ncit")).
+			validate(entities(200000));
+		assertEquals(200000, reader.getEntryCount());
+	}
+
+	public final void test_entry_mismatch() throws Exception {
+		try {
+			new StreamingDirectoryValidator("EntityDirectory").
+				expectEntry("about", ABOUT + "7", "name.name", equalTo("C8")).
+				validate(entities(10));
+			fail("expected a mismatch");
+		} catch (AssertionError e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("entry.find { it.about == '" + ABOUT + "7' }.name.name"));
+		}
+	}
+
+	public final void test_missing_entry_is_null() throws Exception {
+		new StreamingDirectoryValidator("EntityDirectory").
+			expectEntry("about", ABOUT + "10", "name.name", nullValue()).
+			validate(entities(10));
+	}
+}
@@ -0,0 +1,102 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A local stand-in for the CTS2 service in the offline tests: an HTTP server
+ * on the loopback interface whose handlers are set up by the test, below the
+ * base path.  It answers one request at a time unless made concurrent.
+ */
+public class StubService
+{
+	private final HttpServer server;
+	private ExecutorService executor;
+
+	public StubService() throws IOException {
+		server = CtsStubServer.loopbackServer(0);
+	}
+
+	/**
+	 * Answers each request on its own thread.
+	 */
+	public StubService concurrent() {
+		executor = Executors.newCachedThreadPool();
+		server.setExecutor(executor);
+		return this;
+	}
+
+	/**
+	 * @param path below the base path, e.g. /service
+	 */
+	public StubService context(String path, HttpHandler handler) {
+		server.createContext(LexevsRestTestRunner.BASE_PATH + path, handler);
+		return this;
+	}
+
+	public StubService start() {
+		server.start();
+		return this;
+	}
+
+	public void stop() {
+		server.stop(0);
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+	}
+
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * @return the base URL of the service, without the base path
+	 */
+	public String getBaseUri() {
+		return "http://127.0.0.1:" + getPort();
+	}
+
+	public CtsHttpClient client() {
+		return client(5000);
+	}
+
+	public CtsHttpClient client(int readTimeoutMillis) {
+		return new CtsHttpClient(getBaseUri(), LexevsRestTestRunner.BASE_PATH, 5000, readTimeoutMillis);
+	}
+
+	public static void send(HttpExchange exchange, int status, String body) throws IOException {
+		send(exchange, status, body.getBytes(StandardCharsets.UTF_8));
+	}
+
+	public static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+		exchange.sendResponseHeaders(status, body.length);
+		exchange.getResponseBody().write(body);
+		exchange.close();
+	}
+
+	/**
+	 * Sends the headers at once and the body after a delay.
+	 */
+	public static void sendSlowBody(HttpExchange exchange, int status, byte[] body, long delayMillis) throws IOException {
+		exchange.sendResponseHeaders(status, body.length);
+		exchange.getResponseBody().flush();
+		sleep(delayMillis);
+		exchange.getResponseBody().write(body);
+		exchange.close();
+	}
+
+	public static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,322 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import io.restassured.config.HttpClientConfig;
+import io.restassured.config.RestAssuredConfig;
+import io.restassured.response.Response;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.HttpClient;
+import org.apache.http.conn.HttpInetSocketAddress;
+import org.apache.http.conn.scheme.PlainSocketFactory;
+import org.apache.http.conn.scheme.Scheme;
+import org.apache.http.conn.scheme.SchemeLayeredSocketFactory;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.conn.scheme.SchemeSocketFactory;
+import org.apache.http.conn.ssl.SSLSocketFactory;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.impl.conn.SystemDefaultDnsResolver;
+import org.apache.http.params.HttpParams;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongConsumer;
+
+/**
+ * Creates the HttpClient RestAssured sends through, timing the DNS lookup,
+ * TCP connect and TLS handshake of every connection it opens, noting when
+ * the response headers arrive and counting the body bytes read.
+ * RestAssured executes a request on the calling thread, so the timings are
+ * kept per thread and read back by the filter that issued the request.
+ *
+ * A filter's <code>ctx.next()</code> returns with the headers; the body is
+ * read later, by the test.  The end of the body, when the consumer reaches
+ * its end or closes it, is reported to the listeners of
+ * {@link Timings#whenBodyReceived}.
+ */
+@SuppressWarnings("deprecation")
+public class TimingHttpClientFactory implements HttpClientConfig.HttpClientFactory
+{
+	private static final ThreadLocal<Timings> TIMINGS = ThreadLocal.withInitial(Timings::new);
+
+	/**
+	 * Timings of the request last sent on a thread
+	 */
+	public static class Timings {
+		private volatile long dnsNanos;
+		private volatile long connectNanos;
+		private volatile long tlsNanos;
+		private volatile long headersReceived;
+		private volatile long bytes;
+		private long bodyReceived;
+		private final List<LongConsumer> listeners = new ArrayList<>();
+
+		public long getDnsNanos() {
+			return dnsNanos;
+		}
+
+		public long getConnectNanos() {
+			return connectNanos;
+		}
+
+		public long getTlsNanos() {
+			return tlsNanos;
+		}
+
+		/**
+		 * @return System.nanoTime() when the response headers arrived, 0 if they did not
+		 */
+		public long getHeadersReceived() {
+			return headersReceived;
+		}
+
+		/**
+		 * @return body bytes read so far, as sent on the wire
+		 */
+		public long getBytes() {
+			return bytes;
+		}
+
+		/**
+		 * @return System.nanoTime() when the whole body was read, 0 if it was not yet
+		 */
+		public synchronized long getBodyReceived() {
+			return bodyReceived;
+		}
+
+		/**
+		 * Calls the listener with System.nanoTime() at the end of the body, at
+		 * once if it was already read.
+		 */
+		public void whenBodyReceived(LongConsumer listener) {
+			long received;
+			synchronized (this) {
+				if (bodyReceived == 0) {
+					listeners.add(listener);
+					return;
+				}
+				received = bodyReceived;
+			}
+			listener.accept(received);
+		}
+
+		void bodyReceived() {
+			List<LongConsumer> waiting;
+			long received;
+			synchronized (this) {
+				if (bodyReceived != 0) {
+					return;
+				}
+				bodyReceived = System.nanoTime();
+				received = bodyReceived;
+				waiting = new ArrayList<>(listeners);
+				listeners.clear();
+			}
+			for (LongConsumer listener : waiting) {
+				listener.accept(received);
+			}
+		}
+	}
+
+	@Override
+	public HttpClient createHttpClient() {
+		SchemeRegistry schemes = new SchemeRegistry();
+		schemes.register(new Scheme("http", 80, new TimedSocketFactory()));
+		schemes.register(new Scheme("https", 443, new TimedTlsSocketFactory(SSLSocketFactory.getSocketFactory())));
+		DefaultHttpClient client = new DefaultHttpClient(new PoolingClientConnectionManager(schemes, host -> {
+			long start = System.nanoTime();
+			InetAddress[] addresses = SystemDefaultDnsResolver.INSTANCE.resolve(host);
+			TIMINGS.get().dnsNanos += System.nanoTime() - start;
+			return addresses;
+		}));
+		client.addResponseInterceptor((response, context) -> {
+			Timings timings = TIMINGS.get();
+			timings.headersReceived = System.nanoTime();
+			// Added before RestAssured's own interceptors, so this sees the body still encoded
+			if (response.getEntity() == null || response.getEntity().getContentLength() == 0) {
+				timings.bodyReceived();
+			} else {
+				response.setEntity(new CountingEntity(response.getEntity(), timings));
+			}
+		});
+		return client;
+	}
+
+	/**
+	 * @return a RestAssured configuration using this factory
+	 */
+	public static RestAssuredConfig config() {
+		return RestAssuredConfig.config().httpClient(HttpClientConfig.httpClientConfig().httpClientFactory(new TimingHttpClientFactory()));
+	}
+
+	/**
+	 * Starts new timings on this thread.
+	 */
+	public static void reset() {
+		TIMINGS.set(new Timings());
+	}
+
+	/**
+	 * @return the timings on this thread since reset()
+	 */
+	public static Timings timings() {
+		return TIMINGS.get();
+	}
+
+	/**
+	 * @return System.nanoTime() when the last response headers arrived on this thread, 0 if none did since reset()
+	 */
+	public static long headersReceived() {
+		return TIMINGS.get().headersReceived;
+	}
+
+	/**
+	 * Reads what is left of a response body and closes it, so the body is
+	 * timed to its end and the connection goes back to the pool.
+	 */
+	public static void drain(Response response) {
+		try (InputStream in = response.asInputStream()) {
+			byte[] buffer = new byte[8192];
+			while (in.read(buffer) >= 0) {
+				// discard
+			}
+		} catch (IOException e) {
+			// the connection is closed either way
+		}
+	}
+
+	/**
+	 * Connects plain sockets, timing the connect.
+	 */
+	private static class TimedSocketFactory implements SchemeSocketFactory {
+		private final PlainSocketFactory plain = PlainSocketFactory.getSocketFactory();
+
+		@Override
+		public Socket createSocket(HttpParams params) throws IOException {
+			return plain.createSocket(params);
+		}
+
+		@Override
+		public Socket connectSocket(Socket socket, InetSocketAddress remoteAddress, InetSocketAddress localAddress,
+				HttpParams params) throws IOException {
+			long start = System.nanoTime();
+			Socket connected = plain.connectSocket(socket, remoteAddress, localAddress, params);
+			TIMINGS.get().connectNanos += System.nanoTime() - start;
+			return connected;
+		}
+
+		@Override
+		public boolean isSecure(Socket socket) {
+			return false;
+		}
+	}
+
+	/**
+	 * Layers TLS over the plain connection, timing the handshake separately
+	 * from the connect.
+	 */
+	private static class TimedTlsSocketFactory extends TimedSocketFactory implements SchemeLayeredSocketFactory {
+		private final SSLSocketFactory tls;
+
+		TimedTlsSocketFactory(SSLSocketFactory tls) {
+			this.tls = tls;
+		}
+
+		@Override
+		public Socket connectSocket(Socket socket, InetSocketAddress remoteAddress, InetSocketAddress localAddress,
+				HttpParams params) throws IOException {
+			Socket connected = super.connectSocket(socket, remoteAddress, localAddress, params);
+			String host = remoteAddress instanceof HttpInetSocketAddress
+					? ((HttpInetSocketAddress) remoteAddress).getHttpHost().getHostName()
+					: remoteAddress.getHostName();
+			return createLayeredSocket(connected, host, remoteAddress.getPort(), params);
+		}
+
+		@Override
+		public Socket createLayeredSocket(Socket socket, String target, int port, HttpParams params) throws IOException {
+			long start = System.nanoTime();
+			Socket layered = tls.createLayeredSocket(socket, target, port, params);
+			TIMINGS.get().tlsNanos += System.nanoTime() - start;
+			return layered;
+		}
+
+		@Override
+		public boolean isSecure(Socket socket) {
+			return tls.isSecure(socket);
+		}
+	}
+
+	/**
+	 * Counts the body bytes as the consumer reads them, and ends the timing
+	 * at the end of the stream, after Content-Length bytes, or on close.
+	 * Parsers stop after the closing brace without reading the end of the
+	 * stream, hence the Content-Length.
+	 */
+	private static class CountingEntity extends HttpEntityWrapper {
+		private final Timings timings;
+
+		CountingEntity(HttpEntity entity, Timings timings) {
+			super(entity);
+			this.timings = timings;
+		}
+
+		@Override
+		public InputStream getContent() throws IOException {
+			long length = getContentLength();
+			return new FilterInputStream(super.getContent()) {
+				private long read;
+
+				@Override
+				public int read() throws IOException {
+					int b = super.read();
+					count(b >= 0 ? 1 : -1);
+					return b;
+				}
+
+				@Override
+				public int read(byte[] buffer, int offset, int length) throws IOException {
+					int n = super.read(buffer, offset, length);
+					count(n);
+					return n;
+				}
+
+				@Override
+				public void close() throws IOException {
+					try {
+						super.close();
+					} finally {
+						timings.bodyReceived();
+					}
+				}
+
+				private void count(int n) {
+					if (n > 0) {
+						read += n;
+						timings.bytes += n;
+					}
+					if (n < 0 || (length >= 0 && read >= length)) {
+						timings.bodyReceived();
+					}
+				}
+			};
+		}
+
+		@Override
+		public void writeTo(OutputStream out) throws IOException {
+			try (InputStream in = getContent()) {
+				byte[] buffer = new byte[8192];
+				int n;
+				while ((n = in.read(buffer)) >= 0) {
+					out.write(buffer, 0, n);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,113 @@
+package lexevs.service.unitTests.lexevsServiceTests;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Resolves the value sets listed by a local server: /resolvedvaluesets has
+ * two pages, "CDISC SDTM" has three pages of two members and takes 30 ms a
+ * page, "FDA Terminology" one page, and "Gone" is not found
+ */
+public class ValueSetResolverTest extends TestCase
+{
+	private StubService server;
+	private Path outputDir;
+
+	protected void setUp() throws Exception {
+		outputDir = Files.createTempDirectory("valuesets");
+		server = new StubService().context("/resolvedvaluesets", exchange -> {
+			boolean first = !String.valueOf(exchange.getRequestURI().getQuery()).contains("page=2");
+			String next = first ? ", \"next\": \"https://lexevscts2-qa.nci.nih.gov/lexevscts2/resolvedvaluesets?maxtoreturn=2&page=2\"" : "";
+			String entries = first
+					? listed("CDISC SDTM", "7626ea9", "1") + "," + listed("FDA Terminology", "e32e022f", "2")
+					: listed("Gone", "00000000", "1");
+			StubService.send(exchange, 200, "{\"ResolvedValueSetDirectory\":{\"complete\":\"" + (first ? "PARTIAL" : "COMPLETE") + "\"" + next
+					+ ",\"entry\":[" + entries + "]}}");
+		}).context("/valueset/", exchange -> {
+			String path = exchange.getRequestURI().getPath();
+			if (path.contains("/Gone/")) {
+				StubService.send(exchange, 404, "{}");
+				return;
+			}
+			if (path.contains("/FDA Terminology/definition/e32e022f/resolution/2")) {
+				StubService.send(exchange, 200, "{\"IteratableResolvedValueSet\":{\"complete\":\"COMPLETE\",\"entry\":[" + member("C1") + "]}}");
+				return;
+			}
+			StubService.sleep(30);
+			String query = String.valueOf(exchange.getRequestURI().getQuery());
+			int page = query.contains("page=") ? Integer.parseInt(query.replaceAll(".*page=(\\d+).*", "$1")) : 1;
+			String next = page < 3 ? ",\"next\":\"http://other-host" + exchange.getRequestURI().getRawPath() + "?maxtoreturn=2&page=" + (page + 1) + "\"" : "";
+			StubService.send(exchange, 200, "{\"IteratableResolvedValueSet\":{\"complete\":\"" + (page < 3 ? "PARTIAL" : "COMPLETE") + "\"" + next
+					+ ",\"entry\":[" + member("C" + page + "a") + "," + member("C" + page + "b") + "]}}");
+		}).start();
+	}
+
+	private static String listed(String valueSet, String definition, String resolution) {
+		return "{\"href\":\"https://lexevscts2-qa.nci.nih.gov/lexevscts2/valueset/" + valueSet.replace(" ", "%20") + "/definition/"
+				+ definition + "/resolution/" + resolution + "\",\"resolvedHeader\":{\"resolutionOf\":{\"valueSetDefinition\":{\"content\":\""
+				+ definition + "\"},\"valueSet\":{\"content\":\"" + valueSet + "\"}}}}";
+	}
+
+	private static String member(String code) {
+		return "{\"namespace\":\"ncit\",\"name\":\"" + code + "\"}";
+	}
+
+	protected void tearDown() throws Exception {
+		server.stop();
+	}
+
+	private ValueSetResolver resolver() {
+		return new ValueSetResolver(server.client(), 2, 2, outputDir);
+	}
+
+	public final void test_list_follows_next() throws Exception {
+		List<ValueSetResolver.Resolution> resolutions = resolver().list(0);
+		assertEquals(3, resolutions.size());
+		assertEquals("CDISC SDTM", resolutions.get(0).getValueSet());
+		assertEquals("7626ea9", resolutions.get(0).getDefinition());
+		assertEquals("2", resolutions.get(1).getId());
+		assertEquals("/valueset/CDISC SDTM/definition/7626ea9/resolution/1?format=json&maxtoreturn=2", resolutions.get(0).path(2));
+		assertEquals(2, resolver().list(2).size());
+	}
+
+	public final void test_resolve_all() throws Exception {
+		ValueSetResolver resolver = resolver();
+		List<ValueSetResolver.Timing> timings = resolver.resolveAll(resolver.list(0));
+		assertEquals(3, timings.size());
+
+		ValueSetResolver.Timing slowest = timings.get(0);
+		assertEquals("CDISC SDTM", slowest.getResolution().getValueSet());
+		assertNull(slowest.getError());
+		assertEquals(3, slowest.getPages());
+		assertEquals(6, slowest.getMembers());
+		assertTrue(slowest.getElapsedNanos() >= 90_000_000L);
+		List<String> members = Files.readAllLines(outputDir.resolve("CDISC_SDTM-7626ea9-1.ndjson"));
+		assertEquals(6, members.size());
+		assertEquals(member("C3b"), members.get(5));
+
+		for (ValueSetResolver.Timing timing : timings) {
+			if (timing.getResolution().getValueSet().equals("Gone")) {
+				assertEquals("HTTP 404", timing.getError());
+			} else if (timing.getResolution().getValueSet().equals("FDA Terminology")) {
+				assertEquals(1, timing.getMembers());
+			}
+		}
+
+		Path file = outputDir.resolve("timings.tsv");
+		ValueSetResolver.write(timings, file);
+		List<String> lines = Files.readAllLines(file);
+		assertEquals(4, lines.size());
+		assertTrue(lines.get(1), lines.get(1).startsWith("CDISC SDTM\t7626ea9\t1\t6\t3\t"));
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ValueSetResolver.print(timings, 2, 1_000_000_000L, new PrintStream(bytes, true, "UTF-8"));
+		String report = bytes.toString("UTF-8");
+		assertTrue(report, report.contains("CDISC SDTM 7626ea9/1"));
+		assertTrue(report, report.contains("3 value sets, 7 members"));
+	}
+}